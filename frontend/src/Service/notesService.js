@@ -8,6 +8,21 @@ const getTags = () => {
   return api.get(`${API_URL}/tags`);
 };
 
+// Tag names with note counts across owned and shared notes, most used first
+const getTagFacets = () => {
+  return api.get(`${API_URL}/tags/facets`);
+};
+
+const getNote = async (id) => {
+  const response = await api.get(`${API_URL}/notes/${id}`);
+
+  if (!response.ok) {
+    throw new Error(`Failed to fetch note: ${response.status}`);
+  }
+
+  return await response.json();
+};
+
 const addNewNote = async (note) => {
   const response = await api.post(`${API_URL}/notes`, {
     title: note.title,
@@ -36,6 +51,63 @@ const updateNote = async (note) => {
   return await response.json();
 };
 
+// Single ranged patch covering everything between the common prefix and suffix
+const diffContent = (previous, next) => {
+  let start = 0;
+  const maxPrefix = Math.min(previous.length, next.length);
+  while (start < maxPrefix && previous[start] === next[start]) {
+    start++;
+  }
+
+  let previousEnd = previous.length;
+  let nextEnd = next.length;
+  while (
+    previousEnd > start &&
+    nextEnd > start &&
+    previous[previousEnd - 1] === next[nextEnd - 1]
+  ) {
+    previousEnd--;
+    nextEnd--;
+  }
+
+  return { start, end: previousEnd, text: next.slice(start, nextEnd) };
+};
+
+// Move a local edit made against base onto current, which changed base elsewhere.
+// Returns the rebased patch, or null when both changed the same range.
+const rebaseContentPatch = (base, local, current) => {
+  const mine = diffContent(base || "", local || "");
+  const theirs = diffContent(base || "", current || "");
+  if (mine.end < theirs.start) {
+    return mine;
+  }
+  if (mine.start > theirs.end) {
+    const shift = theirs.text.length - (theirs.end - theirs.start);
+    return { start: mine.start + shift, end: mine.end + shift, text: mine.text };
+  }
+  return null;
+};
+
+// Send ranged edits of the content; rejected with 409 if baseVersion is stale
+const patchNoteContent = async (noteId, baseVersion, previousContent, nextContent) => {
+  return sendContentPatch(noteId, baseVersion, diffContent(previousContent || "", nextContent || ""));
+};
+
+const sendContentPatch = async (noteId, baseVersion, patch) => {
+  const response = await api.patch(`${API_URL}/notes/${noteId}/content`, {
+    baseVersion,
+    patches: [patch],
+  });
+
+  if (!response.ok) {
+    const error = new Error(`Failed to patch note: ${response.status}`);
+    error.status = response.status;
+    throw error;
+  }
+
+  return await response.json();
+};
+
 const deleteNote = async (id) => {
   const response = await api.delete(`${API_URL}/notes/${id}`);
 
@@ -56,6 +128,48 @@ const searchNotes = async (keyword) => {
   return await response.json();
 };
 
+const getRelatedNotes = async (noteId, limit = 10) => {
+  const response = await api.get(`${API_URL}/notes/${noteId}/related?limit=${limit}`);
+
+  if (!response.ok) {
+    throw new Error(`Failed to fetch related notes: ${response.status}`);
+  }
+
+  return await response.json();
+};
+
+// { nodes: [noteId], edges: [{ source, target, similarity }] with node indices, building }
+const getNoteGraph = async () => {
+  const response = await api.get(`${API_URL}/notes/graph`);
+
+  if (!response.ok) {
+    throw new Error(`Failed to fetch note graph: ${response.status}`);
+  }
+
+  return await response.json();
+};
+
+const suggestNotes = async (prefix, limit = 8) => {
+  const response = await api.get(`${API_URL}/notes/suggest?q=${encodeURIComponent(prefix)}&limit=${limit}`);
+
+  if (!response.ok) {
+    throw new Error(`Failed to fetch suggestions: ${response.status}`);
+  }
+
+  return await response.json();
+};
+
+// Structured query: { allTags, anyTags, scope, createdFrom, createdTo, text, mode, page, size }
+const queryNotes = async (query) => {
+  const response = await api.post(`${API_URL}/notes/query`, query);
+
+  if (!response.ok) {
+    throw new Error(`Failed to query notes: ${response.status}`);
+  }
+
+  return await response.json();
+};
+
 const shareNote = async (noteId, emails) => {
   const response = await api.post(`${API_URL}/notes/${noteId}/share`, { emails });
 
@@ -76,13 +190,47 @@ const removeCollaborator = async (noteId, email) => {
   return await response.json();
 };
 
+// Notes created, changed or removed since the token from the previous call (omit for a full sync)
+const getNoteChanges = async (since) => {
+  const query = since ? `?since=${encodeURIComponent(since)}` : "";
+  const response = await api.get(`${API_URL}/notes/changes${query}`);
+
+  if (!response.ok) {
+    throw new Error(`Failed to fetch note changes: ${response.status}`);
+  }
+
+  return await response.json();
+};
+
+// Push notifications for the note list; the browser reconnects automatically when the stream ends.
+// onOpen runs on every (re)connect, so changes made while disconnected can be pulled.
+const subscribeToNoteEvents = (onEvent, onOpen) => {
+  const source = new EventSource(`${API_URL}/notes/events`, { withCredentials: true });
+  source.addEventListener("note", (event) => onEvent(JSON.parse(event.data)));
+  if (onOpen) {
+    source.addEventListener("open", onOpen);
+  }
+  return () => source.close();
+};
+
 const notesService = {
     getAllNotes,
+    getNoteChanges,
+    subscribeToNoteEvents,
     getTags,
+    getTagFacets,
+    getNote,
     addNewNote,
     updateNote,
+    patchNoteContent,
+    sendContentPatch,
+    rebaseContentPatch,
     deleteNote,
     searchNotes,
+    suggestNotes,
+    getRelatedNotes,
+    getNoteGraph,
+    queryNotes,
     shareNote,
     removeCollaborator,
 };
@@ -1,15 +1,28 @@
 import React, { useEffect } from "react";
 import SideBar from "../sidebar/SideBar";
 import MainPage from "../mainPage/MainPage";
-import { fetchAllNotesAsync, getTagsAsync } from '../../store/notesSlice.js';
+import { syncNotesAsync, getTagsAsync } from '../../store/notesSlice.js';
+import notesService from "../../Service/notesService.js";
 
 import "./Dashboard.css"
 import { useDispatch } from "react-redux";
 const Dashboard = () => {
   const dispatch = useDispatch();
   useEffect(()=>{
-    dispatch(fetchAllNotesAsync());
+    dispatch(syncNotesAsync());
     dispatch(getTagsAsync());
+
+    // Each pushed event only says something changed; pull the changes, coalescing bursts
+    let syncTimeout = null;
+    const scheduleSync = () => {
+      clearTimeout(syncTimeout);
+      syncTimeout = setTimeout(() => dispatch(syncNotesAsync()), 300);
+    };
+    const unsubscribe = notesService.subscribeToNoteEvents(scheduleSync, scheduleSync);
+    return () => {
+      clearTimeout(syncTimeout);
+      unsubscribe();
+    };
   },[dispatch])
   return (
     <div className="home-container">
@@ -18,20 +18,24 @@ const AUTOSAVE_DELAY_MS = 2000;
  * Collaborative rich text editor component with real-time sync
  * @param {Object} props
  * @param {string} props.initialContent - Initial HTML content
- * @param {Function} props.onUpdate - Callback for content updates (html, noteId)
+ * @param {Function} props.onUpdate - Callback for content updates (html, noteId, { persisted }); persisted is true
+ *   when the collaboration server already stores the document, so only local state needs updating
  * @param {string} props.id - Note ID
  * @param {Object} props.currentUser - Current user object with username, email, color
+ * @param {boolean} props.collaborative - Whether to join the shared document (false for read-only demo templates)
  */
-const Editor = ({ initialContent, onUpdate, id: noteId, currentUser }) => {
+const Editor = ({ initialContent, onUpdate, id: noteId, currentUser, collaborative = true }) => {
   const [isCollaborationReady, setIsCollaborationReady] = useState(false);
   const ydocRef = useRef(null);
   const providerRef = useRef(null);
   const syncHandlerRef = useRef(null);
   const saveTimeoutRef = useRef(null);
+  const serverPersistsRef = useRef(false);
+  const collaborationReadyRef = useRef(false);
 
   // Initialize collaboration when noteId changes
   useEffect(() => {
-    if (!noteId) return;
+    if (!noteId || !collaborative) return;
 
     const initCollaboration = async () => {
       try {
@@ -54,8 +58,18 @@ const Editor = ({ initialContent, onUpdate, id: noteId, currentUser }) => {
         ydocRef.current = doc;
         providerRef.current = prov;
 
+        // The server announces whether it persists the document itself
+        prov.on('stateless', ({ payload }) => {
+          try {
+            serverPersistsRef.current = JSON.parse(payload).persistence === true;
+          } catch {
+            // Not a persistence announcement
+          }
+        });
+
         // Wait for provider to sync before enabling collaboration features
         prov.on('synced', () => {
+          collaborationReadyRef.current = true;
           setIsCollaborationReady(true);
         });
 
@@ -73,9 +87,11 @@ const Editor = ({ initialContent, onUpdate, id: noteId, currentUser }) => {
       cleanupDocument(noteId);
       ydocRef.current = null;
       providerRef.current = null;
+      serverPersistsRef.current = false;
+      collaborationReadyRef.current = false;
       setIsCollaborationReady(false);
     };
-  }, [noteId, currentUser?.email, currentUser?.username]);
+  }, [noteId, collaborative, currentUser?.email, currentUser?.username]);
 
   const editor = useEditor({
     editable: true,
@@ -108,10 +124,12 @@ const Editor = ({ initialContent, onUpdate, id: noteId, currentUser }) => {
       // Debounced autosave to database
       saveTimeoutRef.current = setTimeout(async () => {
         const html = currentEditor.getHTML();
+        // Edits made through the shared document are stored once by the collaboration server
+        const persisted = collaborationReadyRef.current && serverPersistsRef.current;
 
         try {
           if (onUpdate && noteId) {
-            onUpdate(html, noteId);
+            onUpdate(html, noteId, { persisted });
           }
         } catch (error) {
           console.error('Autosave failed:', error);
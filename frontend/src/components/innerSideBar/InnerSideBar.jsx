@@ -34,12 +34,13 @@ const InnerSideBar = () => {
     case "MY_NOTES":
       console.log("MY_NOTES filter applied");
       emptyMessage = "You don't have any notes yet. Start a new note to capture your thoughts and ideas.";
-      notesList = allNotesList.filter((note)=> note.ownerId === currentUser?.id);
+      // Demo templates count as the user's own notes until edited
+      notesList = allNotesList.filter((note)=> note.ownerId === currentUser?.id || note.template);
       break;
     case "SHARED_NOTES":
       emptyMessage="No notes have been shared with you yet.";
       descritionMessage= "All notes shared with you are stored here.";
-      notesList = allNotesList.filter((note)=> note.ownerId !== currentUser?.id);
+      notesList = allNotesList.filter((note)=> note.ownerId !== currentUser?.id && !note.template);
       break;
     case "SEARCH":
       if(queryFromStore.length > 0){
@@ -143,7 +144,7 @@ const InnerSideBar = () => {
       {tagFromStore.length == 0 && currentFilter == "TAG" &&
       <ul className="tags-list flow-content xxs-spacer">
         {
-          tags.map((tag)=> <li key={tag}onClick={()=>{setTag(tag)}}  className={`tag-item sidebar-item`}><TagIcon className="tag-icon icon" /><span>{tag}</span></li>)
+          tags.map((tag)=> <li key={tag.name} onClick={()=>{setTag(tag.name)}}  className={`tag-item sidebar-item`}><TagIcon className="tag-icon icon" /><span>{tag.name}</span><span className="tag-count preset-6">{tag.count}</span></li>)
         }
       </ul>
       }
@@ -1,5 +1,5 @@
 import React, { useEffect, useState, useRef } from "react";
-import { updateNote,updateANoteAsync,setCurrentNote, searchNotesAsync, deleteNote, deleteNoteAsync, getTagsAsync, fetchAllNotesAsync } from "../../store/notesSlice.js";
+import { updateNote,updateANoteAsync,patchNoteContentAsync,setCurrentNote, searchNotesAsync, deleteNote, deleteNoteAsync, getTagsAsync, syncNotesAsync } from "../../store/notesSlice.js";
 import { updateFilter,selectTag, setSearchNotes } from "../../store/uiSlice.js";
 import { addToast } from "../../store/toastSlice.js";
 
@@ -12,6 +12,8 @@ import SettingsBar from "../settingsBar/SettingsBar.jsx";
 import ShareModal from "../shareModal/ShareModal.jsx";
 import ConfirmDialog from "../common/ConfirmDialog.jsx";
 import CollaboratorsList from "../collaboration/CollaboratorsList.jsx";
+import RelatedNotes from "../relatedNotes/RelatedNotes.jsx";
+import NoteGraphModal from "../noteGraph/NoteGraphModal.jsx";
 import notesService from "../../Service/notesService.js";
 import { formatCreatedDate, formatCreatedDateTime } from "../../utils/dateUtils.js";
 import { getProvider } from "../../utils/collaborationManager.js";
@@ -21,6 +23,7 @@ import TagIcon from "../../assets/images/icon-tag.svg?react";
 import ClockIcon from "../../assets/images/icon-clock.svg?react";
 import LeftArrowIcon from "../../assets/images/icon-arrow-left.svg?react";
 import ShareIcon from "../../assets/images/icon-share.svg?react";
+import StatusIcon from "../../assets/images/icon-status.svg?react";
 
 import "./MainPage.css";
 
@@ -33,6 +36,7 @@ const MainPage = () => {
   const currentUser = useSelector((state) => state.auth.user);
   const [isShareModalOpen, setIsShareModalOpen] = useState(false);
   const [isDeleteModalOpen, setIsDeleteModalOpen] = useState(false);
+  const [isGraphOpen, setIsGraphOpen] = useState(false);
   let title = "";
   const timeoutNoteUpdateRef = useRef(null);
   const timeoutSearchUpdateRef = useRef(null);
@@ -80,7 +84,7 @@ const MainPage = () => {
 
 
   /* Debounced Content Updater */
-  const handleContentUpdate = (html,id) => {
+  const handleContentUpdate = (html,id,{ persisted = false } = {}) => {
     if (!currentNote) return;
     if (timeoutNoteUpdateRef.current) {
       clearTimeout(timeoutNoteUpdateRef.current);
@@ -89,7 +93,18 @@ const MainPage = () => {
     const updatedNote = { ...currentNote, content: html, id: id };
     timeoutNoteUpdateRef.current = setTimeout(() => {
       dispatch(updateNote(updatedNote));
-      dispatch(updateANoteAsync({ note: updatedNote, previousNote }))
+      // The collaboration server stores the shared document; saving it from every editor would race it
+      if (persisted) return;
+      // Editing a template creates the user's copy, which needs the full update
+      if (currentNote.template || currentNote.version == null) {
+        dispatch(updateANoteAsync({ note: updatedNote, previousNote }))
+      } else {
+        dispatch(patchNoteContentAsync({ note: updatedNote, previousNote })).then((result) => {
+          if (patchNoteContentAsync.rejected.match(result) && result.payload?.conflict) {
+            dispatch(addToast({ type: "error", message: result.payload.error }));
+          }
+        });
+      }
     }, 1000);
   };
 
@@ -162,8 +177,8 @@ const MainPage = () => {
     if (!currentNote) return;
     try {
       await notesService.shareNote(currentNoteId, emails);
-      // Refresh the notes list to get updated sharedWith data
-      await dispatch(fetchAllNotesAsync());
+      // Pull the updated sharedWith data
+      await dispatch(syncNotesAsync());
       dispatch(addToast({ type: "success", message: `Note shared with ${emails.join(", ")}` }));
     } catch (error) {
       console.error("Failed to share note:", error);
@@ -177,8 +192,8 @@ const MainPage = () => {
     if (!currentNote) return;
     try {
       await notesService.removeCollaborator(currentNoteId, email);
-      // Refresh the notes list to get updated sharedWith data
-      await dispatch(fetchAllNotesAsync());
+      // Pull the updated sharedWith data
+      await dispatch(syncNotesAsync());
       dispatch(addToast({ type: "success", message: `Collaborator removed` }));
     } catch (error) {
       console.error("Failed to remove collaborator:", error);
@@ -214,9 +229,9 @@ const MainPage = () => {
           <div className={`note-content flow-content ${currentNoteId == null ? "mobile-hide" : "" }` }>
             <div className={`mobile-topbar ${currentNoteId == null ? "mobile-hide" :"" }`}>
               <button className="btn-none goback-btn" onClick={()=>{dispatch(setCurrentNote({id:null}))}}><LeftArrowIcon /><span className="preset-5">Go Back</span></button>
-              {currentNote?.ownerId === currentUser?.id && (
+              {(currentNote?.ownerId === currentUser?.id || currentNote?.template) && (
                 <div className="top-bar-right">
-                  <button className="btn-none" onClick={() => setIsShareModalOpen(true)}><ShareIcon /></button>
+                  {!currentNote?.template && <button className="btn-none" onClick={() => setIsShareModalOpen(true)}><ShareIcon /></button>}
                   <button className="btn-none" onClick={handleDelete}><DeleteIcon /></button>
                 </div>
               )}
@@ -246,7 +261,7 @@ const MainPage = () => {
                 </div>
                 <hr />
                 <div className="preset-5">
-                <Editor key={currentNoteId} initialContent={currentNote.content} onUpdate={handleContentUpdate} id={currentNoteId} currentUser={currentUser} />
+                <Editor key={currentNoteId} initialContent={currentNote.content} onUpdate={handleContentUpdate} id={currentNoteId} currentUser={currentUser} collaborative={!currentNote.template} />
                 </div>
             </>
             }
@@ -255,14 +270,17 @@ const MainPage = () => {
       }
       {currentNoteId !== null && currentFilter !== "SETTINGS" && (
         <div className="right-sidebar flow-content">
-          {currentNote?.ownerId === currentUser?.id && (
+          {(currentNote?.ownerId === currentUser?.id || currentNote?.template) && (
             <>
-              <button className="btn btn-secondary full-width split preset-4" onClick={() => setIsShareModalOpen(true)}><ShareIcon className="icon" /><p>Share Note</p></button>
+              {!currentNote?.template && <button className="btn btn-secondary full-width split preset-4" onClick={() => setIsShareModalOpen(true)}><ShareIcon className="icon" /><p>Share Note</p></button>}
               <button className="btn btn-secondary full-width split preset-4" onClick={handleDelete}><DeleteIcon className="icon delete-icon"  /><p>Delete Note</p></button>
               <hr />
             </>
           )}
+          <button className="btn btn-secondary full-width split preset-4" onClick={() => setIsGraphOpen(true)}><StatusIcon className="icon" /><p>Note Graph</p></button>
+          <hr />
           <CollaboratorsList note={currentNote} provider={getProvider(currentNoteId)} />
+          <RelatedNotes noteId={currentNoteId} />
         </div>
       )}
       <ShareModal
@@ -272,6 +290,7 @@ const MainPage = () => {
         onShare={handleShare}
         onRemoveCollaborator={handleRemoveCollaborator}
       />
+      <NoteGraphModal isOpen={isGraphOpen} onClose={() => setIsGraphOpen(false)} />
       <ConfirmDialog
         isOpen={isDeleteModalOpen}
         onClose={() => setIsDeleteModalOpen(false)}
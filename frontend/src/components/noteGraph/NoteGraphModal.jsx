@@ -0,0 +1,130 @@
+import React, { useEffect, useMemo, useState } from "react";
+import { useDispatch, useSelector } from "react-redux";
+import Modal from "../common/Modal";
+import { setCurrentNote } from "../../store/notesSlice.js";
+import notesService from "../../Service/notesService.js";
+import StatusIcon from "../../assets/images/icon-status.svg?react";
+import "./NoteGraphModal.css";
+
+const WIDTH = 600;
+const HEIGHT = 400;
+const BUILD_POLL_MS = 5000;
+
+// Nodes start on a circle and settle with a few rounds of spring and repulsion forces
+const layout = (count, edges) => {
+  const points = Array.from({ length: count }, (_, i) => {
+    const angle = (2 * Math.PI * i) / Math.max(count, 1);
+    return { x: WIDTH / 2 + (WIDTH / 3) * Math.cos(angle), y: HEIGHT / 2 + (HEIGHT / 3) * Math.sin(angle) };
+  });
+  for (let round = 0; round < 150; round++) {
+    const forces = points.map(() => ({ x: 0, y: 0 }));
+    for (let i = 0; i < count; i++) {
+      for (let j = i + 1; j < count; j++) {
+        const dx = points[i].x - points[j].x;
+        const dy = points[i].y - points[j].y;
+        const distanceSq = Math.max(dx * dx + dy * dy, 25);
+        const push = 800 / distanceSq;
+        forces[i].x += dx * push; forces[i].y += dy * push;
+        forces[j].x -= dx * push; forces[j].y -= dy * push;
+      }
+    }
+    edges.forEach(({ source, target, similarity }) => {
+      const dx = points[target].x - points[source].x;
+      const dy = points[target].y - points[source].y;
+      const pull = 0.02 * similarity;
+      forces[source].x += dx * pull; forces[source].y += dy * pull;
+      forces[target].x -= dx * pull; forces[target].y -= dy * pull;
+    });
+    points.forEach((point, i) => {
+      point.x = Math.min(WIDTH - 20, Math.max(20, point.x + forces[i].x));
+      point.y = Math.min(HEIGHT - 20, Math.max(20, point.y + forces[i].y));
+    });
+  }
+  return points;
+};
+
+const NoteGraphModal = ({ isOpen, onClose }) => {
+  const dispatch = useDispatch();
+  const notesById = useSelector((state) => state.notes.byId);
+  const currentNoteId = useSelector((state) => state.notes.currentId);
+  const [graph, setGraph] = useState(null);
+  const [error, setError] = useState("");
+
+  useEffect(() => {
+    if (!isOpen) return;
+    let cancelled = false;
+    let timer = null;
+
+    const load = async () => {
+      try {
+        const result = await notesService.getNoteGraph();
+        if (cancelled) return;
+        setGraph(result);
+        setError("");
+        // The first build runs in the background
+        if (result.building) {
+          timer = setTimeout(load, BUILD_POLL_MS);
+        }
+      } catch (err) {
+        if (!cancelled) setError(err.message || "Failed to load note graph");
+      }
+    };
+    load();
+
+    return () => {
+      cancelled = true;
+      if (timer) clearTimeout(timer);
+    };
+  }, [isOpen]);
+
+  const points = useMemo(
+    () => (graph ? layout(graph.nodes.length, graph.edges) : []),
+    [graph]
+  );
+
+  const openNote = (id) => {
+    if (!notesById[id]) return;
+    dispatch(setCurrentNote({ id }));
+    onClose();
+  };
+
+  let message = "Notes linked to the notes most similar to them.";
+  if (error) {
+    message = error;
+  } else if (!graph || graph.building) {
+    message = "Building your note graph, this can take a minute...";
+  } else if (graph.nodes.length === 0) {
+    message = "Your notes have no embeddings yet.";
+  }
+
+  return (
+    <Modal isOpen={isOpen} onClose={onClose} title="Note Graph" message={message} IconComponent={StatusIcon} maxWidth="680px">
+      {graph && !graph.building && graph.nodes.length > 0 && (
+        <svg className="note-graph" viewBox={`0 0 ${WIDTH} ${HEIGHT}`}>
+          {graph.edges.map(({ source, target, similarity }) => (
+            <line
+              key={`${source}-${target}`}
+              className="note-graph-edge"
+              x1={points[source].x} y1={points[source].y}
+              x2={points[target].x} y2={points[target].y}
+              strokeOpacity={similarity}
+            />
+          ))}
+          {graph.nodes.map((id, i) => (
+            <g
+              key={id}
+              className={`note-graph-node ${id === currentNoteId ? "current" : ""}`}
+              transform={`translate(${points[i].x}, ${points[i].y})`}
+              onClick={() => openNote(id)}
+            >
+              <circle r="6" />
+              <text className="preset-6" y="-10" textAnchor="middle">{notesById[id]?.title || "Untitled Note"}</text>
+            </g>
+          ))}
+        </svg>
+      )}
+    </Modal>
+  );
+};
+
+export default NoteGraphModal;
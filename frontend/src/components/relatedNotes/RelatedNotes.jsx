@@ -0,0 +1,58 @@
+import { useEffect, useState } from 'react';
+import { useDispatch, useSelector } from 'react-redux';
+import { setCurrentNote } from '../../store/notesSlice.js';
+import notesService from '../../Service/notesService.js';
+import './RelatedNotes.css';
+
+export default function RelatedNotes({ noteId }) {
+  const dispatch = useDispatch();
+  const [related, setRelated] = useState([]);
+  // Only offer notes that are loaded, so clicking one can open it
+  const loadedNotes = useSelector((state) => state.notes.byId);
+
+  useEffect(() => {
+    // Unsaved notes have no embedding yet
+    if (!noteId || String(noteId).startsWith('temp-')) {
+      setRelated([]);
+      return;
+    }
+
+    let cancelled = false;
+    notesService.getRelatedNotes(noteId, 5)
+      .then((notes) => {
+        if (!cancelled) {
+          setRelated(notes);
+        }
+      })
+      .catch((error) => {
+        console.error('Failed to load related notes:', error);
+        if (!cancelled) {
+          setRelated([]);
+        }
+      });
+
+    return () => {
+      cancelled = true;
+    };
+  }, [noteId]);
+
+  const notes = related.filter((note) => loadedNotes[note.id]);
+  if (notes.length === 0) {
+    return null;
+  }
+
+  return (
+    <div className="related-notes-container flow-content xxs-spacer">
+      <p className="section-title">Related Notes</p>
+      <ul className="related-notes-list flow-content xxs-spacer">
+        {notes.map((note) => (
+          <li key={note.id}>
+            <button className="btn-none related-note-item preset-5" onClick={() => dispatch(setCurrentNote({ id: note.id }))}>
+              {note.title || 'Untitled Note'}
+            </button>
+          </li>
+        ))}
+      </ul>
+    </div>
+  );
+}
@@ -65,7 +65,7 @@ const SideBar = () => {
           <p className="section-title sidebar-content">Tags</p>
           <ul className="tags-list flow-content xxs-spacer">
             {
-              tags.map((tag) => <li key={tag} onClick={() => { setTag(tag) }} className={`tag-item sidebar-item ${currentFilter == "TAG" && currentTag == tag ? "selected" : ""}`}><TagIcon className="icon tag-icon" /><span>{tag}</span></li>)
+              tags.map((tag) => <li key={tag.name} onClick={() => { setTag(tag.name) }} className={`tag-item sidebar-item ${currentFilter == "TAG" && currentTag == tag.name ? "selected" : ""}`}><TagIcon className="icon tag-icon" /><span>{tag.name}</span><span className="tag-count preset-6">{tag.count}</span></li>)
             }
           </ul>
           {isAdmin && (
@@ -7,15 +7,17 @@ const initialState = {
   searchIds: [],
   currentId: null,
   tags: [],
+  syncToken: null,
   loading: false,
   error: null,
 };
 
+// Tags with their note counts, most used first
 export const getTagsAsync = createAsyncThunk(
   "notes/getTags",
   async (_, thunkAPI) => {
     try {
-      const response = await notesService.getTags();
+      const response = await notesService.getTagFacets();
       if (!response.ok) throw new Error("Failed to fetch tags.");
       return await response.json();
     } catch (error) {
@@ -37,6 +39,30 @@ export const fetchAllNotesAsync = createAsyncThunk(
   }
 );
 
+// Pull the notes changed since the last sync; without a token the server returns every note
+export const syncNotesAsync = createAsyncThunk(
+  "notes/syncNotesAsync",
+  async (_, thunkAPI) => {
+    try {
+      let token = thunkAPI.getState().notes.syncToken;
+      const upserted = [];
+      const removed = [];
+      let fullResync = false;
+      let page;
+      do {
+        page = await notesService.getNoteChanges(token);
+        fullResync = fullResync || page.fullResync;
+        upserted.push(...page.upserted);
+        removed.push(...page.removed);
+        token = page.nextToken;
+      } while (page.hasMore);
+      return { upserted, removed, fullResync, nextToken: token };
+    } catch (error) {
+      return thunkAPI.rejectWithValue(error.message);
+    }
+  }
+);
+
 export const addAnoteAsync = createAsyncThunk(
   "notes/addAnoteAsync",
   async ({ note, tempId }, thunkAPI) => {
@@ -61,6 +87,53 @@ export const updateANoteAsync = createAsyncThunk(
   }
 );
 
+// Autosave sends only the changed range of the content against the note's current version.
+// If the note moved on in the meantime (409), the edit is rebased onto the latest version and sent once more;
+// an edit overlapping the concurrent one is a conflict, and the latest version is kept.
+export const patchNoteContentAsync = createAsyncThunk(
+  "notes/patchNoteContentAsync",
+  async ({ note, previousNote }, thunkAPI) => {
+    try {
+      try {
+        const result = await notesService.patchNoteContent(
+          note.id,
+          previousNote.version,
+          previousNote.content,
+          note.content
+        );
+        return { id: result.id, version: result.version };
+      } catch (error) {
+        if (error.status !== 409) throw error;
+      }
+
+      const serverNote = await notesService.getNote(note.id);
+      if (serverNote.content === note.content) {
+        // Another editor of the shared document already saved the same content
+        return { id: serverNote.id, version: serverNote.version };
+      }
+      const patch = notesService.rebaseContentPatch(previousNote.content, note.content, serverNote.content);
+      if (patch) {
+        try {
+          const result = await notesService.sendContentPatch(note.id, serverNote.version, patch);
+          const current = serverNote.content || "";
+          const content = current.slice(0, patch.start) + patch.text + current.slice(patch.end);
+          return { id: result.id, version: result.version, content };
+        } catch (error) {
+          if (error.status !== 409) throw error;
+        }
+      }
+      return thunkAPI.rejectWithValue({
+        error: "The note was changed elsewhere; your last edit was not saved.",
+        conflict: true,
+        serverNote,
+        previousNote,
+      });
+    } catch (error) {
+      return thunkAPI.rejectWithValue({ error: error.message, previousNote });
+    }
+  }
+);
+
 export const deleteNoteAsync = createAsyncThunk(
   "notes/deleteNoteAsync",
   async ({ id, noteData }, thunkAPI) => {
@@ -139,6 +212,46 @@ export const notesSlice = createSlice({
         state.loading = false;
         state.error = action.payload;
       })
+      // Handle syncNotesAsync - merge changed notes, or replace everything on a full resync
+      .addCase(syncNotesAsync.fulfilled, (state, action) => {
+        const { upserted, removed, fullResync, nextToken } = action.payload;
+        if (fullResync) {
+          state.byId = {};
+          state.allIds = [];
+        }
+        removed.forEach((id) => {
+          delete state.byId[id];
+          state.allIds = state.allIds.filter((nid) => nid !== id);
+        });
+        upserted.forEach((note) => {
+          const existing = state.byId[note.id];
+          if (!existing) {
+            state.allIds.unshift(note.id);
+            state.byId[note.id] = note;
+          } else if (note.id === state.currentId) {
+            // Keep what is being edited (and the version it is based on); autosave reconciles it
+            state.byId[note.id] = {
+              ...note,
+              title: existing.title,
+              content: existing.content,
+              version: existing.version,
+            };
+          } else {
+            state.byId[note.id] = note;
+          }
+        });
+        state.syncToken = nextToken;
+        state.loading = false;
+      })
+      .addCase(syncNotesAsync.pending, (state) => {
+        if (!state.syncToken) {
+          state.loading = true;
+        }
+      })
+      .addCase(syncNotesAsync.rejected, (state, action) => {
+        state.loading = false;
+        state.error = action.payload;
+      })
       // Handle addAnoteAsync - replace temp ID with server UUID
       .addCase(addAnoteAsync.fulfilled, (state, action) => {
         const { serverNote, tempId } = action.payload;
@@ -166,6 +279,21 @@ export const notesSlice = createSlice({
         //Not needed as we optimistically update
         // const updatedNote = action.payload;
         // state.byId[updatedNote.id] = updatedNote;
+
+        // Editing a shared demo template returns the user's private copy under a new ID
+        const serverNote = action.payload;
+        const sentId = action.meta.arg.note.id;
+        if (serverNote && serverNote.id !== sentId) {
+          delete state.byId[sentId];
+          state.allIds = state.allIds.filter((id) => id !== sentId);
+          state.byId[serverNote.id] = serverNote;
+          state.allIds.unshift(serverNote.id);
+          if (state.currentId === sentId) {
+            state.currentId = serverNote.id;
+          }
+        } else if (serverNote && state.byId[sentId]) {
+          state.byId[sentId].version = serverNote.version;
+        }
       })
       .addCase(updateANoteAsync.rejected, (state, action) => {
         const { previousNote } = action.payload;
@@ -175,6 +303,27 @@ export const notesSlice = createSlice({
         }
         state.error = action.payload.error;
       })
+      // Handle patchNoteContentAsync - keep the version current for the next patch, rollback on error
+      .addCase(patchNoteContentAsync.fulfilled, (state, action) => {
+        const { id, version, content } = action.payload;
+        if (state.byId[id]) {
+          state.byId[id].version = version;
+          // A rebased edit was applied on top of another one
+          if (content !== undefined) {
+            state.byId[id].content = content;
+          }
+        }
+      })
+      .addCase(patchNoteContentAsync.rejected, (state, action) => {
+        const { previousNote, serverNote } = action.payload;
+        if (serverNote) {
+          // Conflict: continue from the latest version rather than the stale one
+          state.byId[serverNote.id] = serverNote;
+        } else if (previousNote) {
+          state.byId[previousNote.id] = previousNote;
+        }
+        state.error = action.payload.error;
+      })
       // Handle deleteNoteAsync - restore on error
       .addCase(deleteNoteAsync.fulfilled, () => {
         // Optimistic delete already handled, nothing to do here
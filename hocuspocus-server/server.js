@@ -1,10 +1,14 @@
 import { Server } from "@hocuspocus/server";
+import { TiptapTransformer } from "@hocuspocus/transformer";
+import { generateHTML } from "@tiptap/html";
+import StarterKit from "@tiptap/starter-kit";
 import axios from "axios";
 import axiosRetry from "axios-retry";
 import dotenv from "dotenv";
 import pino from "pino";
 import { createServer } from "http";
-import { randomUUID } from "crypto";
+import * as Y from "yjs";
+import { createHash, createHmac, randomUUID, timingSafeEqual } from "crypto";
 
 dotenv.config();
 
@@ -22,6 +26,15 @@ const SHUTDOWN_TIMEOUT_MS = parseInt(
   process.env.SHUTDOWN_TIMEOUT_MS || "30000",
   10
 );
+const COLLABORATION_GRANT_SECRET = process.env.COLLABORATION_GRANT_SECRET || "";
+const VERIFY_BATCH_WINDOW_MS = parseInt(
+  process.env.VERIFY_BATCH_WINDOW_MS || "15",
+  10
+);
+const VERIFY_BATCH_MAX = parseInt(process.env.VERIFY_BATCH_MAX || "100", 10);
+const GRANT_CACHE_MAX = 10000;
+const COLLABORATION_SERVICE_KEY = process.env.COLLABORATION_SERVICE_KEY || "";
+const PERSISTENCE_ENABLED = COLLABORATION_SERVICE_KEY.length > 0;
 
 // Validate configuration
 function validateConfig() {
@@ -91,6 +104,11 @@ const metrics = {
   authSuccesses: 0,
   authFailures: 0,
   backendErrors: 0,
+  localGrantHits: 0,
+  verifyBatches: 0,
+  documentUpdatesStored: 0,
+  documentBytesStored: 0,
+  documentSnapshots: 0,
   startTime: Date.now(),
   connectionsByDocument: new Map(),
 
@@ -124,6 +142,11 @@ const metrics = {
       authSuccesses: this.authSuccesses,
       authFailures: this.authFailures,
       backendErrors: this.backendErrors,
+      localGrantHits: this.localGrantHits,
+      verifyBatches: this.verifyBatches,
+      documentUpdatesStored: this.documentUpdatesStored,
+      documentBytesStored: this.documentBytesStored,
+      documentSnapshots: this.documentSnapshots,
       uptimeSeconds: Math.floor((Date.now() - this.startTime) / 1000),
       activeDocuments: this.connectionsByDocument.size,
     };
@@ -191,6 +214,252 @@ function sanitizeDocumentName(documentName) {
   return documentName.replace("note-", "");
 }
 
+// ============================================================================
+// COLLABORATION GRANTS & BATCHED VERIFICATION
+// ============================================================================
+
+// Grants returned by the backend, keyed by token hash + note ID.
+// A reconnect with the same token is verified locally until the grant expires.
+const grantCache = new Map();
+
+function grantCacheKey(token, noteId) {
+  return `${createHash("sha256").update(token).digest("hex")}:${noteId}`;
+}
+
+function decodeSegment(segment) {
+  return JSON.parse(Buffer.from(segment, "base64url").toString("utf8"));
+}
+
+// Verify an HS256 grant signed by the backend with COLLABORATION_GRANT_SECRET
+function verifyGrantLocally(grant, noteId) {
+  if (!COLLABORATION_GRANT_SECRET || !grant || typeof grant !== "string") {
+    return null;
+  }
+
+  const parts = grant.split(".");
+  if (parts.length !== 3) {
+    return null;
+  }
+
+  const expected = Buffer.from(
+    createHmac("sha256", COLLABORATION_GRANT_SECRET)
+      .update(`${parts[0]}.${parts[1]}`)
+      .digest("base64url")
+  );
+  const actual = Buffer.from(parts[2]);
+  if (expected.length !== actual.length || !timingSafeEqual(expected, actual)) {
+    return null;
+  }
+
+  let header;
+  let payload;
+  try {
+    header = decodeSegment(parts[0]);
+    payload = decodeSegment(parts[1]);
+  } catch {
+    return null;
+  }
+
+  if (
+    header.alg !== "HS256" ||
+    payload.nid !== noteId ||
+    typeof payload.exp !== "number" ||
+    payload.exp * 1000 <= Date.now()
+  ) {
+    return null;
+  }
+
+  return { allowed: true, email: payload.sub, username: payload.name };
+}
+
+function cacheGrant(token, noteId, result) {
+  if (!result.grant) {
+    return;
+  }
+  if (grantCache.size >= GRANT_CACHE_MAX) {
+    // Drop the oldest entry (Map preserves insertion order)
+    grantCache.delete(grantCache.keys().next().value);
+  }
+  grantCache.set(grantCacheKey(token, noteId), result.grant);
+}
+
+function pruneGrantCache() {
+  const now = Date.now();
+  for (const [key, grant] of grantCache) {
+    try {
+      const payload = decodeSegment(grant.split(".")[1]);
+      if (payload.exp * 1000 <= now) {
+        grantCache.delete(key);
+      }
+    } catch {
+      grantCache.delete(key);
+    }
+  }
+}
+
+const grantPruneTimer = setInterval(pruneGrantCache, 60000);
+grantPruneTimer.unref();
+
+// Pending verifications are coalesced into one backend call per batch window
+let pendingVerifications = [];
+let verifyBatchTimer = null;
+
+async function flushVerificationBatch() {
+  const batch = pendingVerifications;
+  pendingVerifications = [];
+  verifyBatchTimer = null;
+
+  if (batch.length === 0) {
+    return;
+  }
+
+  metrics.verifyBatches++;
+
+  try {
+    const response = await httpClient.post(
+      `${BACKEND_URL}/api/notes/collaboration/verify-batch`,
+      {
+        items: batch.map(({ token, noteId }) => ({ token, noteId })),
+      }
+    );
+
+    const results = response?.data?.results;
+    if (!Array.isArray(results) || results.length !== batch.length) {
+      const error = new Error("Invalid batch verification response");
+      error.invalidResponse = true;
+      batch.forEach(({ reject }) => reject(error));
+      return;
+    }
+
+    batch.forEach(({ token, noteId, resolve }, index) => {
+      const result = results[index];
+      if (result?.allowed) {
+        cacheGrant(token, noteId, result);
+      }
+      resolve(result);
+    });
+  } catch (error) {
+    batch.forEach(({ reject }) => reject(error));
+  }
+}
+
+// Resolve access for (token, noteId): local grant first, then the batched backend call
+function verifyAccess(token, noteId) {
+  const cachedGrant = grantCache.get(grantCacheKey(token, noteId));
+  const local = verifyGrantLocally(cachedGrant, noteId);
+  if (local) {
+    metrics.localGrantHits++;
+    return Promise.resolve(local);
+  }
+
+  return new Promise((resolve, reject) => {
+    pendingVerifications.push({ token, noteId, resolve, reject });
+
+    if (pendingVerifications.length >= VERIFY_BATCH_MAX) {
+      clearTimeout(verifyBatchTimer);
+      flushVerificationBatch();
+    } else if (!verifyBatchTimer) {
+      verifyBatchTimer = setTimeout(flushVerificationBatch, VERIFY_BATCH_WINDOW_MS);
+    }
+  });
+}
+
+// ============================================================================
+// DOCUMENT PERSISTENCE
+// ============================================================================
+
+// State vector of what has already been persisted, per loaded document.
+// Each store sends only the delta since this vector.
+const persistedStateVectors = new Map();
+
+const documentsUrl = (noteId) =>
+  `${BACKEND_URL}/api/notes/collaboration/documents/${noteId}`;
+
+const persistenceHeaders = {
+  "X-Collaboration-Key": COLLABORATION_SERVICE_KEY,
+  "Content-Type": "application/octet-stream",
+};
+
+// Schema of the editor's document, for rendering the note content
+const EDITOR_EXTENSIONS = [StarterKit];
+// Y.XmlFragment the TipTap Collaboration extension edits
+const EDITOR_FIELD = "default";
+
+// Split the backend's length-prefixed frames (4-byte big-endian length + payload)
+function readFrames(buffer) {
+  const frames = [];
+  let offset = 0;
+  while (offset + 4 <= buffer.length) {
+    const length = buffer.readUInt32BE(offset);
+    offset += 4;
+    frames.push(new Uint8Array(buffer.subarray(offset, offset + length)));
+    offset += length;
+  }
+  return frames;
+}
+
+async function loadPersistedDocument(noteId, document) {
+  const response = await httpClient.get(documentsUrl(noteId), {
+    headers: persistenceHeaders,
+    responseType: "arraybuffer",
+    validateStatus: (status) => status === 200 || status === 204,
+  });
+
+  if (response.status === 204) {
+    return 0;
+  }
+
+  const frames = readFrames(Buffer.from(response.data));
+  if (frames.length > 0) {
+    Y.applyUpdate(document, Y.mergeUpdates(frames));
+  }
+  return frames.length;
+}
+
+async function persistDocumentDelta(documentName, noteId, document) {
+  const stateVector = Y.encodeStateVector(document);
+  const previous = persistedStateVectors.get(documentName);
+  const update = previous
+    ? Y.encodeStateAsUpdate(document, previous)
+    : Y.encodeStateAsUpdate(document);
+
+  // An empty update encodes to two zero bytes
+  if (update.length <= 2) {
+    return null;
+  }
+
+  const response = await httpClient.post(
+    `${documentsUrl(noteId)}/updates`,
+    Buffer.from(update),
+    { headers: persistenceHeaders }
+  );
+
+  persistedStateVectors.set(documentName, stateVector);
+  metrics.documentUpdatesStored++;
+  metrics.documentBytesStored += update.length;
+
+  const { sequence, compactionRequested } = response.data || {};
+  if (compactionRequested) {
+    await httpClient.put(
+      `${documentsUrl(noteId)}/snapshot`,
+      Buffer.from(Y.encodeStateAsUpdate(document)),
+      { headers: persistenceHeaders, params: { through: sequence } }
+    );
+    metrics.documentSnapshots++;
+  }
+
+  // Editors no longer save content themselves, so the rendered document is written once here
+  const html = generateHTML(
+    TiptapTransformer.fromYdoc(document, EDITOR_FIELD),
+    EDITOR_EXTENSIONS
+  );
+  await httpClient.put(`${documentsUrl(noteId)}/content`, html, {
+    headers: { ...persistenceHeaders, "Content-Type": "text/html" },
+  });
+
+  return { bytes: update.length, sequence, compacted: !!compactionRequested };
+}
+
 // ============================================================================
 // BACKEND CONNECTIVITY CHECK
 // ============================================================================
@@ -275,6 +544,13 @@ const server = Server.configure({
     }
   },
 
+  // Tell the editor whether this server persists the document, in which case it stops autosaving content
+  async connected(data) {
+    data.connectionInstance?.sendStateless(
+      JSON.stringify({ persistence: PERSISTENCE_ENABLED })
+    );
+  },
+
   async onDisconnect(data) {
     const { documentName, socketId, context } = data;
     const requestId = context?.requestId || randomUUID();
@@ -308,7 +584,7 @@ const server = Server.configure({
   },
 
   async onLoadDocument(data) {
-    const { documentName } = data;
+    const { documentName, document } = data;
     const requestId = randomUUID();
 
     try {
@@ -320,9 +596,26 @@ const server = Server.configure({
         "Loading document"
       );
 
-      // Return null to start with empty Yjs document
-      // Frontend handles initial content loading from database
-      return null;
+      if (!PERSISTENCE_ENABLED) {
+        // Start with empty Yjs document
+        // Frontend handles initial content loading from database
+        return null;
+      }
+
+      const noteId = sanitizeDocumentName(documentName);
+      const frames = await loadPersistedDocument(noteId, document);
+      persistedStateVectors.set(documentName, Y.encodeStateVector(document));
+
+      logger.info(
+        {
+          requestId,
+          documentName,
+          frames,
+        },
+        "Loaded persisted document"
+      );
+
+      return document;
     } catch (error) {
       logger.error(
         {
@@ -339,17 +632,34 @@ const server = Server.configure({
   },
 
   async onStoreDocument(data) {
-    const { documentName } = data;
+    const { documentName, document } = data;
     const requestId = randomUUID();
 
     try {
-      logger.info(
-        {
-          requestId,
-          documentName,
-        },
-        "Document updated (persistence handled by frontend autosave)"
-      );
+      if (!PERSISTENCE_ENABLED) {
+        logger.info(
+          {
+            requestId,
+            documentName,
+          },
+          "Document updated (persistence handled by frontend autosave)"
+        );
+        return;
+      }
+
+      const noteId = sanitizeDocumentName(documentName);
+      const stored = await persistDocumentDelta(documentName, noteId, document);
+
+      if (stored) {
+        logger.info(
+          {
+            requestId,
+            documentName,
+            ...stored,
+          },
+          "Persisted document update"
+        );
+      }
     } catch (error) {
       logger.error(
         {
@@ -363,6 +673,10 @@ const server = Server.configure({
     }
   },
 
+  async afterUnloadDocument(data) {
+    persistedStateVectors.delete(data.documentName);
+  },
+
   async onAuthenticate(data) {
     const { requestParameters, documentName } = data;
     const requestId = randomUUID();
@@ -446,17 +760,9 @@ const server = Server.configure({
         "Verifying authentication with backend"
       );
 
-      let response;
+      let result;
       try {
-        response = await httpClient.post(
-          `${BACKEND_URL}/api/notes/collaboration/verify`,
-          { noteId },
-          {
-            headers: {
-              Authorization: `Bearer ${token}`,
-            },
-          }
-        );
+        result = await verifyAccess(token, noteId);
       } catch (error) {
         const duration = Date.now() - startTime;
 
@@ -520,6 +826,18 @@ const server = Server.configure({
           }
         }
 
+        if (error.invalidResponse) {
+          logger.error(
+            {
+              requestId,
+              noteId,
+            },
+            "Backend returned invalid batch response"
+          );
+          metrics.backendErrors++;
+          throw new Error("BACKEND_INVALID_RESPONSE");
+        }
+
         // Unknown error
         logger.error(
           {
@@ -535,7 +853,7 @@ const server = Server.configure({
       }
 
       // ========== Response Validation ==========
-      if (!response || !response.data) {
+      if (!result) {
         logger.error(
           {
             requestId,
@@ -547,14 +865,14 @@ const server = Server.configure({
         throw new Error("BACKEND_INVALID_RESPONSE");
       }
 
-      const { allowed, email, username } = response.data;
+      const { allowed, email, username } = result;
 
       if (typeof allowed !== "boolean") {
         logger.error(
           {
             requestId,
             noteId,
-            responseData: response.data,
+            responseData: result,
           },
           "Backend returned invalid response format"
         );
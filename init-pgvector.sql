@@ -21,6 +21,10 @@ WITH (lists = 100);
 CREATE INDEX IF NOT EXISTS note_embeddings_note_id_idx
 ON note_embeddings (note_id);
 
+-- Create index on content_hash so identical content can reuse an existing embedding
+CREATE INDEX IF NOT EXISTS note_embeddings_content_hash_idx
+ON note_embeddings (content_hash);
+
 -- Create function to update updated_at timestamp
 CREATE OR REPLACE FUNCTION update_updated_at_column()
 RETURNS TRIGGER AS $$
@@ -0,0 +1,125 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.entity.NoteSearchText;
+import com.dharmikharkhani.notes.repository.KeywordSearchRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Offline relevance benchmark for keyword search: nDCG@10 of the production scoring over the
+ * {@link DemoNotesContent} notes, for a fixed set of judged queries.
+ *
+ * The notes go into a scratch table with the same search columns and full-text indexes as the note table,
+ * which is dropped afterwards. Point it at a development database:
+ *
+ *   mvn -P jmh compile exec:exec -Djmh.main=com.dharmikharkhani.notes.service.KeywordRelevanceBenchmark \
+ *       -Djmh.args="jdbc:postgresql://localhost:5432/notesapp user password"
+ */
+public class KeywordRelevanceBenchmark {
+
+    private static final String TABLE = "keyword_eval_note";
+    private static final int K = 10;
+
+    private record Doc(String title, String content, String... tags) {
+    }
+
+    private record Judged(String query, Map<String, Integer> grades) {
+    }
+
+    private static final List<Doc> DOCS = List.of(
+            new Doc("Design System - Color Palette", DemoNotesContent.DESIGNER_COLOR_PALETTE, "design-system", "colors"),
+            new Doc("UI Mockups - Mobile Dashboard", DemoNotesContent.DESIGNER_UI_MOCKUPS, "wireframes", "mobile"),
+            new Doc("Typography Guidelines", DemoNotesContent.DESIGNER_TYPOGRAPHY, "typography", "design-system"),
+            new Doc("User Research Findings", DemoNotesContent.DESIGNER_USER_RESEARCH, "user-research", "usability"),
+            new Doc("Icon Library", DemoNotesContent.DESIGNER_ICON_LIBRARY, "icons", "design-system"),
+            new Doc("Blog Post Draft: Getting Started with Notes", DemoNotesContent.WRITER_BLOG_POST, "blog-draft", "content", "seo"),
+            new Doc("Content Calendar Q1 2025", DemoNotesContent.WRITER_CONTENT_CALENDAR, "content-calendar", "planning"),
+            new Doc("SEO Keywords Research", DemoNotesContent.WRITER_SEO_KEYWORDS, "seo", "keywords"),
+            new Doc("Social Media Post Ideas", DemoNotesContent.WRITER_SOCIAL_MEDIA, "social-media", "content"),
+            new Doc("Email Newsletter Draft", DemoNotesContent.WRITER_EMAIL_NEWSLETTER, "newsletter", "email"),
+            new Doc("Computer Science 101 - Lecture Notes", DemoNotesContent.STUDENT_LECTURE_NOTES, "cs101", "algorithms", "lecture"),
+            new Doc("Study Guide: Final Exam", DemoNotesContent.STUDENT_STUDY_GUIDE, "study-guide", "exam"),
+            new Doc("Project Ideas - Spring Semester", DemoNotesContent.STUDENT_PROJECT_IDEAS, "projects", "ideas"),
+            new Doc("Career Notes - Internship Prep", DemoNotesContent.STUDENT_CAREER_NOTES, "career", "internships"),
+            new Doc("Reading List - Winter Break", DemoNotesContent.STUDENT_READING_LIST, "reading", "books"));
+
+    // Grades: 3 the note is about it, 2 substantially covers it, 1 mentions it
+    private static final List<Judged> QUERIES = List.of(
+            new Judged("color palette", Map.of("Design System - Color Palette", 3)),
+            new Judged("design system", Map.of("Design System - Color Palette", 3, "Typography Guidelines", 3, "Icon Library", 3)),
+            new Judged("font", Map.of("Typography Guidelines", 3)),
+            new Judged("usability testing", Map.of("User Research Findings", 3, "Icon Library", 1)),
+            new Judged("seo keywords", Map.of("SEO Keywords Research", 3, "Blog Post Draft: Getting Started with Notes", 2)),
+            new Judged("newsletter", Map.of("Email Newsletter Draft", 3)),
+            new Judged("mobile app launch", Map.of("Content Calendar Q1 2025", 3, "Email Newsletter Draft", 1,
+                    "UI Mockups - Mobile Dashboard", 1)),
+            new Judged("final exam", Map.of("Study Guide: Final Exam", 3, "Computer Science 101 - Lecture Notes", 1)),
+            new Judged("algorithms", Map.of("Computer Science 101 - Lecture Notes", 3, "Study Guide: Final Exam", 2)),
+            new Judged("internship", Map.of("Career Notes - Internship Prep", 3)),
+            new Judged("books", Map.of("Reading List - Winter Break", 3)));
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: KeywordRelevanceBenchmark <jdbc-url> <user> <password>");
+            System.exit(2);
+        }
+        String url = args[0];
+        boolean mySql = url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:");
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(url, args[1], args[2]));
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbc);
+
+        jdbc.execute("DROP TABLE IF EXISTS " + TABLE);
+        jdbc.execute("CREATE TABLE " + TABLE + " (id " + (mySql ? "BINARY(16)" : "uuid")
+                + " PRIMARY KEY, owner_id BIGINT NOT NULL, title VARCHAR(255), search_tags TEXT, search_body TEXT)");
+        try {
+            KeywordSearchRepository.ensureIndexes(jdbc, mySql, TABLE);
+            Map<UUID, String> titles = new HashMap<>();
+            for (Doc doc : DOCS) {
+                UUID id = UUID.nameUUIDFromBytes(doc.title().getBytes(StandardCharsets.UTF_8));
+                titles.put(id, doc.title());
+                jdbc.update("INSERT INTO " + TABLE + " (id, owner_id, title, search_tags, search_body) VALUES ("
+                                + (mySql ? "UUID_TO_BIN(?)" : "CAST(? AS uuid)") + ", 1, ?, ?, ?)",
+                        id.toString(), doc.title(), NoteSearchText.tags(List.of(doc.tags())), NoteSearchText.body(doc.content()));
+            }
+
+            double sum = 0;
+            for (Judged judged : QUERIES) {
+                MapSqlParameterSource params = new MapSqlParameterSource()
+                        .addValue("query", KeywordSearchRepository.queryText(mySql, KeywordIndexService.tokenize(judged.query())))
+                        .addValue("userId", 1L)
+                        .addValue("limit", K);
+                List<String> ranked = KeywordSearchRepository.search(named, mySql, TABLE, "n.owner_id = :userId", params)
+                        .stream().map(hit -> titles.get(hit.noteId())).toList();
+                double ndcg = ndcg(ranked, judged.grades());
+                sum += ndcg;
+                System.out.printf("%-20s nDCG@%d = %.3f  %s%n", judged.query(), K, ndcg, ranked);
+            }
+            System.out.printf("mean nDCG@%d over %d queries = %.3f%n", K, QUERIES.size(), sum / QUERIES.size());
+        } finally {
+            jdbc.execute("DROP TABLE IF EXISTS " + TABLE);
+        }
+    }
+
+    private static double ndcg(List<String> ranked, Map<String, Integer> grades) {
+        double dcg = 0;
+        for (int i = 0; i < Math.min(K, ranked.size()); i++) {
+            dcg += gain(grades.getOrDefault(ranked.get(i), 0), i);
+        }
+        List<Integer> ideal = new ArrayList<>(grades.values());
+        ideal.sort(Comparator.reverseOrder());
+        double idcg = 0;
+        for (int i = 0; i < Math.min(K, ideal.size()); i++) {
+            idcg += gain(ideal.get(i), i);
+        }
+        return idcg == 0 ? 0 : dcg / idcg;
+    }
+
+    private static double gain(int grade, int position) {
+        return (Math.pow(2, grade) - 1) / (Math.log(position + 2) / Math.log(2));
+    }
+}
@@ -0,0 +1,48 @@
+package com.dharmikharkhani.notes.auth.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Dedicated pool for bcrypt work (login, registration, password reset).
+ * Bounded in threads and queue depth so a login burst uses at most a few cores and never the servlet threads;
+ * once the queue is full further requests are rejected and answered with 503.
+ * What follows a hash (user lookups and saves, issuing the token) runs on a separate pool, so bcrypt threads
+ * only ever hash.
+ */
+@Configuration
+public class PasswordHashingExecutorConfig {
+
+    @Bean(name = "passwordHashingExecutor")
+    public ThreadPoolTaskExecutor passwordHashingExecutor(
+            @Value("${app.auth.hashing.threads:2}") int threads,
+            @Value("${app.auth.hashing.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("bcrypt-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "passwordCompletionExecutor")
+    public ThreadPoolTaskExecutor passwordCompletionExecutor(
+            @Value("${app.auth.completion.threads:4}") int threads,
+            @Value("${app.auth.completion.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("auth-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
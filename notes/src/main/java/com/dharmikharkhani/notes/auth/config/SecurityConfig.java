@@ -1,6 +1,7 @@
 package com.dharmikharkhani.notes.auth.config;
 
 import com.dharmikharkhani.notes.auth.security.StatelessAuthorizationRequestRepository;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.*;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -79,8 +80,10 @@ public class SecurityConfig {
             .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authenticationProvider(authenticationProvider())
             .authorizeHttpRequests(auth -> auth
-                    .requestMatchers("/api/auth/login", "/api/auth/register", "/api/auth/forgot-password", "/api/auth/reset-password", "/api/auth/validate-reset-token", "/login/oauth2/**", "/oauth2/**", "/oauth2/authorization/**").permitAll()
-                    .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                    // Async dispatches continue streaming responses (SSE) whose request was already authorized
+                    .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+                    .requestMatchers("/api/auth/login", "/api/auth/register", "/api/auth/forgot-password", "/api/auth/reset-password", "/api/auth/validate-reset-token", "/api/notes/collaboration/verify-batch", "/api/notes/collaboration/documents/**", "/login/oauth2/**", "/oauth2/**", "/oauth2/authorization/**").permitAll()
+                    .requestMatchers("/api/admin/**", "/actuator/metrics/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
             .oauth2Login(oauth2 -> oauth2
@@ -1,44 +1,49 @@
 package com.dharmikharkhani.notes.auth.controller;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpHeaders;
 import com.dharmikharkhani.notes.auth.model.User;
 import com.dharmikharkhani.notes.auth.repository.UserRepository;
 import com.dharmikharkhani.notes.auth.security.JwtUtil;
+import com.dharmikharkhani.notes.auth.service.AuthRateLimiter;
+import com.dharmikharkhani.notes.auth.service.PasswordHashingService;
 import com.dharmikharkhani.notes.dto.UserResponseDTO;
 import com.dharmikharkhani.notes.service.NoteService;
 import com.dharmikharkhani.notes.service.EmailService;
 import com.dharmikharkhani.notes.service.TokenService;
-import java.io.IOException;
 
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
 		private final UserRepository userRepo;
-	    private final BCryptPasswordEncoder passwordEncoder;
-	    private final AuthenticationManager authenticationManager;
+	    private final PasswordHashingService passwordHashingService;
+	    private final AuthRateLimiter authRateLimiter;
 	    private final JwtUtil jwtUtil;
 	    private final NoteService noteService;
 	    private final EmailService emailService;
 	    private final TokenService tokenService;
+	    private final Executor completionExecutor;
 
 	    @Value("${app.cookie.secure}")
 	    private boolean cookieSecure;
@@ -46,61 +51,78 @@ public class AuthController {
 	    @Value("${app.cookie.same-site}")
 	    private String cookieSameSite;
 
-	    public AuthController(UserRepository userRepo, BCryptPasswordEncoder passwordEncoder,
-                              AuthenticationManager authenticationManager, JwtUtil jwtUtil,
-                              NoteService noteService, EmailService emailService, TokenService tokenService) {
+	    public AuthController(UserRepository userRepo, PasswordHashingService passwordHashingService,
+                              AuthRateLimiter authRateLimiter, JwtUtil jwtUtil,
+                              NoteService noteService, EmailService emailService, TokenService tokenService,
+                              @Qualifier("passwordCompletionExecutor") Executor completionExecutor) {
 	        this.userRepo = userRepo;
-	        this.passwordEncoder = passwordEncoder;
-	        this.authenticationManager = authenticationManager;
+	        this.passwordHashingService = passwordHashingService;
+	        this.authRateLimiter = authRateLimiter;
 	        this.jwtUtil = jwtUtil;
 	        this.noteService = noteService;
 	        this.emailService = emailService;
 	        this.tokenService = tokenService;
+	        this.completionExecutor = completionExecutor;
         }
 
 	    @PostMapping("/register")
-	    public ResponseEntity<?> register(@RequestBody Map<String, String> body) {
+	    public CompletableFuture<ResponseEntity<?>> register(@RequestBody Map<String, String> body, HttpServletRequest request) {
 	        String email = body.get("email");
 	        String password = body.get("password");
 	        String name = body.get("name");
-	        if (email == null || password == null || name == null) return ResponseEntity.badRequest().body("email, password, and name required");
+	        if (email == null || password == null || name == null) return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("email, password, and name required"));
+
+	        AuthRateLimiter.Decision decision = authRateLimiter.tryAcquire(request, null);
+	        if (!decision.allowed()) {
+	            return CompletableFuture.completedFuture(tooManyAttempts(decision));
+	        }
 
 	        // Check if user already exists
 	        User existingUser = userRepo.findByEmail(email).orElse(null);
 
 	        if (existingUser != null) {
 	            // If user exists, reject registration
-                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Email already registered."));
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Email already registered.")));
 	        }
 
-	        // Create new user
-	        User u = new User();
-	        u.setEmail(email);
-            u.setName(name);
-	        u.setPassword(passwordEncoder.encode(password));
-	        u.setRoles("ROLE_user");
-            u.setProvider("JWT");
-            u.setEmailVerified(false);
-            u.setAccountApproved(false);  // Requires admin approval
-            u.setAccountRejected(false);
-
-	        User savedUser = userRepo.save(u);
-
-	        // Create welcome note for new user
-	        noteService.createWelcomeNote(savedUser);
-
-	        return ResponseEntity.ok(Map.of("msg", "Account created. Pending admin approval.", "success", true));
+	        // Hash on the bcrypt pool and save on the completion pool; the request thread is released meanwhile
+	        return passwordHashingService.encode(password).<ResponseEntity<?>>thenApplyAsync(hash -> {
+	            // Create new user
+	            User u = new User();
+	            u.setEmail(email);
+	            u.setName(name);
+	            u.setPassword(hash);
+	            u.setRoles("ROLE_user");
+	            u.setProvider("JWT");
+	            u.setEmailVerified(false);
+	            u.setAccountApproved(false);  // Requires admin approval
+	            u.setAccountRejected(false);
+
+	            User savedUser = userRepo.save(u);
+
+	            // Create welcome note for new user
+	            noteService.createWelcomeNote(savedUser);
+
+	            return ResponseEntity.ok(Map.of("msg", "Account created. Pending admin approval.", "success", true));
+	        }, completionExecutor).exceptionally(AuthController::hashingFailed);
 	    }
 
 	    @PostMapping("/login")
-	    public ResponseEntity<?> login(@RequestBody Map<String, String> body, HttpServletResponse response) {
+	    public CompletableFuture<ResponseEntity<?>> login(@RequestBody Map<String, String> body, HttpServletRequest request) {
 	        String email = body.get("email");
 	        String password = body.get("password");
-	        try {
-	            authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(email, password));
-	        } catch (BadCredentialsException ex) {
-	            return ResponseEntity.status(401).body(Map.of("error", "invalid credentials"));
+	        AuthRateLimiter.Decision decision = authRateLimiter.tryAcquire(request, email);
+	        if (!decision.allowed()) {
+	            return CompletableFuture.completedFuture(tooManyAttempts(decision));
 	        }
+	        return passwordHashingService.authenticate(email, password)
+	                .<ResponseEntity<?>>thenApplyAsync(authentication -> loggedIn(email), completionExecutor)
+	                .exceptionally(error -> unwrap(error) instanceof BadCredentialsException
+	                        ? ResponseEntity.status(401).body(Map.of("error", "invalid credentials"))
+	                        : hashingFailed(error));
+	    }
+
+	    private ResponseEntity<?> loggedIn(String email) {
 	        User u = userRepo.findByEmail(email).orElseThrow();
 
 	        // Check if account is rejected
@@ -120,8 +142,30 @@ public class AuthController {
                     .sameSite(cookieSameSite)
                     .secure(cookieSecure)
                     .build();
-			response.setHeader(HttpHeaders.SET_COOKIE, cookie.toString());
-	        return ResponseEntity.ok(Map.of("status", "success"));
+	        return ResponseEntity.ok().header(HttpHeaders.SET_COOKIE, cookie.toString()).body(Map.of("status", "success"));
+	    }
+
+	    private static ResponseEntity<?> tooManyAttempts(AuthRateLimiter.Decision decision) {
+	        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+	                .header(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()))
+	                .body(Map.of("error", "too many attempts"));
+	    }
+
+	    /**
+	     * A full bcrypt queue becomes 503; anything else is rethrown as before
+	     */
+	    private static ResponseEntity<?> hashingFailed(Throwable error) {
+	        Throwable cause = unwrap(error);
+	        if (cause instanceof RejectedExecutionException) {
+	            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+	                    .header(HttpHeaders.RETRY_AFTER, "1")
+	                    .body(Map.of("error", "server busy, please retry"));
+	        }
+	        throw cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+	    }
+
+	    private static Throwable unwrap(Throwable error) {
+	        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
 	    }
 
 	    @GetMapping("/profile")
@@ -206,12 +250,8 @@ public class AuthController {
             tokenService.setPasswordResetToken(user);
             userRepo.save(user);
 
-            // Send password reset email
-            try {
-                emailService.sendPasswordResetEmail(user, user.getPasswordResetToken());
-            } catch (IOException e) {
-                return ResponseEntity.status(500).body(Map.of("error", "Failed to send password reset email"));
-            }
+            // Queue the password reset email; it is delivered (and retried) in the background
+            emailService.sendPasswordResetEmail(user, user.getPasswordResetToken());
 
             return ResponseEntity.ok(Map.of("msg", "If that email exists, a password reset link has been sent", "success", true));
         }
@@ -241,28 +281,35 @@ public class AuthController {
          * Reset password with token
          */
         @PostMapping("/reset-password")
-        public ResponseEntity<?> resetPassword(@RequestBody Map<String, String> body) {
+        public CompletableFuture<ResponseEntity<?>> resetPassword(@RequestBody Map<String, String> body, HttpServletRequest request) {
             String token = body.get("token");
             String newPassword = body.get("password");
 
             if (token == null || newPassword == null) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Token and password required"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", "Token and password required")));
+            }
+
+            AuthRateLimiter.Decision decision = authRateLimiter.tryAcquire(request, null);
+            if (!decision.allowed()) {
+                return CompletableFuture.completedFuture(tooManyAttempts(decision));
             }
 
             User user = userRepo.findByPasswordResetToken(token).orElse(null);
             if (user == null) {
-                return ResponseEntity.status(400).body(Map.of("error", "Invalid reset token"));
+                return CompletableFuture.completedFuture(ResponseEntity.status(400).body(Map.of("error", "Invalid reset token")));
             }
 
             if (tokenService.isTokenExpired(user.getPasswordResetTokenExpiry())) {
-                return ResponseEntity.status(400).body(Map.of("error", "Reset token has expired"));
+                return CompletableFuture.completedFuture(ResponseEntity.status(400).body(Map.of("error", "Reset token has expired")));
             }
 
             // Update password
-            user.setPassword(passwordEncoder.encode(newPassword));
-            tokenService.clearPasswordResetToken(user);
-            userRepo.save(user);
+            return passwordHashingService.encode(newPassword).<ResponseEntity<?>>thenApplyAsync(hash -> {
+                user.setPassword(hash);
+                tokenService.clearPasswordResetToken(user);
+                userRepo.save(user);
 
-            return ResponseEntity.ok(Map.of("msg", "Password reset successfully", "success", true));
+                return ResponseEntity.ok(Map.of("msg", "Password reset successfully", "success", true));
+            }, completionExecutor).exceptionally(AuthController::hashingFailed);
         }
 }
@@ -0,0 +1,25 @@
+package com.dharmikharkhani.notes.auth.model;
+
+import com.dharmikharkhani.notes.event.UserDeletedEvent;
+import jakarta.persistence.PostRemove;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Entity listener (a Spring bean through Hibernate's bean container) announcing user deletions,
+ * so per-user caches keyed by id or email can drop the user
+ */
+@Component
+public class UserDeletionListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UserDeletionListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostRemove
+    void onRemoved(User user) {
+        eventPublisher.publishEvent(new UserDeletedEvent(user.getId(), user.getEmail()));
+    }
+}
@@ -5,6 +5,8 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface UserRepository extends JpaRepository<User, Long>{
 
@@ -12,6 +14,8 @@ public interface UserRepository extends JpaRepository<User, Long>{
 
 	boolean existsByEmail(String email);
 
+	List<User> findByEmailIn(java.util.Collection<String> emails);
+
 	Optional<User> findByVerificationToken(String token);
 
 	Optional<User> findByPasswordResetToken(String token);
@@ -28,4 +32,8 @@ public interface UserRepository extends JpaRepository<User, Long>{
 
 	List<User> findByIsDemoAccountTrueAndLastActivityAtBefore(java.time.LocalDateTime threshold);
 
+	@Query("SELECT u FROM User u WHERE u.isDemoAccount = true AND u.lastActivityAt < :threshold AND MOD(u.id, :shards) = :shard")
+	List<User> findInactiveDemoAccountsInShard(@Param("threshold") java.time.LocalDateTime threshold,
+											   @Param("shards") int shards, @Param("shard") int shard);
+
 }
@@ -55,4 +55,17 @@ public class JwtUtil {
         return Jwts.parserBuilder().setSigningKey(key).build()
                    .parseClaimsJws(token).getBody().getSubject();
     }
+
+    /**
+     * Validate the token and return its subject in a single parse.
+     * Returns null when the token is invalid or expired.
+     */
+    public String extractEmailIfValid(String token) {
+        try {
+            return Jwts.parserBuilder().setSigningKey(key).build()
+                       .parseClaimsJws(token).getBody().getSubject();
+        } catch (JwtException | IllegalArgumentException ex) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,164 @@
+package com.dharmikharkhani.notes.auth.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Token-bucket rate limits in front of the password endpoints, per client IP and per account.
+ *
+ * The IP limit caps what one client can push into the bcrypt pool; the stricter account limit slows password
+ * guessing against one user from many addresses. Buckets live in memory per instance, in a map bounded to
+ * max-keys entries: at the cap the least recently used bucket makes room once it has refilled, otherwise the
+ * new key shares its scope's overflow bucket until one has.
+ */
+@Service
+public class AuthRateLimiter {
+
+    public enum Scope {
+        IP,
+        ACCOUNT
+    }
+
+    /**
+     * @param retryAfterSeconds when the next attempt would be allowed; 0 if this one is
+     */
+    public record Decision(boolean allowed, long retryAfterSeconds) {
+    }
+
+    private static final Decision ALLOWED = new Decision(true, 0);
+
+    private final MeterRegistry meterRegistry;
+    private final String clientIpHeader;
+    private final int maxKeys;
+    private final Map<Scope, Limit> limits;
+    private final Map<Scope, Bucket> overflow = new EnumMap<>(Scope.class);
+    // Access-ordered, so the eldest entry is the least recently used; guarded by itself
+    private final LinkedHashMap<String, Bucket> buckets = new LinkedHashMap<>(16, 0.75f, true);
+
+    public AuthRateLimiter(MeterRegistry meterRegistry,
+                           @Value("${app.auth.client-ip-header:}") String clientIpHeader,
+                           @Value("${app.auth.rate-limit.max-keys:100000}") int maxKeys,
+                           @Value("${app.auth.rate-limit.ip.capacity:20}") int ipCapacity,
+                           @Value("${app.auth.rate-limit.ip.refill-period:1m}") Duration ipRefillPeriod,
+                           @Value("${app.auth.rate-limit.account.capacity:5}") int accountCapacity,
+                           @Value("${app.auth.rate-limit.account.refill-period:1m}") Duration accountRefillPeriod) {
+        this.meterRegistry = meterRegistry;
+        this.clientIpHeader = clientIpHeader;
+        this.maxKeys = maxKeys;
+        this.limits = Map.of(
+                Scope.IP, new Limit(ipCapacity, ipRefillPeriod),
+                Scope.ACCOUNT, new Limit(accountCapacity, accountRefillPeriod));
+        limits.forEach((scope, limit) -> overflow.put(scope, new Bucket(limit)));
+    }
+
+    /**
+     * Take a token from the client's IP bucket and, if an account is given, from the account's bucket
+     */
+    public Decision tryAcquire(HttpServletRequest request, String account) {
+        Decision decision = tryAcquire(Scope.IP, clientIp(request));
+        if (decision.allowed() && account != null && !account.isBlank()) {
+            decision = tryAcquire(Scope.ACCOUNT, account.trim().toLowerCase(Locale.ROOT));
+        }
+        return decision;
+    }
+
+    private Decision tryAcquire(Scope scope, String key) {
+        Limit limit = limits.get(scope);
+        Bucket bucket = bucketFor(scope, scope + ":" + key, limit);
+        long waitNanos = bucket.take(limit);
+        if (waitNanos == 0) {
+            return ALLOWED;
+        }
+        meterRegistry.counter("notes.auth.rate_limited", "scope", scope.name().toLowerCase(Locale.ROOT)).increment();
+        return new Decision(false, Math.max(1, Duration.ofNanos(waitNanos).toSeconds() + 1));
+    }
+
+    /**
+     * The configured header's last entry (the one added by our own proxy) or the socket address
+     */
+    private String clientIp(HttpServletRequest request) {
+        if (!clientIpHeader.isEmpty()) {
+            String header = request.getHeader(clientIpHeader);
+            if (header != null && !header.isBlank()) {
+                String[] hops = header.split(",");
+                return hops[hops.length - 1].trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private Bucket bucketFor(Scope scope, String bucketKey, Limit limit) {
+        synchronized (buckets) {
+            Bucket bucket = buckets.get(bucketKey);
+            if (bucket != null) {
+                return bucket;
+            }
+            if (buckets.size() >= maxKeys) {
+                Iterator<Map.Entry<String, Bucket>> eldest = buckets.entrySet().iterator();
+                Map.Entry<String, Bucket> entry = eldest.next();
+                if (!entry.getValue().isFull(limitOf(entry.getKey()), System.nanoTime())) {
+                    meterRegistry.counter("notes.auth.rate_limit_overflow", "scope", scope.name().toLowerCase(Locale.ROOT)).increment();
+                    return overflow.get(scope);
+                }
+                eldest.remove();
+            }
+            bucket = new Bucket(limit);
+            buckets.put(bucketKey, bucket);
+            return bucket;
+        }
+    }
+
+    private Limit limitOf(String bucketKey) {
+        return limits.get(Scope.valueOf(bucketKey.substring(0, bucketKey.indexOf(':'))));
+    }
+
+    private record Limit(int capacity, Duration refillPeriod) {
+
+        double tokensPerNano() {
+            return (double) capacity / refillPeriod.toNanos();
+        }
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long refilledAt;
+
+        private Bucket(Limit limit) {
+            this.tokens = limit.capacity();
+            this.refilledAt = System.nanoTime();
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise nanoseconds until one is available
+         */
+        synchronized long take(Limit limit) {
+            refill(limit, System.nanoTime());
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / limit.tokensPerNano());
+        }
+
+        synchronized boolean isFull(Limit limit, long now) {
+            refill(limit, now);
+            return tokens >= limit.capacity();
+        }
+
+        private void refill(Limit limit, long now) {
+            if (now > refilledAt) {
+                tokens = Math.min(limit.capacity(), tokens + (now - refilledAt) * limit.tokensPerNano());
+                refilledAt = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.dharmikharkhani.notes.auth.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing and checking on the bounded bcrypt pool instead of the request thread.
+ *
+ * Futures fail with {@link RejectedExecutionException} when the pool's queue is full. Besides the standard
+ * executor metrics for the pool, {@code notes.auth.hashing.saturation} reports busy threads plus queued work as a
+ * fraction of the pool's total capacity, and {@code notes.auth.hashing} times each operation including its wait.
+ */
+@Service
+public class PasswordHashingService {
+
+    private final ThreadPoolTaskExecutor executor;
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final AuthenticationManager authenticationManager;
+    private final MeterRegistry meterRegistry;
+
+    public PasswordHashingService(@Qualifier("passwordHashingExecutor") ThreadPoolTaskExecutor executor,
+                                  BCryptPasswordEncoder passwordEncoder, AuthenticationManager authenticationManager,
+                                  MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.passwordEncoder = passwordEncoder;
+        this.authenticationManager = authenticationManager;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("notes.auth.hashing.saturation", this, PasswordHashingService::saturation)
+                .description("Busy bcrypt threads plus queued hashing work over total capacity")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<String> encode(String rawPassword) {
+        return run("encode", () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Username/password authentication; the user lookup runs on the pool too, as it is part of the same check
+     */
+    public CompletableFuture<Authentication> authenticate(String email, String password) {
+        return run("authenticate", () ->
+                authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(email, password)));
+    }
+
+    private <T> CompletableFuture<T> run(String operation, Supplier<T> work) {
+        long started = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(work, executor);
+        } catch (RejectedExecutionException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            String outcome = cause == null ? "success"
+                    : cause instanceof RejectedExecutionException ? "rejected"
+                    : "error";
+            meterRegistry.timer("notes.auth.hashing", "operation", operation, "outcome", outcome)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    private double saturation() {
+        ThreadPoolExecutor pool = executor.getThreadPoolExecutor();
+        int queued = pool.getQueue().size();
+        int capacity = pool.getMaximumPoolSize() + queued + pool.getQueue().remainingCapacity();
+        return capacity == 0 ? 0 : (double) (pool.getActiveCount() + queued) / capacity;
+    }
+}
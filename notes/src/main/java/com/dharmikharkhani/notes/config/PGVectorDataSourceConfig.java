@@ -1,11 +1,13 @@
 package com.dharmikharkhani.notes.config;
 
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
@@ -23,21 +25,64 @@ import java.util.Map;
 )
 public class PGVectorDataSourceConfig {
 
-    @Bean(name = "pgvectorDataSource")
-    public DataSource pgvectorDataSource(
+    /**
+     * Pool for embedding writes
+     * Sizes and timeouts bind from pgvector.datasource.write.hikari.*
+     */
+    @Bean(name = "pgvectorWriteDataSource")
+    @ConfigurationProperties(prefix = "pgvector.datasource.write.hikari")
+    public HikariDataSource pgvectorWriteDataSource(
             @Value("${pgvector.datasource.url}") String url,
             @Value("${pgvector.datasource.username}") String username,
             @Value("${pgvector.datasource.password}") String password) {
-        return DataSourceBuilder.create()
-                .url(url)
-                .username(username)
-                .password(password)
-                .build();
+        return pool("pgvector-write", url, username, password);
+    }
+
+    /**
+     * Pool for similarity searches; may point at a replica via pgvector.datasource.read.url
+     * Sizes and timeouts bind from pgvector.datasource.read.hikari.*
+     */
+    @Bean(name = "pgvectorReadDataSource")
+    @ConfigurationProperties(prefix = "pgvector.datasource.read.hikari")
+    public HikariDataSource pgvectorReadDataSource(
+            @Value("${pgvector.datasource.read.url:${pgvector.datasource.url}}") String url,
+            @Value("${pgvector.datasource.username}") String username,
+            @Value("${pgvector.datasource.password}") String password) {
+        return pool("pgvector-read", url, username, password);
+    }
+
+    /**
+     * Routes read-only transactions to the read pool and everything else to the write pool
+     * Connections are fetched lazily, once the transaction's read-only flag is known.
+     */
+    @Bean(name = "pgvectorDataSource")
+    public DataSource pgvectorDataSource(
+            @Qualifier("pgvectorWriteDataSource") DataSource writeDataSource,
+            @Qualifier("pgvectorReadDataSource") DataSource readDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(writeDataSource);
+        dataSource.setReadOnlyDataSource(readDataSource);
+        return dataSource;
+    }
+
+    private static HikariDataSource pool(String name, String url, String username, String password) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        // Server-side prepared statements after a few executions, with a per-connection statement cache
+        dataSource.addDataSourceProperty("prepareThreshold", "3");
+        dataSource.addDataSourceProperty("preparedStatementCacheQueries", "256");
+        dataSource.addDataSourceProperty("preparedStatementCacheSizeMiB", "8");
+        // Send JDBC batches of inserts as multi-row INSERT statements
+        dataSource.addDataSourceProperty("reWriteBatchedInserts", "true");
+        return dataSource;
     }
 
     @Bean(name = "pgvectorEntityManagerFactory")
     public LocalContainerEntityManagerFactoryBean pgvectorEntityManagerFactory(
-            @Qualifier("pgvectorDataSource") DataSource dataSource) {
+            @Qualifier("pgvectorDataSource") DataSource dataSource,
+            @Value("${pgvector.jpa.show-sql:false}") boolean showSql) {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
         em.setDataSource(dataSource);
         em.setPackagesToScan("com.dharmikharkhani.notes.entity.pgvector");
@@ -49,11 +94,13 @@ public class PGVectorDataSourceConfig {
         properties.put("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
         properties.put("hibernate.hbm2ddl.auto", "update"); // Sync schema with entity
         properties.put("hibernate.physical_naming_strategy", "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy");
-        properties.put("hibernate.show_sql", "true");
-        properties.put("hibernate.format_sql", "true");
-        properties.put("hibernate.use_sql_comments", "true");
-        // Fix for PostgreSQL RETURNING clause issue
-        properties.put("hibernate.jdbc.batch_size", "0");
+        // Off by default: statements carry 1536-dimension vector literals
+        properties.put("hibernate.show_sql", String.valueOf(showSql));
+        properties.put("hibernate.format_sql", String.valueOf(showSql));
+        // Embeddings have assigned ids, so inserts batch without needing generated keys back
+        properties.put("hibernate.jdbc.batch_size", "50");
+        properties.put("hibernate.order_inserts", "true");
+        properties.put("hibernate.order_updates", "true");
         em.setJpaPropertyMap(properties);
 
         return em;
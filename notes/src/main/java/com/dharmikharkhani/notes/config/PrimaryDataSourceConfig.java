@@ -1,6 +1,9 @@
 package com.dharmikharkhani.notes.config;
 
+import org.hibernate.cfg.AvailableSettings;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.context.annotation.Bean;
@@ -9,6 +12,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.FilterType;
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.orm.hibernate5.SpringBeanContainer;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
@@ -43,7 +47,9 @@ public class PrimaryDataSourceConfig {
     @Primary
     @Bean(name = "primaryEntityManagerFactory")
     public LocalContainerEntityManagerFactoryBean primaryEntityManagerFactory(
-            @Qualifier("primaryDataSource") DataSource dataSource) {
+            @Qualifier("primaryDataSource") DataSource dataSource,
+            @Value("${spring.jpa.properties.hibernate.dialect:org.hibernate.dialect.MySQLDialect}") String dialect,
+            ConfigurableListableBeanFactory beanFactory) {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
         em.setDataSource(dataSource);
 
@@ -59,12 +65,19 @@ public class PrimaryDataSourceConfig {
         em.setJpaVendorAdapter(vendorAdapter);
 
         Map<String, Object> properties = new HashMap<>();
-        properties.put("hibernate.dialect", "org.hibernate.dialect.MySQLDialect");
+        // MySQL by default; the prod profile runs on PostgreSQL (required for co-located embeddings)
+        properties.put("hibernate.dialect", dialect);
         // Use 'update' to sync schema (will skip NoteEmbedding due to scanning, may log errors but won't fail)
         properties.put("hibernate.hbm2ddl.auto", "update");
         properties.put("hibernate.show-sql", "true");
         // Use snake_case naming strategy to match existing MySQL schema
         properties.put("hibernate.physical_naming_strategy", "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy");
+        // Group inserts and updates into JDBC batches (demo provisioning writes a whole note set at once)
+        properties.put("hibernate.jdbc.batch_size", "50");
+        properties.put("hibernate.order_inserts", "true");
+        properties.put("hibernate.order_updates", "true");
+        // Let entity listeners be Spring beans with injected dependencies
+        properties.put(AvailableSettings.BEAN_CONTAINER, new SpringBeanContainer(beanFactory));
         em.setJpaPropertyMap(properties);
 
         return em;
@@ -0,0 +1,33 @@
+package com.dharmikharkhani.notes.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Dedicated pool for running hybrid search legs concurrently.
+ * Kept separate from the request threads so a slow embedding API cannot exhaust the servlet pool;
+ * when the pool and its queue are full, new legs are rejected and the search degrades to partial results.
+ */
+@Configuration
+public class SearchExecutorConfig {
+
+    @Bean(name = "searchExecutor")
+    public ThreadPoolTaskExecutor searchExecutor(
+            @Value("${app.search.executor.core-size:8}") int coreSize,
+            @Value("${app.search.executor.max-size:32}") int maxSize,
+            @Value("${app.search.executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("search-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,118 @@
+package com.dharmikharkhani.notes.controller;
+
+import com.dharmikharkhani.notes.dto.DocumentAppendResponseDTO;
+import com.dharmikharkhani.notes.exception.ResourceNotFoundException;
+import com.dharmikharkhani.notes.service.NoteDocumentService;
+import com.dharmikharkhani.notes.service.NoteService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.UUID;
+
+/**
+ * Binary Yjs document persistence used by the Hocuspocus server.
+ * Requests are authenticated with the shared collaboration service key rather than a user session,
+ * because the collaboration server persists each document once on behalf of all its editors.
+ * It also writes back the document rendered as HTML, so the note's content follows the document without any
+ * editor saving it.
+ */
+@RestController
+@RequestMapping("/api/notes/collaboration/documents")
+public class CollaborationDocumentController {
+
+    public static final String SERVICE_KEY_HEADER = "X-Collaboration-Key";
+
+    private final NoteDocumentService noteDocumentService;
+    private final NoteService noteService;
+    private final byte[] serviceKey;
+
+    public CollaborationDocumentController(NoteDocumentService noteDocumentService, NoteService noteService,
+                                           @Value("${app.collaboration.service-key:}") String serviceKey) {
+        this.noteDocumentService = noteDocumentService;
+        this.noteService = noteService;
+        this.serviceKey = serviceKey.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @GetMapping(value = "/{noteId}", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> loadDocument(
+            @RequestHeader(value = SERVICE_KEY_HEADER, required = false) String key,
+            @PathVariable UUID noteId) {
+        if (!isAuthorized(key)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        try {
+            byte[] frames = noteDocumentService.loadDocument(noteId);
+            if (frames.length == 0) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.ok(frames);
+        } catch (ResourceNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @PostMapping(value = "/{noteId}/updates", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<DocumentAppendResponseDTO> appendUpdate(
+            @RequestHeader(value = SERVICE_KEY_HEADER, required = false) String key,
+            @PathVariable UUID noteId,
+            @RequestBody byte[] update) {
+        if (!isAuthorized(key)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        try {
+            return ResponseEntity.ok(noteDocumentService.appendUpdate(noteId, update));
+        } catch (ResourceNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @PutMapping(value = "/{noteId}/snapshot", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> storeSnapshot(
+            @RequestHeader(value = SERVICE_KEY_HEADER, required = false) String key,
+            @PathVariable UUID noteId,
+            @RequestParam long through,
+            @RequestBody byte[] snapshot) {
+        if (!isAuthorized(key)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        try {
+            noteDocumentService.storeSnapshot(noteId, snapshot, through);
+            return ResponseEntity.noContent().build();
+        } catch (ResourceNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @PutMapping(value = "/{noteId}/content", consumes = MediaType.TEXT_HTML_VALUE)
+    public ResponseEntity<Void> storeContent(
+            @RequestHeader(value = SERVICE_KEY_HEADER, required = false) String key,
+            @PathVariable UUID noteId,
+            @RequestBody(required = false) String content) {
+        if (!isAuthorized(key)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        try {
+            noteService.storeDocumentContent(noteId, content != null ? content : "");
+            return ResponseEntity.noContent().build();
+        } catch (ResourceNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    private boolean isAuthorized(String key) {
+        // Persistence is disabled until a service key is configured
+        if (serviceKey.length == 0 || key == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(serviceKey, key.getBytes(StandardCharsets.UTF_8));
+    }
+}
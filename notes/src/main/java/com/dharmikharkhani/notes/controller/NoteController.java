@@ -2,25 +2,50 @@ package com.dharmikharkhani.notes.controller;
 
 import com.dharmikharkhani.notes.auth.model.User;
 import com.dharmikharkhani.notes.auth.repository.UserRepository;
+import com.dharmikharkhani.notes.dto.CollaborationBatchVerifyRequestDTO;
+import com.dharmikharkhani.notes.dto.CollaborationBatchVerifyResponseDTO;
+import com.dharmikharkhani.notes.dto.CollaborationGrantDTO;
 import com.dharmikharkhani.notes.dto.CollaborationVerifyRequestDTO;
 import com.dharmikharkhani.notes.dto.CollaborationVerifyResponseDTO;
+import com.dharmikharkhani.notes.dto.NoteContentPatchRequestDTO;
+import com.dharmikharkhani.notes.dto.NoteChangesResponseDTO;
+import com.dharmikharkhani.notes.dto.NoteContentPatchResponseDTO;
+import com.dharmikharkhani.notes.dto.NoteEventDTO;
+import com.dharmikharkhani.notes.dto.NoteGraphDTO;
+import com.dharmikharkhani.notes.dto.NoteQueryRequestDTO;
+import com.dharmikharkhani.notes.dto.NoteQueryResponseDTO;
 import com.dharmikharkhani.notes.dto.NoteRequestDTO;
 import com.dharmikharkhani.notes.dto.NoteResponseDTO;
+import com.dharmikharkhani.notes.dto.NoteSuggestionDTO;
+import com.dharmikharkhani.notes.dto.RelatedNoteDTO;
 import com.dharmikharkhani.notes.dto.ShareNoteRequestDTO;
 import com.dharmikharkhani.notes.entity.Note;
 import com.dharmikharkhani.notes.repository.NoteRepository;
 import com.dharmikharkhani.notes.service.AuthorizationService;
+import com.dharmikharkhani.notes.service.CollaborationGrantService;
 import com.dharmikharkhani.notes.service.HybridSearchService;
+import com.dharmikharkhani.notes.service.NoteChangeLogService;
+import com.dharmikharkhani.notes.service.NoteEventBus;
+import com.dharmikharkhani.notes.service.NoteGraphService;
+import com.dharmikharkhani.notes.service.NoteQueryService;
 import com.dharmikharkhani.notes.service.NoteService;
+import com.dharmikharkhani.notes.service.NoteSuggestionService;
 import com.dharmikharkhani.notes.service.PGVectorSearchService;
+import com.dharmikharkhani.notes.service.RelatedNotesService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
@@ -34,14 +59,28 @@ public class NoteController {
     private final AuthorizationService authorizationService;
     private final HybridSearchService hybridSearchService;
     private final PGVectorSearchService pgVectorSearchService;
-
-    public NoteController(NoteRepository noteRepository, UserRepository userRepository, NoteService noteService, AuthorizationService authorizationService, HybridSearchService hybridSearchService, PGVectorSearchService pgVectorSearchService) {
+    private final CollaborationGrantService collaborationGrantService;
+    private final NoteChangeLogService noteChangeLogService;
+    private final NoteEventBus noteEventBus;
+    private final NoteQueryService noteQueryService;
+    private final NoteSuggestionService noteSuggestionService;
+    private final RelatedNotesService relatedNotesService;
+    private final NoteGraphService noteGraphService;
+
+    public NoteController(NoteRepository noteRepository, UserRepository userRepository, NoteService noteService, AuthorizationService authorizationService, HybridSearchService hybridSearchService, PGVectorSearchService pgVectorSearchService, CollaborationGrantService collaborationGrantService, NoteChangeLogService noteChangeLogService, NoteEventBus noteEventBus, NoteQueryService noteQueryService, NoteSuggestionService noteSuggestionService, RelatedNotesService relatedNotesService, NoteGraphService noteGraphService) {
         this.noteRepository = noteRepository;
         this.userRepository = userRepository;
         this.noteService = noteService;
         this.authorizationService = authorizationService;
         this.hybridSearchService = hybridSearchService;
         this.pgVectorSearchService = pgVectorSearchService;
+        this.collaborationGrantService = collaborationGrantService;
+        this.noteChangeLogService = noteChangeLogService;
+        this.noteEventBus = noteEventBus;
+        this.noteQueryService = noteQueryService;
+        this.noteSuggestionService = noteSuggestionService;
+        this.relatedNotesService = relatedNotesService;
+        this.noteGraphService = noteGraphService;
     }
 
     @GetMapping("/notes")
@@ -50,14 +89,66 @@ public class NoteController {
         return ResponseEntity.ok(notes);
     }
 
+    /**
+     * Incremental sync: notes created, changed, shared or removed since the given token
+     * Without a token (or with an expired one) the full note list is returned with fullResync=true.
+     */
+    @GetMapping("/notes/changes")
+    public ResponseEntity<NoteChangesResponseDTO> getNoteChanges(
+            Authentication authentication,
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "500") int limit) {
+        if (limit < 1 || limit > 1000) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        User user = userRepository.findByEmail(authentication.getName())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        return ResponseEntity.ok(noteChangeLogService.getChangesSince(user, since, limit));
+    }
+
+    /**
+     * Server-sent event stream of the user's note list changes
+     * Each event names a changed note; clients then pull the details from /notes/changes.
+     */
+    @GetMapping(value = "/notes/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<NoteEventDTO>>> streamNoteEvents(Authentication authentication) {
+        User user = userRepository.findByEmail(authentication.getName())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        try {
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                    // Disable proxy buffering (nginx) so events are flushed immediately
+                    .header("X-Accel-Buffering", "no")
+                    .body(noteEventBus.subscribe(user.getId()));
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.TOO_MANY_REQUESTS);
+        }
+    }
+
+    /**
+     * Get a single note
+     * Supports If-None-Match: an unchanged note returns 304 without loading or serializing its content
+     */
     @GetMapping("/notes/{id}")
-    public ResponseEntity<NoteResponseDTO> getNote(Authentication authentication, @PathVariable UUID id) {
+    public ResponseEntity<NoteResponseDTO> getNote(
+            Authentication authentication,
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         if (!authorizationService.isAllowedToEditNote(id)) {
             return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
         }
+
+        if (ifNoneMatch != null) {
+            Long currentVersion = noteRepository.findVersionById(id)
+                    .orElseThrow(() -> new RuntimeException("Note not found"));
+            if (matchesAnyETag(ifNoneMatch, currentVersion)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTagFor(currentVersion)).build();
+            }
+        }
+
         Note note = noteRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Note not found"));
-        return ResponseEntity.ok(NoteResponseDTO.from(note));
+        return ResponseEntity.ok().eTag(eTagFor(note.getVersion())).body(NoteResponseDTO.from(note));
     }
 
     @PostMapping("/notes")
@@ -68,34 +159,66 @@ public class NoteController {
     }
 
     @PutMapping("/notes/{id}")
-    public ResponseEntity<NoteResponseDTO> updateNote(Authentication authentication, @PathVariable UUID id, @RequestBody NoteRequestDTO updatedNote) {
+    public ResponseEntity<NoteResponseDTO> updateNote(
+            Authentication authentication,
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody NoteRequestDTO updatedNote) {
         String userEmail = authentication.getName();
         if(!authorizationService.isAllowedToEditNote(id)) {
             return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
         }
-        NoteResponseDTO savedNote = noteService.updateNote(id, updatedNote, userEmail);
-        return ResponseEntity.ok(savedNote);
+        NoteResponseDTO savedNote = noteService.updateNote(id, updatedNote, userEmail, parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(eTagFor(savedNote.version())).body(savedNote);
     }
 
     /**
-     * Update only the content of a note (optimized for collaboration saves)
-     * Used by Hocuspocus server for database persistence
+     * Update only the content of a note
+     * The collaborative document log is dropped, so the next editing session starts from this content.
      */
     @PutMapping("/notes/{id}/content")
     public ResponseEntity<Void> updateNoteContent(
             Authentication authentication,
             @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody String content) {
-        if (!authorizationService.isAllowedToEditNote(id)) {
+        if (!authorizationService.isAllowedToEditInPlace(id)) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+
+        long version = noteService.updateNoteContent(id, content, parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(eTagFor(version)).build();
+    }
+
+    /**
+     * Apply ranged text patches to a note's content instead of re-sending the whole document
+     * Returns 400 without a baseVersion and 409 with the current version when it is stale
+     */
+    @PatchMapping("/notes/{id}/content")
+    public ResponseEntity<NoteContentPatchResponseDTO> patchNoteContent(
+            Authentication authentication,
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody NoteContentPatchRequestDTO request) {
+        if (!authorizationService.isAllowedToEditInPlace(id)) {
             return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
         }
 
-        noteService.updateNoteContent(id, content);
-        return ResponseEntity.ok().build();
+        try {
+            NoteContentPatchResponseDTO result = noteService.patchNoteContent(id, request, parseIfMatch(ifMatch));
+            return ResponseEntity.ok().eTag(eTagFor(result.version())).body(result);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
     }
 
     @DeleteMapping("/notes/{id}")
     public ResponseEntity<Void> deleteNote(Authentication authentication, @PathVariable UUID id) {
+        if (authorizationService.isReadingTemplate(id)) {
+            // A shared template is only removed from this user's notes
+            noteService.hideTemplateNote(id, authentication.getName());
+            return ResponseEntity.noContent().build();
+        }
         if(!authorizationService.isAllowedToDeleteNote(id)) {
             return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
         }
@@ -107,7 +230,12 @@ public class NoteController {
     public ResponseEntity<List<NoteResponseDTO>> searchNotes(
             Authentication authentication,
             @RequestParam String keyword,
-            @RequestParam(defaultValue = "hybrid") String mode) {
+            @RequestParam(defaultValue = "hybrid") String mode,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + HybridSearchService.DEFAULT_PAGE_SIZE) int size) {
+        if (page < 0 || size < 1 || size > 100) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
 
         List<NoteResponseDTO> notes;
         try {
@@ -116,7 +244,7 @@ public class NoteController {
                 notes = noteService.searchNotes(authentication, keyword);
             } else {
                 // Use hybrid search (default)
-                notes = hybridSearchService.hybridSearch(authentication, keyword);
+                notes = hybridSearchService.hybridSearch(authentication, keyword, page, size);
             }
         } catch (Exception e) {
             // Fallback to keyword search if hybrid search fails
@@ -126,6 +254,62 @@ public class NoteController {
         return ResponseEntity.ok(notes);
     }
 
+    /**
+     * Similarity graph of the user's notes, precomputed in the background
+     * The first request queues the initial build and returns an empty graph marked as building.
+     */
+    @GetMapping("/notes/graph")
+    public ResponseEntity<NoteGraphDTO> getNoteGraph(Authentication authentication) {
+        return ResponseEntity.ok(noteGraphService.getGraph(authentication.getName()));
+    }
+
+    /**
+     * Notes similar to this one, found from its stored embedding without calling the embedding API
+     */
+    @GetMapping("/notes/{id}/related")
+    public ResponseEntity<List<RelatedNoteDTO>> getRelatedNotes(
+            Authentication authentication,
+            @PathVariable UUID id,
+            @RequestParam(defaultValue = "" + RelatedNotesService.DEFAULT_LIMIT) int limit) {
+        if (limit < 1 || limit > RelatedNotesService.MAX_LIMIT) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (!authorizationService.isAllowedToEditNote(id)) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+        return ResponseEntity.ok(relatedNotesService.findRelated(id, authentication.getName(), limit));
+    }
+
+    /**
+     * Search-as-you-type suggestions: matching tags, then notes whose title has a word starting with q
+     */
+    @GetMapping("/notes/suggest")
+    public ResponseEntity<List<NoteSuggestionDTO>> suggest(
+            Authentication authentication,
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        if (limit < 1 || limit > NoteSuggestionService.MAX_SUGGESTIONS) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok(noteSuggestionService.suggest(authentication.getName(), q, limit));
+    }
+
+    /**
+     * Structured query: tag all-of / any-of filters, owned/shared scope, creation date range and
+     * an optional keyword or semantic text query, returned a page at a time
+     */
+    @PostMapping("/notes/query")
+    public ResponseEntity<NoteQueryResponseDTO> queryNotes(
+            Authentication authentication,
+            @RequestBody NoteQueryRequestDTO request) {
+        String userEmail = authentication.getName();
+        try {
+            return ResponseEntity.ok(noteQueryService.query(request, userEmail));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @PostMapping("/notes/{id}/share")
     public ResponseEntity<NoteResponseDTO> shareNote(
             Authentication authentication,
@@ -176,7 +360,7 @@ public class NoteController {
         UUID noteId = request.noteId();
 
         // Check if user is allowed to edit the note
-        boolean isAllowed = authorizationService.isAllowedToEditNote(noteId);
+        boolean isAllowed = authorizationService.isAllowedToEditInPlace(noteId);
 
         // Get user information
         User user = userRepository.findByEmail(userEmail)
@@ -191,6 +375,23 @@ public class NoteController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Verify many (token, noteId) pairs in one call
+     * Used by Hocuspocus server to coalesce WebSocket authentications during reconnect storms.
+     * Each item carries its own user JWT, so the endpoint itself does not require a session.
+     */
+    @PostMapping("/notes/collaboration/verify-batch")
+    public ResponseEntity<CollaborationBatchVerifyResponseDTO> verifyCollaborationAccessBatch(
+            @RequestBody CollaborationBatchVerifyRequestDTO request) {
+
+        if (request.items() != null && request.items().size() > CollaborationGrantService.MAX_BATCH_SIZE) {
+            return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+
+        List<CollaborationGrantDTO> results = collaborationGrantService.verifyBatch(request.items());
+        return ResponseEntity.ok(new CollaborationBatchVerifyResponseDTO(results));
+    }
+
     /**
      * Regenerate embedding for a specific note
      * User must own the note or have edit access
@@ -245,30 +446,29 @@ public class NoteController {
 
             int totalNotes = userNotes.size();
             int successCount = 0;
+            int unchangedCount = 0;
             int failureCount = 0;
 
-            for (Note note : userNotes) {
-                try {
-                    // Only regenerate for notes the user owns (not shared notes)
-                    if (note.getOwner().getId().equals(user.getId())) {
-                        pgVectorSearchService.upsertNoteEmbedding(
-                                note.getId(),
-                                note.getTitle(),
-                                note.getContent()
-                        );
-                        successCount++;
-                    }
-                } catch (Exception e) {
-                    failureCount++;
-                }
+            // Only regenerate for notes the user owns (not shared notes), embedded and written in batches
+            List<PGVectorSearchService.NoteText> ownedNotes = userNotes.stream()
+                    .filter(note -> note.getOwner().getId().equals(user.getId()))
+                    .map(note -> new PGVectorSearchService.NoteText(note.getId(), note.getTitle(), note.getContent()))
+                    .toList();
+            try {
+                // Notes whose content is already embedded are skipped, so only written embeddings count
+                successCount = pgVectorSearchService.upsertNoteEmbeddings(ownedNotes);
+                unchangedCount = ownedNotes.size() - successCount;
+            } catch (Exception e) {
+                failureCount = ownedNotes.size();
             }
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Embedding regeneration completed");
             response.put("totalNotes", totalNotes);
-            response.put("processedNotes", successCount);
+            response.put("processedNotes", ownedNotes.size());
             response.put("successCount", successCount);
+            response.put("unchangedCount", unchangedCount);
             response.put("failureCount", failureCount);
 
             return ResponseEntity.ok(response);
@@ -321,4 +521,49 @@ public class NoteController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
-}
\ No newline at end of file
+
+    private static String eTagFor(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Whether an If-None-Match header (one or more entity tags, possibly weak) matches the version
+     */
+    private static boolean matchesAnyETag(String header, long version) {
+        String current = eTagFor(version);
+        for (String tag : header.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse an If-Match header (one or more entity tags) into the note versions it accepts.
+     * Returns null when absent or "*". If-Match compares strongly, so weak and malformed tags never match;
+     * a header without any strong tag yields no versions and therefore 412.
+     */
+    private static Set<Long> parseIfMatch(String header) {
+        if (header == null || header.isBlank() || header.trim().equals("*")) {
+            return null;
+        }
+        Set<Long> versions = new HashSet<>();
+        for (String tag : header.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.length() < 2 || !candidate.startsWith("\"") || !candidate.endsWith("\"")) {
+                continue;
+            }
+            try {
+                versions.add(Long.parseLong(candidate.substring(1, candidate.length() - 1)));
+            } catch (NumberFormatException e) {
+                // An opaque tag we never issued
+            }
+        }
+        return versions;
+    }
+}
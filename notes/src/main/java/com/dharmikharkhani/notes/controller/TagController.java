@@ -1,5 +1,6 @@
 package com.dharmikharkhani.notes.controller;
 
+import com.dharmikharkhani.notes.dto.TagFacetDTO;
 import com.dharmikharkhani.notes.service.TagService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -25,4 +26,10 @@ public class TagController {
         List<String> tags = tagService.getTagsForUser(userEmail);
         return ResponseEntity.ok(tags);
     }
+
+    @GetMapping("/facets")
+    public ResponseEntity<List<TagFacetDTO>> getTagFacets(Authentication authentication) {
+        String userEmail = authentication.getName();
+        return ResponseEntity.ok(tagService.getTagFacetsForUser(userEmail));
+    }
 }
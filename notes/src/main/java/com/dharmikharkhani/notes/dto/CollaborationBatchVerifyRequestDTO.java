@@ -0,0 +1,7 @@
+package com.dharmikharkhani.notes.dto;
+
+import java.util.List;
+
+public record CollaborationBatchVerifyRequestDTO(
+    List<CollaborationVerifyItemDTO> items
+) {}
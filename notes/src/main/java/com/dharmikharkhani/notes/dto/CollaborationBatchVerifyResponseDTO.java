@@ -0,0 +1,7 @@
+package com.dharmikharkhani.notes.dto;
+
+import java.util.List;
+
+public record CollaborationBatchVerifyResponseDTO(
+    List<CollaborationGrantDTO> results
+) {}
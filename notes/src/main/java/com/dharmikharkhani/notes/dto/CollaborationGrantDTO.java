@@ -0,0 +1,16 @@
+package com.dharmikharkhani.notes.dto;
+
+import java.util.UUID;
+
+public record CollaborationGrantDTO(
+    UUID noteId,
+    boolean allowed,
+    String email,
+    String username,
+    String grant,
+    Long grantExpiresAt
+) {
+    public static CollaborationGrantDTO denied(UUID noteId) {
+        return new CollaborationGrantDTO(noteId, false, null, null, null, null);
+    }
+}
@@ -0,0 +1,8 @@
+package com.dharmikharkhani.notes.dto;
+
+import java.util.UUID;
+
+public record CollaborationVerifyItemDTO(
+    String token,
+    UUID noteId
+) {}
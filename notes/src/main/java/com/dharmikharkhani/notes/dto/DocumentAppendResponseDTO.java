@@ -0,0 +1,8 @@
+package com.dharmikharkhani.notes.dto;
+
+public record DocumentAppendResponseDTO(
+    long sequence,
+    long pendingUpdates,
+    long pendingBytes,
+    boolean compactionRequested
+) {}
@@ -0,0 +1,17 @@
+package com.dharmikharkhani.notes.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Incremental sync result.
+ * When fullResync is true, upserted holds every accessible note and the client should drop anything else it has.
+ */
+public record NoteChangesResponseDTO(
+        List<NoteResponseDTO> upserted,
+        List<UUID> removed,
+        String nextToken,
+        boolean hasMore,
+        boolean fullResync
+) {
+}
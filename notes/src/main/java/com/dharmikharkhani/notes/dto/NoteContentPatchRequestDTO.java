@@ -0,0 +1,13 @@
+package com.dharmikharkhani.notes.dto;
+
+import java.util.List;
+
+/**
+ * Ranged edits against a known note version.
+ * baseVersion is required; patches are applied in order, each against the result of the previous one.
+ */
+public record NoteContentPatchRequestDTO(
+        Long baseVersion,
+        List<TextPatchDTO> patches
+) {
+}
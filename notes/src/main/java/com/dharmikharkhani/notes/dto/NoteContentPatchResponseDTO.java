@@ -0,0 +1,10 @@
+package com.dharmikharkhani.notes.dto;
+
+import java.util.UUID;
+
+public record NoteContentPatchResponseDTO(
+        UUID id,
+        long version,
+        int length
+) {
+}
@@ -0,0 +1,19 @@
+package com.dharmikharkhani.notes.dto;
+
+import com.dharmikharkhani.notes.event.NoteChangedEvent;
+
+import java.util.UUID;
+
+/**
+ * Note list notification pushed over the event stream.
+ * Clients react by calling the changes endpoint rather than refetching every note.
+ */
+public record NoteEventDTO(
+        String type,
+        UUID noteId,
+        long sequence
+) {
+    public static NoteEventDTO from(NoteChangedEvent event) {
+        return new NoteEventDTO(event.type().name(), event.noteId(), event.sequence());
+    }
+}
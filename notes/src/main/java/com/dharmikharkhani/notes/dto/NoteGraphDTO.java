@@ -0,0 +1,20 @@
+package com.dharmikharkhani.notes.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Note similarity graph; edges are undirected and refer to nodes by their index in {@code nodes}.
+ *
+ * @param building true while the graph is first being computed (nodes and edges are then empty)
+ */
+public record NoteGraphDTO(
+        List<UUID> nodes,
+        List<Edge> edges,
+        boolean building,
+        LocalDateTime updatedAt
+) {
+    public record Edge(int source, int target, double similarity) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.dharmikharkhani.notes.dto;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Structured note query. All filters are optional and combined with AND.
+ *
+ * @param allTags notes must carry every one of these tags
+ * @param anyTags notes must carry at least one of these tags
+ * @param scope "owned", "shared" or "all" (default)
+ * @param createdFrom inclusive lower bound on creation time
+ * @param createdTo exclusive upper bound on creation time
+ * @param text optional text query
+ * @param mode "keyword" (default) matches text literally, "semantic" ranks by meaning
+ */
+public record NoteQueryRequestDTO(
+        Set<String> allTags,
+        Set<String> anyTags,
+        String scope,
+        LocalDateTime createdFrom,
+        LocalDateTime createdTo,
+        String text,
+        String mode,
+        Integer page,
+        Integer size
+) {
+}
@@ -0,0 +1,14 @@
+package com.dharmikharkhani.notes.dto;
+
+import java.util.List;
+
+/**
+ * One page of structured query results
+ */
+public record NoteQueryResponseDTO(
+        List<NoteResponseDTO> notes,
+        int page,
+        int size,
+        long total
+) {
+}
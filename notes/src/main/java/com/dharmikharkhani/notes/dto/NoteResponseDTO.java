@@ -17,7 +17,10 @@ public record NoteResponseDTO(
         Set<CollaboratorDTO> sharedWith,
         Long ownerId,
         CollaboratorDTO owner,
-        LocalDateTime createdAt
+        LocalDateTime createdAt,
+        long version,
+        LocalDateTime updatedAt,
+        boolean template
 ){
     public static NoteResponseDTO from(Note note){
         Set<String> tags = note.getTags().stream()
@@ -28,7 +31,7 @@ public record NoteResponseDTO(
                 .map(CollaboratorDTO::from)
                 .collect(Collectors.toSet());
 
-        boolean isShared = !note.getSharedWith().isEmpty();
+        boolean isShared = !collaborators.isEmpty();
 
         return new NoteResponseDTO(
                 note.getId(),
@@ -39,7 +42,10 @@ public record NoteResponseDTO(
                 collaborators,
                 note.getOwner().getId(),
                 CollaboratorDTO.from(note.getOwner()),
-                note.getCreatedAt()
+                note.getCreatedAt(),
+                note.getVersion(),
+                note.getUpdatedAt(),
+                note.isTemplate()
         );
     }
 }
@@ -0,0 +1,20 @@
+package com.dharmikharkhani.notes.dto;
+
+import java.util.UUID;
+
+/**
+ * Search-as-you-type suggestion: a tag ("tag") or a note title ("note", with its id)
+ */
+public record NoteSuggestionDTO(
+        String type,
+        String text,
+        UUID noteId
+) {
+    public static NoteSuggestionDTO tag(String name) {
+        return new NoteSuggestionDTO("tag", name, null);
+    }
+
+    public static NoteSuggestionDTO note(UUID noteId, String title) {
+        return new NoteSuggestionDTO("note", title, noteId);
+    }
+}
@@ -0,0 +1,15 @@
+package com.dharmikharkhani.notes.dto;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A note similar to another note, with the cosine similarity of their stored embeddings
+ */
+public record RelatedNoteDTO(
+        UUID id,
+        String title,
+        Set<String> tags,
+        double similarity
+) {
+}
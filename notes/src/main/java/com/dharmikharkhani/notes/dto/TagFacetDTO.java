@@ -0,0 +1,10 @@
+package com.dharmikharkhani.notes.dto;
+
+/**
+ * A tag and the number of the user's notes (owned or shared) carrying it
+ */
+public record TagFacetDTO(
+        String name,
+        int count
+) {
+}
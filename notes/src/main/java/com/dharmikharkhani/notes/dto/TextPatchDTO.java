@@ -0,0 +1,12 @@
+package com.dharmikharkhani.notes.dto;
+
+/**
+ * Replace the characters in [start, end) with text.
+ * Offsets are UTF-16 code unit positions, as in JavaScript strings.
+ */
+public record TextPatchDTO(
+        int start,
+        int end,
+        String text
+) {
+}
@@ -15,15 +15,29 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.GenericGenerator;
 import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 @Entity
+@Table(
+    indexes = @Index(name = "idx_note_owner_created", columnList = "owner_id, created_at"),
+    // At most one private copy of a template per user
+    uniqueConstraints = @UniqueConstraint(name = "uk_note_owner_template", columnNames = {"owner_id", "template_note_id"})
+)
+@DynamicUpdate
 @EntityListeners(AuditingEntityListener.class)
 public class Note {
 
@@ -49,7 +63,9 @@ public class Note {
 	    @JoinTable(
 	        name = "note_tags",
 	        joinColumns = @JoinColumn(name = "note_id"),
-	        inverseJoinColumns = @JoinColumn(name = "tag_id")
+	        inverseJoinColumns = @JoinColumn(name = "tag_id"),
+	        // Tag filters start from the tag side
+	        indexes = @Index(name = "idx_note_tags_tag_note", columnList = "tag_id, note_id")
 	    )
 	    private Set<Tag> tags = new HashSet<>();
 
@@ -57,15 +73,58 @@ public class Note {
 	    @JoinTable(
 	        name = "note_shared_users",
 	        joinColumns = @JoinColumn(name = "note_id"),
-	        inverseJoinColumns = @JoinColumn(name = "user_id")
+	        inverseJoinColumns = @JoinColumn(name = "user_id"),
+	        // "Shared with me" lookups start from the user side
+	        indexes = @Index(name = "idx_note_shared_users_user_note", columnList = "user_id, note_id")
 	    )
         @JsonIgnore
 	    private Set<User> sharedWith = new HashSet<>();
 
+	    // Demo users reading this template; a template may have any number, so the set is only ever joined in
+	    // queries (see NoteRepository.TEMPLATE_READER) and never loaded with the note
+	    @ManyToMany(fetch = FetchType.LAZY)
+	    @JoinTable(
+	        name = "template_readers",
+	        joinColumns = @JoinColumn(name = "note_id"),
+	        inverseJoinColumns = @JoinColumn(name = "user_id"),
+	        indexes = @Index(name = "idx_template_readers_user_note", columnList = "user_id, note_id")
+	    )
+	    @JsonIgnore
+	    private Set<User> templateReaders = new HashSet<>();
+
 	    @CreatedDate
-	    @Column(nullable = false, updatable = false)
+	    @Column(name = "created_at", nullable = false, updatable = false)
 	    private LocalDateTime createdAt;
 
+	    @LastModifiedDate
+	    private LocalDateTime updatedAt;
+
+	    // Incremented on every write; used for optimistic locking and patch base checks
+	    @Version
+	    @Column(nullable = false, columnDefinition = "bigint default 0")
+	    private long version;
+
+	    // Shared, read-only demo note; demo users see it until their first edit creates a private copy
+	    @Column(nullable = false, columnDefinition = "boolean default false")
+	    private boolean template;
+
+	    // The template this note is a private copy of
+	    private UUID templateNoteId;
+
+	    // Plain-text tags and content for the database full-text index; refreshed on every write
+	    @Column(name = "search_tags", columnDefinition = "TEXT")
+	    private String searchTags;
+
+	    @Column(name = "search_body", columnDefinition = "TEXT")
+	    private String searchBody;
+
+	@PrePersist
+	@PreUpdate
+	void updateSearchText() {
+		searchTags = NoteSearchText.tags(tags.stream().map(Tag::getName).toList());
+		searchBody = NoteSearchText.body(content);
+	}
+
 	public UUID getId() {
 		return id;
 	}
@@ -121,5 +180,36 @@ public class Note {
 	public void setCreatedAt(LocalDateTime createdAt) {
 		this.createdAt = createdAt;
 	}
-}
 
+	public LocalDateTime getUpdatedAt() {
+		return updatedAt;
+	}
+
+	public void setUpdatedAt(LocalDateTime updatedAt) {
+		this.updatedAt = updatedAt;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	public boolean isTemplate() {
+		return template;
+	}
+
+	public void setTemplate(boolean template) {
+		this.template = template;
+	}
+
+	public UUID getTemplateNoteId() {
+		return templateNoteId;
+	}
+
+	public void setTemplateNoteId(UUID templateNoteId) {
+		this.templateNoteId = templateNoteId;
+	}
+}
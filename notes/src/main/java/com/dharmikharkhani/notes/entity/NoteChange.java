@@ -0,0 +1,119 @@
+package com.dharmikharkhani.notes.entity;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+/**
+ * Per-user change log entry backing incremental sync.
+ * The generated id orders changes as they were made; the sync sequence handed out in tokens is assigned once the
+ * entry has committed.
+ */
+@Entity
+@Table(name = "note_changes", indexes = {
+        @Index(name = "idx_note_changes_user_seq", columnList = "user_id, id"),
+        @Index(name = "idx_note_changes_user_sequence", columnList = "user_id, sequence"),
+        @Index(name = "idx_note_changes_sequence", columnList = "sequence, id"),
+        @Index(name = "idx_note_changes_created", columnList = "created_at")
+})
+@EntityListeners(AuditingEntityListener.class)
+public class NoteChange {
+
+    public enum Type {
+        // Note was created or changed, or became visible to the user
+        UPSERT,
+        // Note was deleted or is no longer shared with the user
+        REMOVE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "note_id", nullable = false)
+    private UUID noteId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Type type;
+
+    // Null until assigned after commit
+    @Column(name = "sequence")
+    private Long sequence;
+
+    @CreatedDate
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public NoteChange() {
+    }
+
+    public NoteChange(Long userId, UUID noteId, Type type) {
+        this.userId = userId;
+        this.noteId = noteId;
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public UUID getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(UUID noteId) {
+        this.noteId = noteId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
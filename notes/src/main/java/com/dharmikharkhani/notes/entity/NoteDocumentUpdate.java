@@ -0,0 +1,125 @@
+package com.dharmikharkhani.notes.entity;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+/**
+ * One entry of a note's binary Yjs log: either an incremental update or a
+ * compacted snapshot that supersedes every update up to its through sequence.
+ */
+@Entity
+@Table(name = "note_document_updates", indexes = {
+        @Index(name = "idx_note_document_updates_note", columnList = "note_id, id")
+})
+@EntityListeners(AuditingEntityListener.class)
+public class NoteDocumentUpdate {
+
+    public enum Kind {
+        UPDATE,
+        SNAPSHOT
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "note_id", nullable = false)
+    private UUID noteId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Kind kind;
+
+    @Column(nullable = false, length = 16 * 1024 * 1024)
+    private byte[] payload;
+
+    @Column(nullable = false)
+    private int payloadSize;
+
+    // Snapshots only: last update sequence merged into the snapshot
+    @Column(name = "through_sequence")
+    private Long throughSequence;
+
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public NoteDocumentUpdate() {
+    }
+
+    public NoteDocumentUpdate(UUID noteId, Kind kind, byte[] payload) {
+        this.noteId = noteId;
+        this.kind = kind;
+        this.payload = payload;
+        this.payloadSize = payload.length;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public UUID getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(UUID noteId) {
+        this.noteId = noteId;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public void setKind(Kind kind) {
+        this.kind = kind;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    public int getPayloadSize() {
+        return payloadSize;
+    }
+
+    public void setPayloadSize(int payloadSize) {
+        this.payloadSize = payloadSize;
+    }
+
+    public Long getThroughSequence() {
+        return throughSequence;
+    }
+
+    public void setThroughSequence(Long throughSequence) {
+        this.throughSequence = throughSequence;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,110 @@
+package com.dharmikharkhani.notes.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+/**
+ * A user's note similarity graph: the k nearest neighbours of each accessible note, packed into one
+ * binary adjacency blob (see {@link com.dharmikharkhani.notes.service.KnnGraph}) so a graph view is one
+ * primary key read.
+ *
+ * The row also records how far the graph has caught up, so any instance can tell which graphs are out of date:
+ * the change log sequence it reflects and when a note in it last got a new embedding.
+ */
+@Entity
+@Table(name = "note_graphs")
+@EntityListeners(AuditingEntityListener.class)
+public class NoteGraph {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false, length = 16777215)
+    private byte[] adjacency;
+
+    @Column(name = "node_count", nullable = false)
+    private int nodeCount;
+
+    // Null until the first build
+    @Column(name = "change_sequence")
+    private Long changeSequence;
+
+    // Embeddings updated after this time may not be reflected yet
+    @Column(name = "embeddings_through")
+    private LocalDateTime embeddingsThrough;
+
+    // Set by bulk updates only, so saving the graph never overwrites a newer mark
+    @Column(name = "embeddings_changed_at", insertable = false, updatable = false)
+    private LocalDateTime embeddingsChangedAt;
+
+    @LastModifiedDate
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public NoteGraph() {
+    }
+
+    public NoteGraph(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public byte[] getAdjacency() {
+        return adjacency;
+    }
+
+    public void setAdjacency(byte[] adjacency) {
+        this.adjacency = adjacency;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public void setNodeCount(int nodeCount) {
+        this.nodeCount = nodeCount;
+    }
+
+    public Long getChangeSequence() {
+        return changeSequence;
+    }
+
+    public void setChangeSequence(Long changeSequence) {
+        this.changeSequence = changeSequence;
+    }
+
+    public LocalDateTime getEmbeddingsThrough() {
+        return embeddingsThrough;
+    }
+
+    public void setEmbeddingsThrough(LocalDateTime embeddingsThrough) {
+        this.embeddingsThrough = embeddingsThrough;
+    }
+
+    public LocalDateTime getEmbeddingsChangedAt() {
+        return embeddingsChangedAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,36 @@
+package com.dharmikharkhani.notes.entity;
+
+import java.util.Collection;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Plain-text forms of a note's tags and content, as stored for the database full-text index
+ */
+public final class NoteSearchText {
+
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern HTML_ENTITY = Pattern.compile("&[a-zA-Z#0-9]+;");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private NoteSearchText() {
+    }
+
+    /**
+     * Tag names separated by spaces, in a stable order
+     */
+    public static String tags(Collection<String> names) {
+        return names.stream().sorted().collect(Collectors.joining(" "));
+    }
+
+    /**
+     * Content with markup and entities removed
+     */
+    public static String body(String html) {
+        if (html == null || html.isEmpty()) {
+            return "";
+        }
+        String text = HTML_ENTITY.matcher(HTML_TAG.matcher(html).replaceAll(" ")).replaceAll(" ");
+        return WHITESPACE.matcher(text).replaceAll(" ").trim();
+    }
+}
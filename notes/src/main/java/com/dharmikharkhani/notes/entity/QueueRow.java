@@ -0,0 +1,24 @@
+package com.dharmikharkhani.notes.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * A row of a database-backed work queue, with the retry bookkeeping every such queue keeps
+ */
+public interface QueueRow {
+
+    Long getId();
+
+    int getAttempts();
+
+    void setAttempts(int attempts);
+
+    void setNextAttemptAt(LocalDateTime nextAttemptAt);
+
+    void setLastError(String lastError);
+
+    /**
+     * Stop retrying; the row is kept for inspection
+     */
+    void markFailed();
+}
@@ -0,0 +1,36 @@
+package com.dharmikharkhani.notes.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Named counter whose row lock serializes the transactions that advance it
+ */
+@Entity
+@Table(name = "sequence_counters")
+public class SequenceCounter {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(name = "current_value", nullable = false)
+    private long value;
+
+    protected SequenceCounter() {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    public void setValue(long value) {
+        this.value = value;
+    }
+}
@@ -8,7 +8,7 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "note_embeddings")
+@Table(name = "note_embeddings", indexes = @Index(name = "note_embeddings_content_hash_idx", columnList = "content_hash"))
 public class NoteEmbedding {
 
     @Id
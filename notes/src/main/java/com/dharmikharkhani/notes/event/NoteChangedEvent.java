@@ -0,0 +1,23 @@
+package com.dharmikharkhani.notes.event;
+
+import com.dharmikharkhani.notes.entity.NoteChange;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Published for every change log entry; delivered to listeners once the recording transaction commits.
+ *
+ * @param sequence the change log entry id, ordering changes to the same note
+ * @param title the note's title after the change (null for removals)
+ * @param tags the note's tag names after the change (empty for removals)
+ */
+public record NoteChangedEvent(
+        Long userId,
+        UUID noteId,
+        NoteChange.Type type,
+        long sequence,
+        String title,
+        Set<String> tags
+) {
+}
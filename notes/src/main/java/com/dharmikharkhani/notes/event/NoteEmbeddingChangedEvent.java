@@ -0,0 +1,14 @@
+package com.dharmikharkhani.notes.event;
+
+import java.util.UUID;
+
+/**
+ * Published when a note's stored embedding is written or deleted.
+ *
+ * @param removed true if the embedding was deleted
+ */
+public record NoteEmbeddingChangedEvent(
+        UUID noteId,
+        boolean removed
+) {
+}
@@ -0,0 +1,10 @@
+package com.dharmikharkhani.notes.event;
+
+/**
+ * Published when a user row is deleted through JPA; listeners run once the deleting transaction commits.
+ */
+public record UserDeletedEvent(
+        Long userId,
+        String email
+) {
+}
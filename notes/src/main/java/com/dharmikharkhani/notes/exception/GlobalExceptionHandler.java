@@ -2,13 +2,33 @@ package com.dharmikharkhani.notes.exception;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 
+import java.util.Map;
+
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    @ExceptionHandler(NoteVersionConflictException.class)
+    public ResponseEntity<?> handleVersionConflict(NoteVersionConflictException ex, WebRequest request) {
+        return new ResponseEntity<>(Map.of("error", ex.getMessage(), "currentVersion", ex.getCurrentVersion()), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(NotePreconditionFailedException.class)
+    public ResponseEntity<?> handlePreconditionFailed(NotePreconditionFailedException ex, WebRequest request) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .eTag("\"" + ex.getCurrentVersion() + "\"")
+                .body(Map.of("error", ex.getMessage(), "currentVersion", ex.getCurrentVersion()));
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<?> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex, WebRequest request) {
+        return new ResponseEntity<>(Map.of("error", "Note was modified concurrently, reload and retry"), HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<?> handleGlobalException(Exception ex, WebRequest request) {
         return new ResponseEntity<>("An error occurred: " + ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
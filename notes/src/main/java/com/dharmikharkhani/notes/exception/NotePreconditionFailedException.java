@@ -0,0 +1,18 @@
+package com.dharmikharkhani.notes.exception;
+
+/**
+ * Thrown when an If-Match precondition does not match the note's current version.
+ */
+public class NotePreconditionFailedException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public NotePreconditionFailedException(long currentVersion) {
+        super("Note version does not match If-Match (current version " + currentVersion + ")");
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,18 @@
+package com.dharmikharkhani.notes.exception;
+
+/**
+ * Thrown when a write is based on a note version that is no longer current.
+ */
+public class NoteVersionConflictException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public NoteVersionConflictException(long currentVersion) {
+        super("Note was modified concurrently (current version " + currentVersion + ")");
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,225 @@
+package com.dharmikharkhani.notes.repository;
+
+import com.dharmikharkhani.notes.repository.pgvector.NoteNeighbourRepository;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Vector search on the primary database, for deployments where note_embeddings lives in the primary
+ * PostgreSQL schema (app.embeddings.colocated=true). Access filtering happens in the same statement, so no
+ * id list of accessible notes is ever sent to the database.
+ */
+@Repository
+public class ColocatedVectorSearchRepository {
+
+    private static final String NO_ROWS = "SELECT CAST(NULL AS uuid) AS id, CAST(0 AS float8) AS score WHERE false";
+
+    private static final String HYBRID_SQL = """
+        WITH keyword AS (%s),
+        keyword_ranked AS (
+            SELECT id, score / NULLIF(MAX(score) OVER (), 0) AS score, ROW_NUMBER() OVER (ORDER BY score DESC) AS position
+            FROM keyword
+        ),
+        semantic AS (%s),
+        semantic_ranked AS (
+            SELECT id, score, ROW_NUMBER() OVER (ORDER BY score DESC) AS position
+            FROM semantic
+            WHERE score >= CASE WHEN (SELECT COUNT(*) FROM semantic WHERE score >= :precision) >= :minPrecisionResults
+                                THEN :precision ELSE :recall END
+        )
+        SELECT COALESCE(k.id, s.id) AS note_id,
+               CASE WHEN :reciprocalRank
+                    THEN COALESCE(1.0 / (:rrfK + k.position), 0) + COALESCE(1.0 / (:rrfK + s.position), 0)
+                    ELSE :keywordWeight * COALESCE(k.score, 0) + :semanticWeight * COALESCE(s.score, 0) END AS fused
+        FROM keyword_ranked k
+        FULL OUTER JOIN semantic_ranked s ON s.id = k.id
+        ORDER BY fused DESC, note_id
+        LIMIT :limit OFFSET :offset
+        """;
+
+    private static final String KEYWORD_LEG_SQL =
+            "SELECT n.id, " + KeywordSearchRepository.PG_SCORE + " AS score FROM note n"
+            + " WHERE " + KeywordSearchRepository.ACCESSIBLE + " AND " + KeywordSearchRepository.PG_MATCH
+            + " ORDER BY score DESC LIMIT :keywordLimit";
+
+    // Top results overall, cut to the threshold afterwards; the same as the top results above the threshold
+    private static final String SEMANTIC_LEG_SQL =
+            "SELECT n.id, 1 - (e.embedding <=> CAST(:embedding AS vector)) AS score FROM note n"
+            + " JOIN note_embeddings e ON e.note_id = n.id"
+            + " WHERE " + KeywordSearchRepository.ACCESSIBLE
+            + " ORDER BY e.embedding <=> CAST(:embedding AS vector) LIMIT :semanticLimit";
+
+    private static final String SIMILAR_AMONG_SQL = """
+        SELECT e.note_id, 1 - (e.embedding <=> CAST(:embedding AS vector)) AS similarity
+        FROM note_embeddings e
+        WHERE e.note_id = ANY(:candidateIds)
+          AND 1 - (e.embedding <=> CAST(:embedding AS vector)) >= :threshold
+        ORDER BY e.embedding <=> CAST(:embedding AS vector)
+        LIMIT :limit
+        """;
+
+    private static final String NEAREST_INDEXED_SQL = """
+        SELECT s.note_id AS source_id, k.note_id AS note_id, k.similarity AS similarity
+        FROM note_embeddings s
+        CROSS JOIN LATERAL (
+            SELECT a.note_id, 1 - a.distance AS similarity
+            FROM (
+                SELECT e.note_id, e.embedding <=> s.embedding AS distance
+                FROM note_embeddings e
+                ORDER BY e.embedding <=> s.embedding
+                LIMIT :probe
+            ) a
+            JOIN note n ON n.id = a.note_id
+            WHERE a.note_id <> s.note_id AND %s
+            ORDER BY a.distance
+            LIMIT :limit
+        ) k
+        WHERE s.note_id IN (:sourceIds)
+        ORDER BY s.note_id, k.similarity DESC
+        """.formatted(KeywordSearchRepository.ACCESSIBLE);
+
+    private static final String NEAREST_EXACT_SQL = """
+        SELECT s.note_id AS source_id, k.note_id AS note_id, k.similarity AS similarity
+        FROM note_embeddings s
+        CROSS JOIN LATERAL (
+            SELECT e.note_id, 1 - (e.embedding <=> s.embedding) AS similarity
+            FROM note n
+            JOIN note_embeddings e ON e.note_id = n.id
+            WHERE e.note_id <> s.note_id AND %s
+            ORDER BY e.embedding <=> s.embedding
+            LIMIT :limit
+        ) k
+        WHERE s.note_id IN (:sourceIds)
+        ORDER BY s.note_id, k.similarity DESC
+        """.formatted(KeywordSearchRepository.ACCESSIBLE);
+
+    private static final String ACCESSIBLE_UPDATED_AFTER_SQL =
+            "SELECT e.note_id FROM note n JOIN note_embeddings e ON e.note_id = n.id"
+            + " WHERE " + KeywordSearchRepository.ACCESSIBLE + " AND e.updated_at > :since";
+
+    /**
+     * How the keyword and semantic legs of {@link #hybridSearch} are combined
+     *
+     * @param reciprocalRank fuse by 1 / (rrfK + rank) rather than by weighted scores
+     */
+    public record Fusion(boolean reciprocalRank, double keywordWeight, double semanticWeight, int rrfK) {
+    }
+
+    /**
+     * Candidate limits and the dynamic similarity threshold of the semantic leg: the precision threshold applies
+     * when at least minPrecisionResults notes reach it, otherwise the recall threshold
+     */
+    public record SemanticCut(int limit, double precision, double recall, int minPrecisionResults) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ColocatedVectorSearchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Keyword and semantic search over the notes a user can access, fused and paged in one statement
+     *
+     * @param keywordQuery query in PostgreSQL tsquery syntax (see {@link KeywordSearchRepository#queryText}), or
+     *                     null to skip the keyword leg
+     * @param queryEmbedding vector literal, e.g. "[0.1,0.2]", or null to skip the semantic leg
+     * @param keywordLimit keyword hits considered; their scores are scaled so the best is 1.0
+     * @return note ids on the requested slice, best first
+     */
+    public List<UUID> hybridSearch(Long userId, String keywordQuery, String queryEmbedding, int keywordLimit,
+                                   SemanticCut semanticCut, Fusion fusion, int offset, int limit) {
+        String sql = HYBRID_SQL.formatted(keywordQuery != null ? KEYWORD_LEG_SQL : NO_ROWS,
+                queryEmbedding != null ? SEMANTIC_LEG_SQL : NO_ROWS);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("query", keywordQuery)
+                .addValue("keywordLimit", keywordLimit)
+                .addValue("embedding", queryEmbedding)
+                .addValue("semanticLimit", semanticCut.limit())
+                .addValue("precision", semanticCut.precision())
+                .addValue("recall", semanticCut.recall())
+                .addValue("minPrecisionResults", semanticCut.minPrecisionResults())
+                .addValue("reciprocalRank", fusion.reciprocalRank())
+                .addValue("rrfK", fusion.rrfK())
+                .addValue("keywordWeight", fusion.keywordWeight())
+                .addValue("semanticWeight", fusion.semanticWeight())
+                .addValue("offset", offset)
+                .addValue("limit", limit);
+        return jdbcTemplate.query(sql, params, (rs, row) -> rs.getObject("note_id", UUID.class));
+    }
+
+    /**
+     * @param queryEmbedding vector literal, e.g. "[0.1,0.2]"
+     * @param candidateIds notes that may be returned, bound as one array parameter
+     * @return ids mapped to similarity, most similar first
+     */
+    public Map<UUID, Double> findSimilarAmong(String queryEmbedding, Collection<UUID> candidateIds, int limit, double threshold) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("embedding", queryEmbedding)
+                .addValue("candidateIds", candidateIds.toArray(new UUID[0]))
+                .addValue("threshold", threshold)
+                .addValue("limit", limit);
+        Map<UUID, Double> similarities = new LinkedHashMap<>();
+        jdbcTemplate.query(SIMILAR_AMONG_SQL, params, rs -> {
+            similarities.put(rs.getObject("note_id", UUID.class), rs.getDouble("similarity"));
+        });
+        return similarities;
+    }
+
+    /**
+     * For each source note, its nearest notes among those the user can access, most similar first
+     * Like {@link NoteNeighbourRepository#findNearestCandidates}, an index-ordered probe is tried first and sources
+     * it leaves short of the limit are scanned exactly.
+     *
+     * @param accessibleCount number of notes the user can access; small sets are scanned exactly straight away
+     */
+    public Map<UUID, Map<UUID, Double>> findNearestAccessible(Long userId, Collection<UUID> sourceIds,
+                                                             int accessibleCount, int limit) {
+        Map<UUID, Map<UUID, Double>> neighbours = new HashMap<>();
+        if (sourceIds.isEmpty()) {
+            return neighbours;
+        }
+        int probe = limit * NoteNeighbourRepository.PROBE_FACTOR;
+        Collection<UUID> exact = sourceIds;
+        if (accessibleCount > probe) {
+            queryNearest(NEAREST_INDEXED_SQL, userId, sourceIds, limit, probe, neighbours);
+            exact = sourceIds.stream()
+                .filter(id -> neighbours.getOrDefault(id, Map.of()).size() < limit)
+                .toList();
+            exact.forEach(neighbours::remove);
+        }
+        if (!exact.isEmpty()) {
+            queryNearest(NEAREST_EXACT_SQL, userId, exact, limit, probe, neighbours);
+        }
+        return neighbours;
+    }
+
+    /**
+     * Notes the user can access whose embedding was written after the given time
+     */
+    public List<UUID> findAccessibleUpdatedAfter(Long userId, LocalDateTime since) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("since", Timestamp.valueOf(since));
+        return jdbcTemplate.queryForList(ACCESSIBLE_UPDATED_AFTER_SQL, params, UUID.class);
+    }
+
+    private void queryNearest(String sql, Long userId, Collection<UUID> sourceIds, int limit, int probe,
+                              Map<UUID, Map<UUID, Double>> into) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("sourceIds", sourceIds)
+                .addValue("limit", limit)
+                .addValue("probe", probe);
+        jdbcTemplate.query(sql, params, rs -> {
+            into.computeIfAbsent(rs.getObject("source_id", UUID.class), id -> new LinkedHashMap<>())
+                .put(rs.getObject("note_id", UUID.class), rs.getDouble("similarity"));
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package com.dharmikharkhani.notes.repository;
+
+import com.dharmikharkhani.notes.entity.EmbeddingOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface EmbeddingOutboxRepository extends JpaRepository<EmbeddingOutboxEvent, Long> {
+
+    /**
+     * Lock due pending events, skipping rows another relay instance has locked
+     */
+    @Query(value = """
+        SELECT * FROM embedding_outbox
+        WHERE status = 'PENDING' AND next_attempt_at <= :now
+        ORDER BY next_attempt_at, id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<EmbeddingOutboxEvent> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE EmbeddingOutboxEvent e SET e.nextAttemptAt = :until WHERE e.id IN :ids")
+    int leaseUntil(@Param("ids") Collection<Long> ids, @Param("until") LocalDateTime until);
+
+    /**
+     * Delete applied events, along with earlier events for the same notes that were given up on
+     */
+    @Modifying
+    @Query("DELETE FROM EmbeddingOutboxEvent e WHERE e.id IN :ids OR (e.noteId IN :noteIds AND e.status = :failed)")
+    int deleteApplied(@Param("ids") Collection<Long> ids, @Param("noteIds") Collection<UUID> noteIds,
+                      @Param("failed") EmbeddingOutboxEvent.Status failed);
+}
@@ -0,0 +1,56 @@
+package com.dharmikharkhani.notes.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+
+/**
+ * INSERT statements that skip rows clashing with an existing unique key, in the primary database's dialect
+ * (INSERT IGNORE on MySQL in development, ON CONFLICT DO NOTHING on PostgreSQL in production).
+ * Unlike a JPA save, a concurrent insert of the same key can neither fail nor overwrite the other row.
+ */
+@Component
+public class InsertIgnoreSupport {
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean mySql;
+
+    public InsertIgnoreSupport(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param columns comma-separated column list, one positional parameter each
+     * @param conflictColumns the unique key that identifies duplicates
+     */
+    public String sql(String table, String columns, String conflictColumns) {
+        String values = String.join(", ", Collections.nCopies(columns.split(",").length, "?"));
+        if (isMySql()) {
+            return "INSERT IGNORE INTO " + table + " (" + columns + ") VALUES (" + values + ")";
+        }
+        return "INSERT INTO " + table + " (" + columns + ") VALUES (" + values + ") ON CONFLICT (" + conflictColumns + ") DO NOTHING";
+    }
+
+    /**
+     * @return 1 if the row was inserted, 0 if it already existed
+     */
+    public int insert(String table, String columns, String conflictColumns, Object... values) {
+        return jdbcTemplate.update(sql(table, columns, conflictColumns), values);
+    }
+
+    /**
+     * Whether the primary database is MySQL (or MariaDB) rather than PostgreSQL
+     */
+    public boolean isMySql() {
+        Boolean result = mySql;
+        if (result == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            result = "MySQL".equalsIgnoreCase(product) || "MariaDB".equalsIgnoreCase(product);
+            mySql = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,133 @@
+package com.dharmikharkhani.notes.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * Keyword search scored by the primary database's full-text index over a note's title, tags and content
+ * (the plain-text search_tags and search_body columns), weighted 3:2:1.
+ *
+ * PostgreSQL ranks with ts_rank_cd over a weighted tsvector backed by a GIN expression index; MySQL sums
+ * per-column FULLTEXT relevance in boolean mode. Query terms of at least {@link #MIN_PREFIX_LENGTH} characters
+ * also match words they are a prefix of; shorter terms match whole words only (MySQL does not index words
+ * shorter than innodb_ft_min_token_size, 3 by default, nor its stopwords). Access filtering happens in the
+ * same statement.
+ */
+@Repository
+public class KeywordSearchRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeywordSearchRepository.class);
+
+    public static final int MIN_PREFIX_LENGTH = 3;
+
+    static final String PG_DOCUMENT =
+            "setweight(to_tsvector('simple', coalesce(title, '')), 'A')"
+            + " || setweight(to_tsvector('simple', coalesce(search_tags, '')), 'B')"
+            + " || setweight(to_tsvector('simple', coalesce(search_body, '')), 'C')";
+    // ts_rank_cd takes weights in D, C, B, A order; normalization 1 divides by 1 + log(document length)
+    static final String PG_SCORE =
+            "ts_rank_cd('{0.1, 0.33, 0.67, 1.0}', " + PG_DOCUMENT + ", to_tsquery('simple', :query), 1)";
+    static final String PG_MATCH = "(" + PG_DOCUMENT + ") @@ to_tsquery('simple', :query)";
+
+    private static final String MYSQL_SCORE =
+            "3 * MATCH(title) AGAINST(:query IN BOOLEAN MODE)"
+            + " + 2 * MATCH(search_tags) AGAINST(:query IN BOOLEAN MODE)"
+            + " + MATCH(search_body) AGAINST(:query IN BOOLEAN MODE)";
+    private static final String MYSQL_MATCH = "MATCH(title, search_tags, search_body) AGAINST(:query IN BOOLEAN MODE)";
+
+    static final String ACCESSIBLE =
+            "(n.owner_id = :userId OR EXISTS (SELECT 1 FROM note_shared_users s WHERE s.note_id = n.id AND s.user_id = :userId)"
+            + " OR EXISTS (SELECT 1 FROM template_readers r WHERE r.note_id = n.id AND r.user_id = :userId))";
+
+    /**
+     * A matching note and its raw relevance score
+     */
+    public record Hit(UUID noteId, double score) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final InsertIgnoreSupport insertIgnoreSupport;
+
+    public KeywordSearchRepository(NamedParameterJdbcTemplate jdbcTemplate, InsertIgnoreSupport insertIgnoreSupport) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertIgnoreSupport = insertIgnoreSupport;
+    }
+
+    /**
+     * @param terms lower-cased query words
+     * @return notes the user owns or collaborates on that match any term, best first
+     */
+    public List<Hit> search(Long userId, List<String> terms, int limit) {
+        boolean mySql = insertIgnoreSupport.isMySql();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("query", queryText(mySql, terms))
+                .addValue("userId", userId)
+                .addValue("limit", limit);
+        return search(jdbcTemplate, mySql, "note", ACCESSIBLE, params);
+    }
+
+    /**
+     * Create the full-text indexes on the note table if they are missing
+     */
+    public void ensureIndexes() {
+        ensureIndexes(jdbcTemplate.getJdbcTemplate(), insertIgnoreSupport.isMySql(), "note");
+    }
+
+    /**
+     * Run the search statement against any table with the note's id, title and search columns (aliased n)
+     *
+     * @param filter SQL condition restricting the searched rows
+     * @param params must bind :query (see {@link #queryText}) and :limit, plus whatever the filter uses
+     */
+    public static List<Hit> search(NamedParameterJdbcTemplate jdbcTemplate, boolean mySql, String table, String filter,
+                                   MapSqlParameterSource params) {
+        String sql = "SELECT " + (mySql ? "BIN_TO_UUID(n.id)" : "CAST(n.id AS text)") + " AS note_id, "
+                + (mySql ? MYSQL_SCORE : PG_SCORE) + " AS score"
+                + " FROM " + table + " n"
+                + " WHERE " + filter + " AND " + (mySql ? MYSQL_MATCH : PG_MATCH)
+                + " ORDER BY score DESC LIMIT :limit";
+        return jdbcTemplate.query(sql, params,
+                (rs, row) -> new Hit(UUID.fromString(rs.getString("note_id")), rs.getDouble("score")));
+    }
+
+    /**
+     * The query in the database's full-text syntax: any term may match, longer terms also as a prefix
+     */
+    public static String queryText(boolean mySql, List<String> terms) {
+        StringJoiner query = new StringJoiner(mySql ? " " : " | ");
+        for (String term : new LinkedHashSet<>(terms)) {
+            boolean prefix = term.length() >= MIN_PREFIX_LENGTH;
+            query.add(prefix ? term + (mySql ? "*" : ":*") : term);
+        }
+        return query.toString();
+    }
+
+    public static void ensureIndexes(JdbcTemplate jdbcTemplate, boolean mySql, String table) {
+        if (!mySql) {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_" + table + "_search ON " + table
+                    + " USING GIN ((" + PG_DOCUMENT + "))");
+            return;
+        }
+        // MATCH needs a FULLTEXT index on exactly its column list, hence one per scored column plus the combined one
+        Map<String, String> indexes = new LinkedHashMap<>();
+        indexes.put("idx_" + table + "_search", "title, search_tags, search_body");
+        indexes.put("idx_" + table + "_search_title", "title");
+        indexes.put("idx_" + table + "_search_tags", "search_tags");
+        indexes.put("idx_" + table + "_search_body", "search_body");
+        indexes.forEach((name, columns) -> {
+            Integer existing = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
+                    Integer.class, table, name);
+            if (existing == null || existing == 0) {
+                jdbcTemplate.execute("ALTER TABLE " + table + " ADD FULLTEXT INDEX " + name + " (" + columns + ")");
+                logger.info("Created full-text index {} on {}", name, table);
+            }
+        });
+    }
+}
@@ -0,0 +1,34 @@
+package com.dharmikharkhani.notes.repository;
+
+import com.dharmikharkhani.notes.entity.NoteChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface NoteChangeRepository extends JpaRepository<NoteChange, Long> {
+
+    List<NoteChange> findByUserIdAndSequenceGreaterThanOrderBySequenceAsc(Long userId, Long afterSequence, Pageable pageable);
+
+    boolean existsBySequenceIsNull();
+
+    @Query("SELECT c.id FROM NoteChange c WHERE c.sequence IS NULL ORDER BY c.id")
+    List<Long> findUnsequencedIds(Limit limit);
+
+    /**
+     * Sequence the given entries in id order, offset by {@code shift}
+     */
+    @Modifying
+    @Query("UPDATE NoteChange c SET c.sequence = c.id + :shift WHERE c.id IN :ids AND c.sequence IS NULL")
+    int assignSequences(@Param("ids") Collection<Long> ids, @Param("shift") long shift);
+
+    @Modifying
+    @Query("DELETE FROM NoteChange c WHERE c.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,76 @@
+package com.dharmikharkhani.notes.repository;
+
+import com.dharmikharkhani.notes.entity.NoteDocumentUpdate;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface NoteDocumentUpdateRepository extends JpaRepository<NoteDocumentUpdate, Long> {
+
+    /**
+     * Snapshots covering the most updates first; snapshots stored before through sequences were recorded count
+     * as covering everything before them
+     */
+    @Query("""
+        SELECT u FROM NoteDocumentUpdate u
+        WHERE u.noteId = :noteId AND u.kind = :snapshot
+        ORDER BY COALESCE(u.throughSequence, u.id - 1) DESC, u.id DESC
+        """)
+    List<NoteDocumentUpdate> findLatestSnapshots(@Param("noteId") UUID noteId, @Param("snapshot") NoteDocumentUpdate.Kind snapshot,
+                                                 Limit limit);
+
+    @Query("""
+        SELECT COALESCE(u.throughSequence, u.id - 1) FROM NoteDocumentUpdate u
+        WHERE u.noteId = :noteId AND u.kind = :snapshot
+        ORDER BY COALESCE(u.throughSequence, u.id - 1) DESC
+        """)
+    List<Long> findLatestThroughSequences(@Param("noteId") UUID noteId, @Param("snapshot") NoteDocumentUpdate.Kind snapshot,
+                                          Limit limit);
+
+    @Query("""
+        SELECT u FROM NoteDocumentUpdate u
+        WHERE u.noteId = :noteId AND u.kind <> :snapshot
+          AND u.id > :afterId
+        ORDER BY u.id
+        """)
+    List<NoteDocumentUpdate> findUpdatesAfter(@Param("noteId") UUID noteId, @Param("snapshot") NoteDocumentUpdate.Kind snapshot,
+                                              @Param("afterId") Long afterId);
+
+    @Query("""
+        SELECT COUNT(u), COALESCE(SUM(u.payloadSize), 0) FROM NoteDocumentUpdate u
+        WHERE u.noteId = :noteId AND u.kind <> :snapshot
+          AND u.id > :afterId
+        """)
+    List<Object[]> summarizeUpdatesAfter(@Param("noteId") UUID noteId, @Param("snapshot") NoteDocumentUpdate.Kind snapshot,
+                                         @Param("afterId") Long afterId);
+
+    /**
+     * Drop updates merged into the kept snapshot and snapshots it supersedes
+     */
+    @Modifying
+    @Query("""
+        DELETE FROM NoteDocumentUpdate u
+        WHERE u.noteId = :noteId AND u.id <> :keepId
+          AND ((u.kind <> :snapshot AND u.id <= :throughId)
+            OR (u.kind = :snapshot
+                AND COALESCE(u.throughSequence, u.id - 1) <= :throughId))
+        """)
+    int deleteCoveredBy(@Param("noteId") UUID noteId, @Param("snapshot") NoteDocumentUpdate.Kind snapshot,
+                        @Param("keepId") Long keepId, @Param("throughId") Long throughId);
+
+    boolean existsByNoteId(UUID noteId);
+
+    @Modifying
+    @Query("DELETE FROM NoteDocumentUpdate u WHERE u.noteId = :noteId")
+    int deleteByNoteId(@Param("noteId") UUID noteId);
+
+    @Modifying
+    @Query("DELETE FROM NoteDocumentUpdate u WHERE u.noteId IN :noteIds")
+    int deleteByNoteIdIn(@Param("noteIds") Collection<UUID> noteIds);
+}
@@ -0,0 +1,46 @@
+package com.dharmikharkhani.notes.repository;
+
+import com.dharmikharkhani.notes.entity.NoteGraph;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface NoteGraphRepository extends JpaRepository<NoteGraph, Long> {
+
+    /**
+     * Graphs never built, with notes whose embedding changed, or behind the user's change log; least recently updated first
+     */
+    @Query("""
+        SELECT g.userId FROM NoteGraph g
+        WHERE g.changeSequence IS NULL
+           OR g.embeddingsChangedAt IS NOT NULL
+           OR EXISTS (SELECT 1 FROM NoteChange c WHERE c.userId = g.userId AND c.sequence > g.changeSequence)
+        ORDER BY g.updatedAt
+        """)
+    List<Long> findDueUserIds(Limit limit);
+
+    /**
+     * Mark the graphs of everyone who can see the note as having a changed embedding
+     */
+    @Modifying
+    @Query("""
+        UPDATE NoteGraph g SET g.embeddingsChangedAt = :now
+        WHERE g.userId IN (SELECT n.owner.id FROM Note n WHERE n.id = :noteId)
+           OR g.userId IN (SELECT u.id FROM Note n JOIN n.sharedWith u WHERE n.id = :noteId)
+           OR g.userId IN (SELECT r.id FROM Note n JOIN n.templateReaders r WHERE n.id = :noteId)
+        """)
+    int markEmbeddingsChanged(@Param("noteId") UUID noteId, @Param("now") LocalDateTime now);
+
+    /**
+     * Clear the mark unless it was set again after the given time
+     */
+    @Modifying
+    @Query("UPDATE NoteGraph g SET g.embeddingsChangedAt = NULL WHERE g.userId = :userId AND g.embeddingsChangedAt <= :seen")
+    int clearEmbeddingsChanged(@Param("userId") Long userId, @Param("seen") LocalDateTime seen);
+}
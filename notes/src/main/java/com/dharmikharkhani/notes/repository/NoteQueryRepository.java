@@ -0,0 +1,44 @@
+package com.dharmikharkhani.notes.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Structured note queries (tag filters, scope, date range, keyword) built as a single JPQL statement
+ */
+public interface NoteQueryRepository {
+
+    /**
+     * Matching note ids, newest first
+     *
+     * @param limit page size, or 0 for all matches
+     */
+    List<UUID> findNoteIds(NoteQueryFilter filter, int offset, int limit);
+
+    long countNotes(NoteQueryFilter filter);
+
+    enum Scope {
+        OWNED, SHARED, ALL
+    }
+
+    /**
+     * @param allTags notes must carry every one of these tags (empty for no filter)
+     * @param anyTags notes must carry at least one of these tags (empty for no filter)
+     * @param keyword LIKE match against title, content and tag names, or null
+     * @param noteIds restrict to these notes (e.g. semantic candidates), or null for no restriction
+     */
+    record NoteQueryFilter(
+            Long userId,
+            Scope scope,
+            Set<String> allTags,
+            Set<String> anyTags,
+            LocalDateTime createdFrom,
+            LocalDateTime createdTo,
+            String keyword,
+            Collection<UUID> noteIds
+    ) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.dharmikharkhani.notes.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class NoteQueryRepositoryImpl implements NoteQueryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<UUID> findNoteIds(NoteQueryFilter filter, int offset, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        String jpql = "SELECT n.id FROM Note n WHERE " + buildWhere(filter, params) + " ORDER BY n.createdAt DESC, n.id";
+        TypedQuery<UUID> query = entityManager.createQuery(jpql, UUID.class);
+        params.forEach(query::setParameter);
+        if (limit > 0) {
+            query.setFirstResult(offset);
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public long countNotes(NoteQueryFilter filter) {
+        Map<String, Object> params = new HashMap<>();
+        String jpql = "SELECT COUNT(n) FROM Note n WHERE " + buildWhere(filter, params);
+        TypedQuery<Long> query = entityManager.createQuery(jpql, Long.class);
+        params.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    /**
+     * Every predicate is a correlated subquery keyed so the database can drive it from an index:
+     * note_shared_users and template_readers (user_id, note_id), note_tags (tag_id, note_id) and note (owner_id, created_at).
+     */
+    private String buildWhere(NoteQueryFilter filter, Map<String, Object> params) {
+        StringBuilder where = new StringBuilder();
+        params.put("userId", filter.userId());
+
+        String owned = "n.owner.id = :userId";
+        String shared = "(EXISTS (SELECT 1 FROM Note sn JOIN sn.sharedWith su WHERE sn = n AND su.id = :userId)"
+                + " OR " + NoteRepository.TEMPLATE_READER + ")";
+        switch (filter.scope()) {
+            case OWNED -> where.append(owned);
+            case SHARED -> where.append(shared);
+            case ALL -> where.append("(").append(owned).append(" OR ").append(shared).append(")");
+        }
+
+        if (filter.createdFrom() != null) {
+            where.append(" AND n.createdAt >= :createdFrom");
+            params.put("createdFrom", filter.createdFrom());
+        }
+        if (filter.createdTo() != null) {
+            where.append(" AND n.createdAt < :createdTo");
+            params.put("createdTo", filter.createdTo());
+        }
+
+        if (filter.allTags() != null && !filter.allTags().isEmpty()) {
+            where.append(" AND n.id IN (SELECT an.id FROM Note an JOIN an.tags at WHERE at.name IN :allTags")
+                    .append(" GROUP BY an.id HAVING COUNT(DISTINCT at.id) = :allTagCount)");
+            params.put("allTags", filter.allTags());
+            params.put("allTagCount", (long) filter.allTags().size());
+        }
+        if (filter.anyTags() != null && !filter.anyTags().isEmpty()) {
+            where.append(" AND EXISTS (SELECT 1 FROM Note yn JOIN yn.tags yt WHERE yn = n AND yt.name IN :anyTags)");
+            params.put("anyTags", filter.anyTags());
+        }
+
+        if (filter.keyword() != null && !filter.keyword().isBlank()) {
+            where.append(" AND (n.title LIKE :keyword OR n.content LIKE :keyword")
+                    .append(" OR EXISTS (SELECT 1 FROM Note kn JOIN kn.tags kt WHERE kn = n AND kt.name LIKE :keyword))");
+            params.put("keyword", "%" + filter.keyword() + "%");
+        }
+
+        if (filter.noteIds() != null) {
+            where.append(" AND n.id IN :noteIds");
+            params.put("noteIds", filter.noteIds());
+        }
+        return where.toString();
+    }
+}
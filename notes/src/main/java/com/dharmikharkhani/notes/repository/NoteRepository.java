@@ -1,25 +1,174 @@
 package com.dharmikharkhani.notes.repository;
 import com.dharmikharkhani.notes.entity.Note;
 import com.dharmikharkhani.notes.auth.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-public interface NoteRepository extends JpaRepository<Note, UUID>{
+public interface NoteRepository extends JpaRepository<Note, UUID>, NoteQueryRepository {
+
+    /**
+     * JPQL condition: :userId reads template note n
+     */
+    String TEMPLATE_READER = "EXISTS (SELECT 1 FROM Note rn JOIN rn.templateReaders r WHERE rn = n AND r.id = :userId)";
 
     Optional<Note> findByIdAndOwner(UUID id, User owner);
 
     List<Note> findByOwner(User owner);
 
-    @Query("SELECT DISTINCT n FROM Note n WHERE n.owner = :user OR :user MEMBER OF n.sharedWith")
+    @Query("SELECT DISTINCT n FROM Note n WHERE n.owner = :user OR :user MEMBER OF n.sharedWith OR :user MEMBER OF n.templateReaders")
     List<Note> findByOwnerOrSharedWith(@Param("user") User user);
 
-    @Query("SELECT DISTINCT n FROM Note n LEFT JOIN n.tags t WHERE (n.owner = :user OR :user MEMBER OF n.sharedWith) AND (n.title LIKE %:keyword% OR n.content LIKE %:keyword% OR t.name LIKE %:keyword%)")
+    @Query("SELECT DISTINCT n FROM Note n LEFT JOIN n.tags t WHERE (n.owner = :user OR :user MEMBER OF n.sharedWith OR :user MEMBER OF n.templateReaders) AND (n.title LIKE %:keyword% OR n.content LIKE %:keyword% OR t.name LIKE %:keyword%)")
     List<Note> searchNotesByKeyword(@Param("user") User user, @Param("keyword") String keyword);
 
+    @Query("SELECT DISTINCT n.id FROM Note n LEFT JOIN n.sharedWith s WHERE n.id IN :ids AND (n.owner.id = :userId OR s.id = :userId OR " + TEMPLATE_READER + ")")
+    List<UUID> findAccessibleNoteIds(@Param("userId") Long userId, @Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT DISTINCT n.id FROM Note n LEFT JOIN n.sharedWith s WHERE n.owner.id = :userId OR s.id = :userId OR " + TEMPLATE_READER + "")
+    List<UUID> findIdsAccessibleBy(@Param("userId") Long userId);
+
+    @Query("SELECT DISTINCT n.id AS noteId, n.version AS version FROM Note n LEFT JOIN n.sharedWith s WHERE n.owner.id = :userId OR s.id = :userId OR " + TEMPLATE_READER + "")
+    List<NoteVersionRow> findVersionsAccessibleBy(@Param("userId") Long userId);
+
+    @Query("SELECT DISTINCT n.id AS noteId, n.title AS title FROM Note n LEFT JOIN n.sharedWith s WHERE n.owner.id = :userId OR s.id = :userId OR " + TEMPLATE_READER + "")
+    List<NoteTitleRow> findTitlesAccessibleBy(@Param("userId") Long userId);
+
     void deleteByOwner(User owner);
+
+    @Query("SELECT n.id FROM Note n WHERE n.searchBody IS NULL")
+    List<UUID> findIdsMissingSearchText(Limit limit);
+
+    /**
+     * Set the full-text columns directly, leaving the version alone
+     */
+    @Modifying
+    @Query("UPDATE Note n SET n.searchTags = :tags, n.searchBody = :body WHERE n.id = :id")
+    int updateSearchText(@Param("id") UUID id, @Param("tags") String tags, @Param("body") String body);
+
+    @Query("SELECT n.id FROM Note n WHERE n.owner.id = :ownerId")
+    List<UUID> findIdsByOwnerId(@Param("ownerId") Long ownerId);
+
+    /**
+     * Bulk removal of a user's notes without loading them; clear the join tables first
+     */
+    @Modifying
+    @Query(value = "DELETE FROM note_tags WHERE note_id IN (SELECT id FROM note WHERE owner_id = :ownerId)", nativeQuery = true)
+    int deleteTagLinksOfOwner(@Param("ownerId") Long ownerId);
+
+    @Modifying
+    @Query(value = "DELETE FROM note_shared_users WHERE note_id IN (SELECT id FROM note WHERE owner_id = :ownerId)", nativeQuery = true)
+    int deleteShareLinksOfOwner(@Param("ownerId") Long ownerId);
+
+    @Modifying
+    @Query("DELETE FROM Note n WHERE n.owner.id = :ownerId")
+    int deleteAllByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Query("SELECT n FROM Note n WHERE n.owner.id = :userId AND n.templateNoteId = :templateNoteId")
+    Optional<Note> findCopyOfTemplate(@Param("userId") Long userId, @Param("templateNoteId") UUID templateNoteId);
+
+    @Query("SELECT n.id AS noteId, n.title AS title FROM Note n WHERE n.owner.id = :ownerId AND n.template = true")
+    List<NoteTitleRow> findTemplateTitlesByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Query("SELECT CASE WHEN COUNT(n) > 0 THEN true ELSE false END FROM Note n JOIN n.templateReaders r WHERE n.id = :noteId AND r.id = :userId")
+    boolean isTemplateReadBy(@Param("noteId") UUID noteId, @Param("userId") Long userId);
+
+    @Query("SELECT r.id FROM Note n JOIN n.templateReaders r WHERE n.id = :noteId")
+    List<Long> findTemplateReaderIds(@Param("noteId") UUID noteId);
+
+    @Query("SELECT n.id FROM Note n JOIN n.templateReaders r WHERE r.id = :userId AND n.id IN :ids")
+    List<UUID> findTemplateIdsReadBy(@Param("userId") Long userId, @Param("ids") Collection<UUID> ids);
+
+    /**
+     * Give a user read access to template notes
+     */
+    @Modifying
+    @Query(value = "INSERT INTO template_readers (note_id, user_id) SELECT n.id, :userId FROM note n WHERE n.id IN (:ids)", nativeQuery = true)
+    int linkToUser(@Param("ids") Collection<UUID> ids, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM template_readers WHERE note_id = :noteId AND user_id = :userId", nativeQuery = true)
+    int unlinkFromUser(@Param("noteId") UUID noteId, @Param("userId") Long userId);
+
+    /**
+     * Move template readers still stored as collaborators, from before template_readers existed
+     */
+    @Modifying
+    @Query(value = "INSERT INTO template_readers (note_id, user_id) SELECT s.note_id, s.user_id FROM note_shared_users s"
+            + " JOIN note n ON n.id = s.note_id WHERE n.template = true"
+            + " AND NOT EXISTS (SELECT 1 FROM template_readers r WHERE r.note_id = s.note_id AND r.user_id = s.user_id)", nativeQuery = true)
+    int copyLegacyTemplateReaders();
+
+    @Modifying
+    @Query(value = "DELETE FROM note_shared_users WHERE note_id IN (SELECT id FROM note WHERE template = true)", nativeQuery = true)
+    int deleteLegacyTemplateReaders();
+
+    @Query("SELECT n.version FROM Note n WHERE n.id = :id")
+    Optional<Long> findVersionById(@Param("id") UUID id);
+
+    @Query("SELECT CASE WHEN COUNT(n) > 0 THEN true ELSE false END FROM Note n LEFT JOIN n.sharedWith s WHERE n.id = :noteId AND (n.owner.id = :userId OR s.id = :userId OR " + TEMPLATE_READER + ")")
+    boolean hasEditAccess(@Param("noteId") UUID noteId, @Param("userId") Long userId);
+
+    /**
+     * Like hasEditAccess, but template readers may not edit the shared template in place
+     */
+    @Query("SELECT CASE WHEN COUNT(n) > 0 THEN true ELSE false END FROM Note n LEFT JOIN n.sharedWith s WHERE n.id = :noteId AND (n.owner.id = :userId OR s.id = :userId)")
+    boolean hasInPlaceEditAccess(@Param("noteId") UUID noteId, @Param("userId") Long userId);
+
+    @Query("SELECT CASE WHEN COUNT(n) > 0 THEN true ELSE false END FROM Note n WHERE n.id = :noteId AND n.owner.id = :userId")
+    boolean isOwnedBy(@Param("noteId") UUID noteId, @Param("userId") Long userId);
+
+    @Query("SELECT n.id AS noteId, n.owner.id AS userId FROM Note n WHERE n.id IN :ids")
+    List<NoteAccessRow> findOwnerIdsByNoteIds(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT n.id AS noteId, u.id AS userId FROM Note n JOIN n.sharedWith u WHERE n.id IN :ids")
+    List<NoteAccessRow> findCollaboratorIdsByNoteIds(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT n.id AS noteId, t.name AS tagName FROM Note n JOIN n.tags t WHERE n.owner.id = :userId")
+    List<NoteTagRow> findTagNamesOfOwnedNotes(@Param("userId") Long userId);
+
+    @Query("SELECT n.id AS noteId, t.name AS tagName FROM Note n JOIN n.tags t WHERE EXISTS (SELECT 1 FROM Note sn JOIN sn.sharedWith u WHERE sn = n AND u.id = :userId) OR " + TEMPLATE_READER + "")
+    List<NoteTagRow> findTagNamesOfSharedNotes(@Param("userId") Long userId);
+
+    @Query("SELECT n.id AS noteId, t.name AS tagName FROM Note n JOIN n.tags t WHERE n.id IN :ids")
+    List<NoteTagRow> findTagNamesByNoteIds(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Projection of a note id and its title
+     */
+    interface NoteTitleRow {
+        UUID getNoteId();
+        String getTitle();
+    }
+
+    /**
+     * Projection of a note id and its current version
+     */
+    interface NoteVersionRow {
+        UUID getNoteId();
+        long getVersion();
+    }
+
+    /**
+     * Projection pairing a note id with one of its tag names
+     */
+    interface NoteTagRow {
+        UUID getNoteId();
+        String getTagName();
+    }
+
+    /**
+     * Projection for lightweight access checks (note id paired with an owner or collaborator id)
+     */
+    interface NoteAccessRow {
+        UUID getNoteId();
+        Long getUserId();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.dharmikharkhani.notes.repository;
+
+import com.dharmikharkhani.notes.entity.OutboundEmail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboundEmailRepository extends JpaRepository<OutboundEmail, Long> {
+
+    boolean existsByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Lock due pending emails, skipping rows another dispatcher instance has locked
+     */
+    @Query(value = """
+        SELECT * FROM outbound_emails
+        WHERE status = 'PENDING' AND next_attempt_at <= :now
+        ORDER BY next_attempt_at, id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<OutboundEmail> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE OutboundEmail e SET e.nextAttemptAt = :until WHERE e.id IN :ids")
+    int leaseUntil(@Param("ids") Collection<Long> ids, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("DELETE FROM OutboundEmail e WHERE e.status <> :pending AND e.createdAt < :before")
+    int deleteFinishedBefore(@Param("pending") OutboundEmail.Status pending, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,20 @@
+package com.dharmikharkhani.notes.repository;
+
+import com.dharmikharkhani.notes.entity.SequenceCounter;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface SequenceCounterRepository extends JpaRepository<SequenceCounter, String> {
+
+    /**
+     * Lock the counter row until the end of the transaction
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM SequenceCounter c WHERE c.name = :name")
+    Optional<SequenceCounter> lockByName(@Param("name") String name);
+}
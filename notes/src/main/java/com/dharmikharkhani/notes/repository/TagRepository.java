@@ -4,6 +4,7 @@ import com.dharmikharkhani.notes.entity.Tag;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +13,6 @@ public interface TagRepository extends JpaRepository<Tag, Long>{
     List<Tag> findDistinctByNotesOwner(User user);
 
     Optional<Tag> findByName(String name);
+
+    List<Tag> findByNameIn(Collection<String> names);
 }
@@ -0,0 +1,105 @@
+package com.dharmikharkhani.notes.repository.pgvector;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Batched JDBC writes for note embeddings
+ * Upserts are keyed on note_id, so no generated values need to come back from the database.
+ */
+@Repository
+public class NoteEmbeddingBatchRepository {
+
+    // Rows per JDBC batch; the driver rewrites each batch into multi-row INSERT statements
+    private static final int BATCH_SIZE = 200;
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO note_embeddings (id, note_id, embedding, content_hash, created_at, updated_at)
+        VALUES (?, ?, CAST(? AS vector), ?, ?, ?)
+        ON CONFLICT (note_id) DO UPDATE SET
+            embedding = EXCLUDED.embedding,
+            content_hash = EXCLUDED.content_hash,
+            updated_at = EXCLUDED.updated_at
+        WHERE note_embeddings.content_hash IS DISTINCT FROM EXCLUDED.content_hash
+        """;
+
+    // Copies the vector of any row with the same content hash; inserts nothing if there is none
+    private static final String CLONE_SQL = """
+        INSERT INTO note_embeddings (id, note_id, embedding, content_hash, created_at, updated_at)
+        SELECT ?, ?, source.embedding, source.content_hash, ?, ?
+        FROM (SELECT embedding, content_hash FROM note_embeddings WHERE content_hash = ? LIMIT 1) source
+        ON CONFLICT (note_id) DO UPDATE SET
+            embedding = EXCLUDED.embedding,
+            content_hash = EXCLUDED.content_hash,
+            updated_at = EXCLUDED.updated_at
+        WHERE note_embeddings.content_hash IS DISTINCT FROM EXCLUDED.content_hash
+        """;
+
+    /**
+     * @param embedding vector literal, e.g. "[0.1,0.2]"
+     */
+    public record EmbeddingRow(UUID noteId, String embedding, String contentHash) {
+    }
+
+    public record CloneRow(UUID noteId, String contentHash) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public NoteEmbeddingBatchRepository(@Qualifier("pgvectorDataSource") DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Insert the embeddings of the given notes, replacing stored ones whose content hash differs
+     */
+    @Transactional("pgvectorTransactionManager")
+    public void upsertAll(List<EmbeddingRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, BATCH_SIZE, (ps, row) -> {
+            ps.setObject(1, UUID.randomUUID());
+            ps.setObject(2, row.noteId());
+            ps.setString(3, row.embedding());
+            ps.setString(4, row.contentHash());
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, now);
+        });
+    }
+
+    /**
+     * Give each note the embedding already stored for its content hash, without calling the embedding API
+     *
+     * @return notes that got no row because no embedding with their hash exists (any more)
+     */
+    @Transactional("pgvectorTransactionManager")
+    public List<UUID> cloneAll(List<CloneRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts = jdbcTemplate.batchUpdate(CLONE_SQL, rows, BATCH_SIZE, (ps, row) -> {
+            ps.setObject(1, UUID.randomUUID());
+            ps.setObject(2, row.noteId());
+            ps.setTimestamp(3, now);
+            ps.setTimestamp(4, now);
+            ps.setString(5, row.contentHash());
+        });
+        List<UUID> missed = new ArrayList<>();
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    missed.add(rows.get(i).noteId());
+                }
+                i++;
+            }
+        }
+        return missed;
+    }
+}
@@ -2,10 +2,13 @@ package com.dharmikharkhani.notes.repository.pgvector;
 
 import com.dharmikharkhani.notes.entity.pgvector.NoteEmbedding;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -19,6 +22,43 @@ public interface NoteEmbeddingRepository extends JpaRepository<NoteEmbedding, UU
 
     void deleteByNoteId(UUID noteId);
 
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM NoteEmbedding e WHERE e.noteId IN :noteIds")
+    int deleteByNoteIdIn(@Param("noteIds") Collection<UUID> noteIds);
+
+    @Query("SELECT e.contentHash FROM NoteEmbedding e WHERE e.noteId = :noteId")
+    Optional<String> findContentHashByNoteId(@Param("noteId") UUID noteId);
+
+    /**
+     * Insert a note's embedding, or replace it if the content hash differs, in one atomic statement
+     *
+     * @return 1 if a row was inserted or updated, 0 if the stored embedding already had this content hash
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        INSERT INTO note_embeddings (id, note_id, embedding, content_hash, created_at, updated_at)
+        VALUES (:id, :noteId, CAST(:embedding AS vector), :contentHash, now(), now())
+        ON CONFLICT (note_id) DO UPDATE SET
+            embedding = EXCLUDED.embedding,
+            content_hash = EXCLUDED.content_hash,
+            updated_at = EXCLUDED.updated_at
+        WHERE note_embeddings.content_hash IS DISTINCT FROM EXCLUDED.content_hash
+        """, nativeQuery = true)
+    int upsertEmbedding(
+        @Param("id") UUID id,
+        @Param("noteId") UUID noteId,
+        @Param("embedding") String embedding,
+        @Param("contentHash") String contentHash
+    );
+
+    @Query("SELECT e.noteId AS noteId, e.contentHash AS contentHash FROM NoteEmbedding e WHERE e.noteId IN :noteIds")
+    List<ContentHashRow> findContentHashes(@Param("noteIds") Collection<UUID> noteIds);
+
+    @Query("SELECT DISTINCT e.contentHash FROM NoteEmbedding e WHERE e.contentHash IN :hashes")
+    List<String> findExistingContentHashes(@Param("hashes") Collection<String> hashes);
+
     /**
      * Find similar notes using cosine similarity with pgvector
      *
@@ -42,6 +82,33 @@ public interface NoteEmbeddingRepository extends JpaRepository<NoteEmbedding, UU
         @Param("threshold") double threshold
     );
 
+    /**
+     * Find the notes most similar to a query vector among a candidate set
+     * Restricting before ranking keeps the top results from being spent on notes the caller would filter out.
+     *
+     * @param queryEmbedding The embedding vector to search for
+     * @param candidateIds Notes that may be returned
+     * @param limit Maximum number of results to return
+     * @param threshold Minimum similarity threshold (0-1, where 1 is most similar)
+     * @return Candidate note IDs with their similarity scores, most similar first
+     */
+    @Query(value = """
+        SELECT
+            note_id as noteId,
+            1 - (embedding <=> CAST(:queryEmbedding AS vector)) as similarity
+        FROM note_embeddings
+        WHERE note_id IN (:candidateIds)
+          AND 1 - (embedding <=> CAST(:queryEmbedding AS vector)) >= :threshold
+        ORDER BY embedding <=> CAST(:queryEmbedding AS vector)
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<SimilarityResult> findSimilarAmong(
+        @Param("queryEmbedding") String queryEmbedding,
+        @Param("candidateIds") Collection<UUID> candidateIds,
+        @Param("limit") int limit,
+        @Param("threshold") double threshold
+    );
+
     /**
      * Find similar notes WITHOUT threshold filter (for debugging)
      */
@@ -58,6 +125,30 @@ public interface NoteEmbeddingRepository extends JpaRepository<NoteEmbedding, UU
         @Param("limit") int limit
     );
 
+    /**
+     * Find the notes nearest to a note among a candidate set, using that note's stored embedding as the query vector
+     * The source vector is read by a scalar subquery, so it is looked up once rather than per candidate.
+     *
+     * @param noteId The note whose embedding is the query
+     * @param candidateIds Notes that may be returned
+     * @param limit Maximum number of results to return
+     * @return Nearest candidates with their similarity scores, most similar first
+     */
+    @Query(value = """
+        SELECT
+            e.note_id as noteId,
+            1 - (e.embedding <=> (SELECT s.embedding FROM note_embeddings s WHERE s.note_id = :noteId)) as similarity
+        FROM note_embeddings e
+        WHERE e.note_id IN (:candidateIds) AND e.note_id <> :noteId
+        ORDER BY e.embedding <=> (SELECT s.embedding FROM note_embeddings s WHERE s.note_id = :noteId)
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<SimilarityResult> findNearestToNoteAmong(
+        @Param("noteId") UUID noteId,
+        @Param("candidateIds") Collection<UUID> candidateIds,
+        @Param("limit") int limit
+    );
+
     /**
      * Projection interface for similarity search results
      */
@@ -65,4 +156,9 @@ public interface NoteEmbeddingRepository extends JpaRepository<NoteEmbedding, UU
         UUID getNoteId();
         Double getSimilarity();
     }
+
+    interface ContentHashRow {
+        UUID getNoteId();
+        String getContentHash();
+    }
 }
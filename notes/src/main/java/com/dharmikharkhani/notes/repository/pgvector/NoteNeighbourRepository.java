@@ -0,0 +1,135 @@
+package com.dharmikharkhani.notes.repository.pgvector;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * kNN queries restricted to a candidate set that is staged once per transaction, rather than sent as an
+ * IN list with every statement.
+ *
+ * Neighbours are first taken from an index-ordered scan over all embeddings, probing a multiple of k and keeping
+ * the candidates; only source notes left with fewer than k neighbours (candidates sparse among all notes) fall
+ * back to an exact scan of the candidates.
+ */
+@Repository
+public class NoteNeighbourRepository {
+
+    private static final int BATCH_SIZE = 1000;
+    // Nearest notes read from the index per neighbour wanted
+    public static final int PROBE_FACTOR = 10;
+
+    private static final String CREATE_CANDIDATES =
+        "CREATE TEMP TABLE IF NOT EXISTS knn_candidates (note_id uuid PRIMARY KEY) ON COMMIT DELETE ROWS";
+
+    private static final String INDEXED_SQL = """
+        SELECT s.note_id AS source_id, n.note_id AS note_id, n.similarity AS similarity
+        FROM note_embeddings s
+        CROSS JOIN LATERAL (
+            SELECT a.note_id, 1 - a.distance AS similarity
+            FROM (
+                SELECT e.note_id, e.embedding <=> s.embedding AS distance
+                FROM note_embeddings e
+                ORDER BY e.embedding <=> s.embedding
+                LIMIT :probe
+            ) a
+            JOIN knn_candidates c ON c.note_id = a.note_id
+            WHERE a.note_id <> s.note_id
+            ORDER BY a.distance
+            LIMIT :limit
+        ) n
+        WHERE s.note_id IN (:sourceIds)
+        """;
+
+    private static final String EXACT_SQL = """
+        SELECT s.note_id AS source_id, n.note_id AS note_id, n.similarity AS similarity
+        FROM note_embeddings s
+        CROSS JOIN LATERAL (
+            SELECT e.note_id, 1 - (e.embedding <=> s.embedding) AS similarity
+            FROM knn_candidates c
+            JOIN note_embeddings e ON e.note_id = c.note_id
+            WHERE e.note_id <> s.note_id
+            ORDER BY e.embedding <=> s.embedding
+            LIMIT :limit
+        ) n
+        WHERE s.note_id IN (:sourceIds)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public NoteNeighbourRepository(@Qualifier("pgvectorDataSource") DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Replace the current transaction's candidate set
+     */
+    @Transactional(value = "pgvectorTransactionManager", propagation = Propagation.MANDATORY)
+    public void stageCandidates(Collection<UUID> candidateIds) {
+        jdbcTemplate.execute(CREATE_CANDIDATES);
+        jdbcTemplate.update("DELETE FROM knn_candidates");
+        jdbcTemplate.batchUpdate("INSERT INTO knn_candidates (note_id) VALUES (?)", new ArrayList<>(candidateIds), BATCH_SIZE,
+                (ps, id) -> ps.setObject(1, id));
+        // Temp tables get no statistics otherwise, so the planner would guess the candidate count
+        jdbcTemplate.execute("ANALYZE knn_candidates");
+    }
+
+    /**
+     * Staged candidates whose embedding was written after the given time
+     */
+    @Transactional(value = "pgvectorTransactionManager", propagation = Propagation.MANDATORY)
+    public List<UUID> findCandidatesUpdatedAfter(LocalDateTime since) {
+        return jdbcTemplate.queryForList("""
+            SELECT e.note_id FROM note_embeddings e JOIN knn_candidates c ON c.note_id = e.note_id
+            WHERE e.updated_at > ?
+            """, UUID.class, Timestamp.valueOf(since));
+    }
+
+    /**
+     * For each source note, its nearest staged candidates, most similar first
+     *
+     * @param candidateCount size of the staged set; small sets are scanned exactly straight away
+     */
+    @Transactional(value = "pgvectorTransactionManager", propagation = Propagation.MANDATORY)
+    public Map<UUID, Map<UUID, Double>> findNearestCandidates(Collection<UUID> sourceIds, int candidateCount, int limit) {
+        Map<UUID, Map<UUID, Double>> neighbours = new HashMap<>();
+        if (sourceIds.isEmpty()) {
+            return neighbours;
+        }
+        int probe = limit * PROBE_FACTOR;
+        Collection<UUID> exact = sourceIds;
+        if (candidateCount > probe) {
+            query(INDEXED_SQL, sourceIds, limit, probe, neighbours);
+            exact = sourceIds.stream()
+                .filter(id -> neighbours.getOrDefault(id, Map.of()).size() < limit)
+                .toList();
+            exact.forEach(neighbours::remove);
+        }
+        if (!exact.isEmpty()) {
+            query(EXACT_SQL, exact, limit, probe, neighbours);
+        }
+        return neighbours;
+    }
+
+    private void query(String sql, Collection<UUID> sourceIds, int limit, int probe, Map<UUID, Map<UUID, Double>> into) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("sourceIds", sourceIds)
+            .addValue("limit", limit)
+            .addValue("probe", probe);
+        namedJdbcTemplate.query(sql + " ORDER BY s.note_id, n.similarity DESC", params, rs -> {
+            into.computeIfAbsent(rs.getObject("source_id", UUID.class), id -> new LinkedHashMap<>())
+                .put(rs.getObject("note_id", UUID.class), rs.getDouble("similarity"));
+        });
+    }
+}
@@ -2,7 +2,6 @@ package com.dharmikharkhani.notes.service;
 
 import com.dharmikharkhani.notes.auth.model.User;
 import com.dharmikharkhani.notes.auth.repository.UserRepository;
-import com.dharmikharkhani.notes.entity.Note;
 import com.dharmikharkhani.notes.exception.ResourceNotFoundException;
 import com.dharmikharkhani.notes.repository.NoteRepository;
 import jakarta.transaction.Transactional;
@@ -31,22 +30,39 @@ public class AuthorizationService {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        return noteRepository.findById(noteId)
-                .map(note -> {
-                    // Check if user is the owner
-                    boolean isOwner = note.getOwner().getId().equals(user.getId());
-                    // Check if user is a collaborator
-                    boolean isCollaborator = note.getSharedWith().stream()
-                            .anyMatch(collaborator -> collaborator.getId().equals(user.getId()));
-                    return isOwner || isCollaborator;
-                })
-                .orElseThrow(ResourceNotFoundException::new);
+        if (!noteRepository.existsById(noteId)) {
+            throw new ResourceNotFoundException();
+        }
+        // Owner or collaborator, checked in SQL without loading the note content
+        return noteRepository.hasEditAccess(noteId, user.getId());
+    }
+
+    // Like isAllowedToEditNote, but shared templates are read-only for their readers (edits go through a copy)
+    public boolean isAllowedToEditInPlace(UUID noteId) {
+        User user = currentUser();
+        if (!noteRepository.existsById(noteId)) {
+            throw new ResourceNotFoundException();
+        }
+        return noteRepository.hasInPlaceEditAccess(noteId, user.getId());
+    }
+
+    public boolean isReadingTemplate(UUID noteId) {
+        return noteRepository.isTemplateReadBy(noteId, currentUser().getId());
     }
 
     public boolean isAllowedToDeleteNote(@PathVariable UUID noteId) {
         String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        return noteRepository.findById(noteId).map(note -> note.getOwner().getId().equals(user.getId())).orElseThrow(ResourceNotFoundException::new);
+        if (!noteRepository.existsById(noteId)) {
+            throw new ResourceNotFoundException();
+        }
+        return noteRepository.isOwnedBy(noteId, user.getId());
+    }
+
+    private User currentUser() {
+        String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+        return userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found"));
     }
 }
@@ -0,0 +1,148 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.auth.model.User;
+import com.dharmikharkhani.notes.auth.repository.UserRepository;
+import com.dharmikharkhani.notes.auth.security.JwtUtil;
+import com.dharmikharkhani.notes.dto.CollaborationGrantDTO;
+import com.dharmikharkhani.notes.dto.CollaborationVerifyItemDTO;
+import com.dharmikharkhani.notes.repository.NoteRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies collaboration access for many (token, noteId) pairs at once and issues
+ * short-lived signed grants the Hocuspocus server can check locally on reconnect.
+ */
+@Service
+public class CollaborationGrantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CollaborationGrantService.class);
+
+    public static final int MAX_BATCH_SIZE = 200;
+
+    private final JwtUtil jwtUtil;
+    private final UserRepository userRepository;
+    private final NoteRepository noteRepository;
+    private final Key grantKey;
+    private final long grantTtlMs;
+
+    public CollaborationGrantService(JwtUtil jwtUtil, UserRepository userRepository, NoteRepository noteRepository,
+                                     @Value("${app.collaboration.grant-secret:}") String grantSecret,
+                                     @Value("${app.collaboration.grant-ttl-ms:300000}") long grantTtlMs) {
+        this.jwtUtil = jwtUtil;
+        this.userRepository = userRepository;
+        this.noteRepository = noteRepository;
+        this.grantTtlMs = grantTtlMs;
+
+        if (grantSecret == null || grantSecret.isBlank()) {
+            logger.warn("COLLABORATION_GRANT_SECRET not set - collaboration grants are disabled");
+            this.grantKey = null;
+        } else if (grantSecret.length() < 32) {
+            throw new IllegalArgumentException("Collaboration grant secret must be at least 32 characters");
+        } else {
+            this.grantKey = Keys.hmacShaKeyFor(grantSecret.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Verify a batch of (token, noteId) pairs with one user lookup and two access queries,
+     * regardless of how many pairs are in the batch. Results are returned in request order.
+     */
+    @Transactional(readOnly = true)
+    public List<CollaborationGrantDTO> verifyBatch(List<CollaborationVerifyItemDTO> items) {
+        if (items == null || items.isEmpty()) {
+            return List.of();
+        }
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size exceeds " + MAX_BATCH_SIZE);
+        }
+
+        // Tokens are verified locally, no DB access needed
+        Map<String, String> emailByToken = new HashMap<>();
+        for (CollaborationVerifyItemDTO item : items) {
+            if (item.token() != null && !emailByToken.containsKey(item.token())) {
+                emailByToken.put(item.token(), jwtUtil.extractEmailIfValid(item.token()));
+            }
+        }
+
+        Set<String> emails = emailByToken.values().stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, User> usersByEmail = emails.isEmpty() ? Map.of() :
+                userRepository.findByEmailIn(emails).stream()
+                        .collect(Collectors.toMap(User::getEmail, Function.identity()));
+
+        Set<UUID> noteIds = items.stream()
+                .map(CollaborationVerifyItemDTO::noteId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<UUID, Set<Long>> allowedUsersByNote = loadAllowedUsers(noteIds);
+
+        List<CollaborationGrantDTO> results = new ArrayList<>(items.size());
+        for (CollaborationVerifyItemDTO item : items) {
+            String email = item.token() != null ? emailByToken.get(item.token()) : null;
+            User user = email != null ? usersByEmail.get(email) : null;
+            Set<Long> allowedUsers = item.noteId() != null ? allowedUsersByNote.get(item.noteId()) : null;
+
+            if (user == null || allowedUsers == null || !allowedUsers.contains(user.getId())) {
+                results.add(CollaborationGrantDTO.denied(item.noteId()));
+                continue;
+            }
+
+            results.add(issueGrant(user, item.noteId()));
+        }
+
+        logger.debug("Verified {} collaboration requests ({} distinct users, {} distinct notes)",
+                items.size(), usersByEmail.size(), noteIds.size());
+        return results;
+    }
+
+    /**
+     * Build an allowed grant for a user that already passed the access check
+     */
+    public CollaborationGrantDTO issueGrant(User user, UUID noteId) {
+        if (grantKey == null) {
+            return new CollaborationGrantDTO(noteId, true, user.getEmail(), user.getUsername(), null, null);
+        }
+
+        Date now = new Date();
+        Date exp = new Date(now.getTime() + grantTtlMs);
+        String grant = Jwts.builder()
+                .setSubject(user.getEmail())
+                .setIssuedAt(now)
+                .setExpiration(exp)
+                .claim("nid", noteId.toString())
+                .claim("name", user.getUsername())
+                .signWith(grantKey, SignatureAlgorithm.HS256)
+                .compact();
+
+        return new CollaborationGrantDTO(noteId, true, user.getEmail(), user.getUsername(), grant, exp.getTime());
+    }
+
+    private Map<UUID, Set<Long>> loadAllowedUsers(Set<UUID> noteIds) {
+        if (noteIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<UUID, Set<Long>> allowed = new HashMap<>();
+        for (NoteRepository.NoteAccessRow row : noteRepository.findOwnerIdsByNoteIds(noteIds)) {
+            allowed.computeIfAbsent(row.getNoteId(), id -> new HashSet<>()).add(row.getUserId());
+        }
+        // Template readers are not collaborators; they get a private copy instead of editing the shared document
+        for (NoteRepository.NoteAccessRow row : noteRepository.findCollaboratorIdsByNoteIds(noteIds)) {
+            allowed.computeIfAbsent(row.getNoteId(), id -> new HashSet<>()).add(row.getUserId());
+        }
+        return allowed;
+    }
+}
@@ -6,9 +6,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @Service
@@ -16,54 +16,68 @@ public class DemoAccountResetService {
 
     private static final Logger logger = LoggerFactory.getLogger(DemoAccountResetService.class);
     private static final int INACTIVITY_THRESHOLD_HOURS = 2;
+    // The hour is split into SHARDS slots of SLOT_MINUTES; accounts are assigned to a slot by id
+    private static final int SHARDS = 12;
+    private static final int SLOT_MINUTES = 60 / SHARDS;
+    private static final String LEASE_NAME = "demo-account-reset";
 
     private final UserRepository userRepository;
     private final DemoAccountService demoAccountService;
+    private final JobLeaseService jobLeaseService;
 
-    public DemoAccountResetService(UserRepository userRepository, DemoAccountService demoAccountService) {
+    public DemoAccountResetService(UserRepository userRepository, DemoAccountService demoAccountService,
+                                   JobLeaseService jobLeaseService) {
         this.userRepository = userRepository;
         this.demoAccountService = demoAccountService;
+        this.jobLeaseService = jobLeaseService;
     }
 
     /**
-     * Scheduled job that runs every hour to reset inactive demo accounts
-     * Cron expression: "0 0 * * * *" = At minute 0 of every hour
+     * Scheduled job that resets inactive demo accounts, one shard at a time
+     * Runs every five minutes and handles the accounts whose id falls in the current twelfth of the hour, so each
+     * account is still checked hourly but the work is spread out. Every account is reset in its own transaction,
+     * and a database lease held until the end of the slot makes only one instance process it.
      */
-    @Scheduled(cron = "0 0 * * * *")
-    @Transactional
+    @Scheduled(cron = "0 */5 * * * *")
     public void resetInactiveDemoAccounts() {
-        logger.info("Starting scheduled demo account reset job");
+        LocalDateTime now = LocalDateTime.now();
+        int shard = now.getMinute() / SLOT_MINUTES;
+        LocalDateTime slotEnd = now.truncatedTo(ChronoUnit.HOURS).plusMinutes((long) (shard + 1) * SLOT_MINUTES);
+        if (!jobLeaseService.tryAcquire(LEASE_NAME, slotEnd)) {
+            logger.debug("Demo account reset for shard {} is handled by another instance", shard);
+            return;
+        }
 
-        LocalDateTime threshold = LocalDateTime.now().minusHours(INACTIVITY_THRESHOLD_HOURS);
+        LocalDateTime threshold = now.minusHours(INACTIVITY_THRESHOLD_HOURS);
 
-        // Find demo accounts that have been inactive for more than INACTIVITY_THRESHOLD_HOURS
-        List<User> inactiveDemoUsers = userRepository.findByIsDemoAccountTrueAndLastActivityAtBefore(threshold);
+        // Find this shard's demo accounts that have been inactive for more than INACTIVITY_THRESHOLD_HOURS
+        List<User> inactiveDemoUsers = userRepository.findInactiveDemoAccountsInShard(threshold, SHARDS, shard);
 
         if (inactiveDemoUsers.isEmpty()) {
-            logger.info("No inactive demo accounts found");
+            logger.debug("No inactive demo accounts in shard {}", shard);
             return;
         }
 
-        logger.info("Found {} inactive demo accounts to reset", inactiveDemoUsers.size());
+        logger.info("Found {} inactive demo accounts to reset in shard {}", inactiveDemoUsers.size(), shard);
 
         int resetCount = 0;
         for (User user : inactiveDemoUsers) {
             try {
-                demoAccountService.resetDemoAccount(user);
-                resetCount++;
+                if (demoAccountService.resetIfInactive(user.getId(), threshold)) {
+                    resetCount++;
+                }
             } catch (Exception e) {
                 logger.error("Failed to reset demo account {}: {}", user.getEmail(), e.getMessage(), e);
             }
         }
 
-        logger.info("Demo account reset job completed. Reset {} out of {} accounts",
-                    resetCount, inactiveDemoUsers.size());
+        logger.info("Demo account reset for shard {} completed. Reset {} out of {} accounts",
+                    shard, resetCount, inactiveDemoUsers.size());
     }
 
     /**
      * Manual trigger for resetting all demo accounts (useful for admin/testing)
      */
-    @Transactional
     public void resetAllDemoAccounts() {
         logger.info("Manual reset of all demo accounts triggered");
 
@@ -74,8 +88,17 @@ public class DemoAccountResetService {
             return;
         }
 
+        int resetCount = resetEach(allDemoUsers);
+
+        logger.info("Manual reset completed. Reset {} demo accounts", resetCount);
+    }
+
+    /**
+     * Reset each account in its own transaction, so a long list never holds one big transaction
+     */
+    private int resetEach(List<User> users) {
         int resetCount = 0;
-        for (User user : allDemoUsers) {
+        for (User user : users) {
             try {
                 demoAccountService.resetDemoAccount(user);
                 resetCount++;
@@ -83,7 +106,6 @@ public class DemoAccountResetService {
                 logger.error("Failed to reset demo account {}: {}", user.getEmail(), e.getMessage(), e);
             }
         }
-
-        logger.info("Manual reset completed. Reset {} demo accounts", resetCount);
+        return resetCount;
     }
 }
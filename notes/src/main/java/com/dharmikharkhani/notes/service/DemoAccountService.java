@@ -4,33 +4,54 @@ import com.dharmikharkhani.notes.auth.model.User;
 import com.dharmikharkhani.notes.auth.repository.UserRepository;
 import com.dharmikharkhani.notes.entity.Note;
 import com.dharmikharkhani.notes.entity.Tag;
+import com.dharmikharkhani.notes.repository.NoteDocumentUpdateRepository;
 import com.dharmikharkhani.notes.repository.NoteRepository;
-import com.dharmikharkhani.notes.repository.TagRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.time.LocalDateTime;
+import java.util.*;
 
 @Service
 public class DemoAccountService {
 
     private static final Logger logger = LoggerFactory.getLogger(DemoAccountService.class);
 
+    private static final List<CrossShare> CROSS_SHARES = List.of(
+            new CrossShare("demo-pm@notesapp.com", "Q1 2025 Product Roadmap", "demo-dev@notesapp.com", "demo-design@notesapp.com"),
+            new CrossShare("demo-pm@notesapp.com", "Sprint Planning Notes", "demo-dev@notesapp.com"),
+            new CrossShare("demo-dev@notesapp.com", "API Documentation - Authentication", "demo-pm@notesapp.com"),
+            new CrossShare("demo-dev@notesapp.com", "Bug Tracker - WebSocket Issues", "demo-pm@notesapp.com", "demo-design@notesapp.com"),
+            new CrossShare("demo-design@notesapp.com", "UI Mockups - Mobile Dashboard", "demo-pm@notesapp.com", "demo-dev@notesapp.com"),
+            new CrossShare("demo-design@notesapp.com", "Design System - Color Palette", "demo-dev@notesapp.com", "demo-writer@notesapp.com"),
+            new CrossShare("demo-writer@notesapp.com", "Blog Post Draft: Getting Started with Notes", "demo-pm@notesapp.com", "demo-design@notesapp.com"),
+            new CrossShare("demo-student@notesapp.com", "Project Ideas - Spring Semester", "demo-dev@notesapp.com"));
+
     private final UserRepository userRepository;
     private final NoteRepository noteRepository;
-    private final TagRepository tagRepository;
+    private final TagResolutionService tagResolutionService;
     private final BCryptPasswordEncoder passwordEncoder;
+    private final NoteDocumentUpdateRepository noteDocumentUpdateRepository;
+    private final NoteChangeLogService noteChangeLogService;
+    private final EmbeddingOutboxService embeddingOutboxService;
+    private final NoteTemplateService templateService;
 
     public DemoAccountService(UserRepository userRepository, NoteRepository noteRepository,
-                              TagRepository tagRepository, BCryptPasswordEncoder passwordEncoder) {
+                              TagResolutionService tagResolutionService, BCryptPasswordEncoder passwordEncoder,
+                              NoteDocumentUpdateRepository noteDocumentUpdateRepository,
+                              NoteChangeLogService noteChangeLogService, EmbeddingOutboxService embeddingOutboxService,
+                              NoteTemplateService templateService) {
         this.userRepository = userRepository;
         this.noteRepository = noteRepository;
-        this.tagRepository = tagRepository;
+        this.tagResolutionService = tagResolutionService;
         this.passwordEncoder = passwordEncoder;
+        this.noteDocumentUpdateRepository = noteDocumentUpdateRepository;
+        this.noteChangeLogService = noteChangeLogService;
+        this.embeddingOutboxService = embeddingOutboxService;
+        this.templateService = templateService;
     }
 
     @Transactional
@@ -58,103 +79,155 @@ public class DemoAccountService {
 
         User savedUser = userRepository.save(demoUser);
 
-        // Create demo notes based on persona
-        createDemoNotes(savedUser, personaType);
+        // Reference the persona's shared template notes; copies are only made on edit
+        templateService.link(savedUser, templatesFor(personaType));
 
         logger.info("Demo account created successfully: {}", email);
         return savedUser;
     }
 
+    /**
+     * Return the account to the persona's templates: its own notes and template copies are removed with bulk
+     * statements, the template links are restored and the cross-account shares recreated
+     */
     @Transactional
     public void resetDemoAccount(User user) {
         logger.info("Resetting demo account: {}", user.getEmail());
+        long started = System.nanoTime();
+
+        // Delete all notes owned by the demo user (template copies and notes they created)
+        List<UUID> oldNoteIds = noteRepository.findIdsByOwnerId(user.getId());
+        if (!oldNoteIds.isEmpty()) {
+            Map<UUID, Set<Long>> audience = new HashMap<>();
+            for (UUID noteId : oldNoteIds) {
+                audience.computeIfAbsent(noteId, id -> new HashSet<>()).add(user.getId());
+            }
+            for (NoteRepository.NoteAccessRow row : noteRepository.findCollaboratorIdsByNoteIds(oldNoteIds)) {
+                audience.get(row.getNoteId()).add(row.getUserId());
+            }
+            audience.forEach(noteChangeLogService::recordRemoval);
+
+            noteDocumentUpdateRepository.deleteByNoteIdIn(oldNoteIds);
+            noteRepository.deleteTagLinksOfOwner(user.getId());
+            noteRepository.deleteShareLinksOfOwner(user.getId());
+            noteRepository.deleteAllByOwnerId(user.getId());
+        }
 
-        // Delete all notes owned by the demo user
-        noteRepository.deleteByOwner(user);
-
-        // Recreate demo notes based on email (extract persona type)
+        // Restore links to templates the user edited (now deleted copies) or hid
         String personaType = extractPersonaType(user.getEmail());
-        createDemoNotes(user, personaType);
+        int linked = templateService.link(user, templatesFor(personaType));
+        applyCrossShares(user);
+
+        // Queued after the shared copies' upserts so the relay copies their embeddings before dropping the old ones
+        if (!oldNoteIds.isEmpty()) {
+            embeddingOutboxService.enqueueDeletes(oldNoteIds);
+        }
 
         // Reset activity timestamp
         user.setLastActivityAt(null);
         userRepository.save(user);
 
-        logger.info("Demo account reset complete: {}", user.getEmail());
+        logger.info("Demo account reset complete: {} ({} notes removed, {} templates relinked) in {} ms",
+                user.getEmail(), oldNoteIds.size(), linked, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Reset the account unless it became active again after it was picked for reset
+     *
+     * @return whether the account was reset
+     */
+    @Transactional
+    public boolean resetIfInactive(Long userId, LocalDateTime threshold) {
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null || user.getLastActivityAt() == null || !user.getLastActivityAt().isBefore(threshold)) {
+            return false;
+        }
+        resetDemoAccount(user);
+        return true;
     }
 
     @Transactional
     public void shareNotesBetweenDemoAccounts() {
         logger.info("Setting up note sharing between demo accounts...");
 
-        User pm = userRepository.findByEmail("demo-pm@notesapp.com").orElse(null);
-        User dev = userRepository.findByEmail("demo-dev@notesapp.com").orElse(null);
-        User designer = userRepository.findByEmail("demo-design@notesapp.com").orElse(null);
-        User writer = userRepository.findByEmail("demo-writer@notesapp.com").orElse(null);
-        User student = userRepository.findByEmail("demo-student@notesapp.com").orElse(null);
-
-        if (pm == null || dev == null || designer == null || writer == null || student == null) {
-            logger.warn("Not all demo accounts found, skipping note sharing");
-            return;
+        for (String email : List.of("demo-pm@notesapp.com", "demo-dev@notesapp.com", "demo-design@notesapp.com",
+                "demo-writer@notesapp.com", "demo-student@notesapp.com")) {
+            if (userRepository.findByEmail(email).isEmpty()) {
+                logger.warn("Not all demo accounts found, skipping note sharing");
+                return;
+            }
+        }
+        for (CrossShare share : CROSS_SHARES) {
+            userRepository.findByEmail(share.ownerEmail()).ifPresent(this::applyCrossShares);
         }
-
-        // Share PM's roadmap with Dev and Designer
-        shareNoteByTitle(pm, "Q1 2025 Product Roadmap", dev, designer);
-
-        // Share PM's sprint planning with Dev
-        shareNoteByTitle(pm, "Sprint Planning Notes", dev);
-
-        // Share Dev's API docs with PM
-        shareNoteByTitle(dev, "API Documentation - Authentication", pm);
-
-        // Share Dev's bug tracker with PM and Designer
-        shareNoteByTitle(dev, "Bug Tracker - WebSocket Issues", pm, designer);
-
-        // Share Designer's mockups with PM and Dev
-        shareNoteByTitle(designer, "UI Mockups - Mobile Dashboard", pm, dev);
-
-        // Share Designer's design system with Dev and Writer
-        shareNoteByTitle(designer, "Design System - Color Palette", dev, writer);
-
-        // Share Writer's blog draft with PM and Designer
-        shareNoteByTitle(writer, "Blog Post Draft: Getting Started with Notes", pm, designer);
-
-        // Share Student's project ideas with Dev
-        shareNoteByTitle(student, "Project Ideas - Spring Semester", dev);
 
         logger.info("Note sharing setup complete");
     }
 
-    private void shareNoteByTitle(User owner, String title, User... usersToShareWith) {
-        noteRepository.findByOwner(owner).stream()
-            .filter(note -> note.getTitle().equals(title))
-            .findFirst()
-            .ifPresent(note -> {
-                Set<User> sharedWith = note.getSharedWith();
-                if (sharedWith == null) {
-                    sharedWith = new HashSet<>();
-                }
-                for (User user : usersToShareWith) {
-                    sharedWith.add(user);
-                }
-                note.setSharedWith(sharedWith);
-
-                // Add collaboration banner to the note content
-                String[] collaboratorNames = new String[usersToShareWith.length];
-                for (int i = 0; i < usersToShareWith.length; i++) {
-                    collaboratorNames[i] = usersToShareWith[i].getName();
-                }
-                String banner = createCollaborationBanner(collaboratorNames);
-
-                // Prepend banner to existing content if not already present
-                String currentContent = note.getContent();
-                if (!currentContent.contains("Live Collaboration Active")) {
-                    note.setContent(banner + currentContent);
-                }
-
-                noteRepository.save(note);
-                logger.debug("Shared note '{}' from {} with {} users", title, owner.getEmail(), usersToShareWith.length);
-            });
+    /**
+     * Notes a demo user shares with other demo accounts for live collaboration
+     * These are the owner's private copies of the templates, so edits are seen by all of them.
+     */
+    private void applyCrossShares(User owner) {
+        List<NoteRepository.NoteTitleRow> templates = null;
+        for (CrossShare share : CROSS_SHARES) {
+            if (!share.ownerEmail().equals(owner.getEmail())) {
+                continue;
+            }
+            if (templates == null) {
+                templates = templatesFor(extractPersonaType(owner.getEmail()));
+            }
+            Optional<Note> template = templates.stream()
+                    .filter(row -> row.getTitle().equals(share.title()))
+                    .findFirst()
+                    .flatMap(row -> noteRepository.findById(row.getNoteId()));
+            List<User> usersToShareWith = Arrays.stream(share.recipientEmails())
+                    .map(userRepository::findByEmail)
+                    .flatMap(Optional::stream)
+                    .toList();
+            if (template.isEmpty() || usersToShareWith.isEmpty()) {
+                continue;
+            }
+
+            Note note = templateService.materialize(template.get(), owner);
+            note.getSharedWith().addAll(usersToShareWith);
+
+            // Add collaboration banner to the note content if not already present
+            String banner = createCollaborationBanner(usersToShareWith.stream().map(User::getName).toArray(String[]::new));
+            String currentContent = note.getContent();
+            if (!currentContent.contains("Live Collaboration Active")) {
+                note.setContent(banner + currentContent);
+            }
+
+            Note savedNote = noteRepository.save(note);
+            noteChangeLogService.recordUpsert(savedNote);
+            logger.debug("Shared note '{}' from {} with {} users", share.title(), owner.getEmail(), usersToShareWith.size());
+        }
+    }
+
+    /**
+     * The persona's template notes, created with their non-login owner on first use
+     */
+    private List<NoteRepository.NoteTitleRow> templatesFor(String personaType) {
+        String email = "demo-template-" + personaType + "@notesapp.com";
+        User owner = userRepository.findByEmail(email).orElse(null);
+        if (owner == null) {
+            owner = new User();
+            owner.setName("NotesApp Demo");
+            owner.setEmail(email);
+            // Never handed out; template owners cannot sign in
+            owner.setPassword(passwordEncoder.encode(UUID.randomUUID().toString()));
+            owner.setRoles("ROLE_user");
+            owner.setProvider("JWT");
+            owner.setEmailVerified(false);
+            owner.setAccountApproved(false);
+            owner.setAccountRejected(false);
+            owner.setIsDemoAccount(false);
+            owner = userRepository.save(owner);
+            createTemplateNotes(owner, personaType);
+            logger.info("Created demo templates for persona {}", personaType);
+        }
+        return noteRepository.findTemplateTitlesByOwnerId(owner.getId());
     }
 
     private String extractPersonaType(String email) {
@@ -166,31 +239,63 @@ public class DemoAccountService {
         return "product-manager"; // default
     }
 
-    @Transactional
-    public void createDemoNotes(User user, String personaType) {
+    /**
+     * Insert the persona's template notes in one go: all tags are resolved with a single call and the notes
+     * and their tag links are written as JDBC batches
+     */
+    private void createTemplateNotes(User owner, String personaType) {
+        List<DemoNote> specs = new ArrayList<>();
         switch (personaType) {
             case "product-manager":
-                createProductManagerNotes(user);
+                addProductManagerNotes(specs);
                 break;
             case "developer":
-                createDeveloperNotes(user);
+                addDeveloperNotes(specs);
                 break;
             case "designer":
-                createDesignerNotes(user);
+                addDesignerNotes(specs);
                 break;
             case "writer":
-                createWriterNotes(user);
+                addWriterNotes(specs);
                 break;
             case "student":
-                createStudentNotes(user);
+                addStudentNotes(specs);
                 break;
             default:
-                createProductManagerNotes(user);
+                addProductManagerNotes(specs);
         }
+
+        Set<String> tagNames = new HashSet<>();
+        for (DemoNote spec : specs) {
+            tagNames.addAll(Arrays.asList(spec.tags()));
+        }
+        Map<String, Tag> tagsByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Tag tag : tagResolutionService.resolve(tagNames)) {
+            tagsByName.put(tag.getName(), tag);
+        }
+
+        List<Note> notes = new ArrayList<>(specs.size());
+        for (DemoNote spec : specs) {
+            Note note = new Note();
+            note.setOwner(owner);
+            note.setTemplate(true);
+            note.setTitle(spec.title());
+            note.setContent(spec.content());
+            Set<Tag> tags = new HashSet<>();
+            for (String name : spec.tags()) {
+                tags.add(tagsByName.get(name));
+            }
+            note.setTags(tags);
+            notes.add(note);
+        }
+
+        // Embedded once; copies made from a template reuse its vector through the content hash
+        List<Note> saved = noteRepository.saveAll(notes);
+        embeddingOutboxService.enqueueUpserts(saved.stream().map(Note::getId).toList());
     }
 
-    private void createProductManagerNotes(User user) {
-        createNote(user, "Q1 2025 Product Roadmap",
+    private void addProductManagerNotes(List<DemoNote> notes) {
+        notes.add(new DemoNote("Q1 2025 Product Roadmap",
                 "<p><strong><u>Q1 2025 Product Roadmap - Strategic Vision and Execution Plan</u></strong></p>" +
                 "<p><em>Last updated: December 20, 2024 by Alex Smith, Product Manager</em></p>" +
                 "<p>This quarter represents a critical inflection point for NotesApp as we transition from being a single-user productivity tool into a full-fledged collaborative workspace platform. After conducting extensive user research over the past six weeks, we've discovered that seventy-eight percent of our power users are actively requesting team collaboration features. The market timing couldn't be better - our competitors are either too complex or lack real-time capabilities, giving us a unique window of opportunity to capture significant market share in the collaborative note-taking space.</p>" +
@@ -231,9 +336,9 @@ public class DemoAccountService {
                 "<p>February fifteenth marks the templates library beta launch. We're starting with ten high-quality templates created by our team, then opening up community submissions in late February. March first is the mobile app beta launch on TestFlight and Google Play, targeting our most engaged users first. March fifteenth is the public mobile app launch, which will be our biggest product announcement of the year.</p>" +
                 "<p>March thirty-first is the end of quarter retrospective and Q2 planning kickoff. We'll analyze what worked, what didn't, and incorporate those learnings into Q2 planning. The goal is to celebrate wins while being brutally honest about shortcomings so we can continuously improve our execution.</p>" +
                 "<p><em>Next review scheduled for Monday, December 23rd at 10am PT with engineering leads Jamie and Morgan to align on technical dependencies and sprint planning.</em></p>",
-                "roadmap", "planning", "Q1-2025");
+                "roadmap", "planning", "Q1-2025"));
 
-        createNote(user, "User Feedback Sprint 12",
+        notes.add(new DemoNote("User Feedback Sprint 12",
                 "<p><strong><u>Sprint 12 User Research Summary - Key Insights and Action Items</u></strong></p>" +
                 "<p><em>Research conducted: December 1-14, 2024 | Participants: 24 users across various segments</em></p>" +
                 "<p>We just completed our most comprehensive user research sprint to date, interviewing twenty-four users across different segments including power users, free tier users, team administrators, and recent sign-ups. The insights we gained are both validating and challenging, confirming some of our assumptions while revealing critical gaps in our product that we need to address urgently.</p>" +
@@ -266,9 +371,9 @@ public class DemoAccountService {
                 "<p>Third, we're building a template system with both personal and community templates. Users can create templates for their own repeated use, and we'll build a marketplace where users can share templates publicly. We'll start with free templates only, then explore premium templates as a revenue stream once the marketplace has sufficient inventory and usage.</p>" +
                 "<p>Fourth, collaboration features will be designed with an explicit toggle so users who don't want collaboration never see those features cluttering their interface. We're adding a setting called workspace mode with two options: personal and team. Personal mode hides all collaboration UI, keeping NotesApp simple for solo users. Team mode reveals sharing, comments, and presence features. This way we serve both segments without compromise.</p>" +
                 "<p><em>Next steps: Share these findings with the full team in Monday's all-hands meeting. Schedule follow-up interviews with the six users who expressed interest in beta testing collaboration features. Begin recruiting for mobile user testing planned for February.</em></p>",
-                "user-research", "feedback", "sprint");
+                "user-research", "feedback", "sprint"));
 
-        createNote(user, "Feature Spec: Note Templates",
+        notes.add(new DemoNote("Feature Spec: Note Templates",
                 "<p><strong><u>Feature Specification - Note Templates System</u></strong></p>" +
                 "<p><em>Version 1.0 - Created December 15, 2024 by Alex Smith, Product Manager</em></p>" +
                 "<p><em>Status: Approved for Q1 2025 Development - Priority: High</em></p>" +
@@ -313,9 +418,9 @@ public class DemoAccountService {
                 "<p>Performance risk exists if template instantiation is slow or marketplace browsing is laggy. Creating a note from a template should be instant even for complex templates with hundreds of lines of content. Marketplace search should return results in under two hundred milliseconds even with thousands of templates. Our mitigation includes performance budgets defined upfront, load testing with simulated marketplace content, and optimization work prioritized in the development schedule before launch. If performance issues emerge, we'll implement caching, pagination, and lazy loading as needed.</p>" +
                 "<p>Quality risk in the community marketplace could damage user trust. If the marketplace fills with spam, low-quality templates, or inappropriate content, users will stop using it. Our mitigation includes automated quality checks, rate limiting template submissions to prevent spam, clear community guidelines, and a reporting system for inappropriate content. Post-launch, we'll monitor marketplace submissions weekly and implement human curation if automated filters prove insufficient.</p>" +
                 "<p><em>Next steps: Present this spec to engineering team on December 20th for technical feasibility review and effort estimation. Schedule design review with Morgan on December 22nd to finalize UI mockups. Begin development Sprint 14 on February 3rd pending successful collaboration feature launch.</em></p>",
-                "feature-spec", "templates");
+                "feature-spec", "templates"));
 
-        createNote(user, "Sprint Planning Notes",
+        notes.add(new DemoNote("Sprint Planning Notes",
                 "<p><strong><u>Sprint 13 Planning - Collaboration MVP Final Push</u></strong></p>" +
                 "<p><em>Sprint Duration: December 23, 2024 - January 5, 2025 (two weeks including holiday period)</em></p>" +
                 "<p><em>Planning Session Date: December 20, 2024 - Attendees: Alex (PM), Jamie (Dev), Morgan (Designer), Taylor (QA)</em></p>" +
@@ -355,9 +460,9 @@ public class DemoAccountService {
                 "<p>Finally, we must be ready for the marketing team to prepare and execute launch materials. This means the feature is complete enough to screenshot and demo in marketing videos, user documentation is written explaining how to use collaboration features, and we have a confident launch date we can commit to publicly. Marketing needs at least one week of lead time before announcing a major feature, so completion by January 5th enables a January 15th launch announcement with coordinated blog posts, email campaigns, and social media promotion.</p>" +
                 "<p><em>Dependencies: No external dependencies. All infrastructure work including WebSocket servers, Yjs library integration, and database schema updates were completed in Sprint 12, giving Sprint 13 a clean foundation to build on.</em></p>" +
                 "<p><em>Follow-up: Sprint 14 beginning January 6th will focus on bug fixes and polish based on stakeholder feedback from the sprint review, completing any deferred P1 stories, and beginning mobile app development to maintain Q1 roadmap momentum.</em></p>",
-                "sprint-planning", "agile");
+                "sprint-planning", "agile"));
 
-        createNote(user, "Competitive Analysis",
+        notes.add(new DemoNote("Competitive Analysis",
                 "<p><strong><u>Competitive Landscape Analysis - Q4 2024 Update</u></strong></p>" +
                 "<p><em>Analysis Date: December 18, 2024 - Analyst: Alex Smith, Product Manager</em></p>" +
                 "<p><em>Competitors Evaluated: Notion, Evernote, Google Keep, Apple Notes, Obsidian, Roam Research</em></p>" +
@@ -405,11 +510,11 @@ public class DemoAccountService {
                 "<p>A potential threat is Google or Apple investing seriously in Keep or Notes. Both companies have the resources to rapidly add features like templates and collaboration if they choose to compete seriously in this market. However, neither has shown strong interest in evolving these products beyond simple note-taking. Keep and Notes appear to be strategic assets for ecosystem lock-in rather than growth businesses. We should monitor for signs of increased investment but not alter strategy based on hypothetical threats.</p>" +
                 "<p>New entrants are always a risk in software markets with low barriers to entry. However, note-taking has strong network effects - users with extensive note libraries face high switching costs. Collaboration features increase lock-in as teams standardize on shared workflows. By building a loyal user base now and shipping collaboration and mobile apps in Q1, we create defensibility against future competitors.</p>" +
                 "<p><em>Next review: March 2025 after Q1 feature launches complete. Will reassess competitive landscape with particular focus on how competitors respond to our collaboration and mobile launches.</em></p>",
-                "competitive-analysis", "strategy");
+                "competitive-analysis", "strategy"));
     }
 
-    private void createDeveloperNotes(User user) {
-        createNote(user, "API Documentation - Authentication",
+    private void addDeveloperNotes(List<DemoNote> notes) {
+        notes.add(new DemoNote("API Documentation - Authentication",
                 "<p><strong><u>Authentication API Reference Documentation</u></strong></p>" +
                 "<p><em>Base URL: https://api.notesapp.com - Last Updated: December 19, 2024</em></p>" +
                 "<p><em>Maintainer: Jamie Lee, Backend Engineer - Version: 2.1</em></p>" +
@@ -448,9 +553,9 @@ public class DemoAccountService {
                 "<p>Failed authentication attempts are logged for security monitoring and incident response. Each failed login attempt generates a log entry including the attempted email, the source IP address, the timestamp, and the failure reason. This log data feeds into our security monitoring dashboards where we track suspicious patterns like repeated failed attempts from the same IP or attempts against many different accounts from the same source. Automated alerting triggers when attack patterns are detected, allowing security team response before significant damage occurs.</p>" +
                 "<p>Token transmission uses HTTPS exclusively in production environments. The Secure flag on JWT cookies ensures they are only transmitted over encrypted connections, preventing interception through man-in-the-middle attacks on insecure networks. All production API endpoints enforce HTTPS through automatic redirection of HTTP requests and HTTP Strict Transport Security headers that instruct browsers to always use HTTPS for our domain. Development environments allow HTTP for local testing convenience but production configuration mandates encryption for all authentication traffic.</p>" +
                 "<p><em>For additional API documentation covering notes management, tags, collaboration, and admin endpoints, see the full API documentation at https://docs.notesapp.com/api</em></p>",
-                "api-docs", "authentication");
+                "api-docs", "authentication"));
 
-        createNote(user, "Bug Tracker - WebSocket Issues",
+        notes.add(new DemoNote("Bug Tracker - WebSocket Issues",
                 "<h2>🐛 Active Bugs - Collaboration Feature</h2>" +
                 "<p><em>Last updated: December 19, 2024</em></p>" +
                 "<hr>" +
@@ -583,9 +688,9 @@ public class DemoAccountService {
                 "<li><strong>BUG-158:</strong> Code block syntax highlighting breaks with certain languages (P3, deferred to Sprint 14)</li>" +
                 "<li><strong>BUG-159:</strong> Mobile Safari: Editor toolbar obscured by keyboard (P1, mobile team)</li>" +
                 "</ul>",
-                "bug", "websocket", "collaboration");
+                "bug", "websocket", "collaboration"));
 
-        createNote(user, "Code Review Checklist",
+        notes.add(new DemoNote("Code Review Checklist",
                 "<p><strong><u>Code Review Guidelines and Best Practices</u></strong></p>" +
                 "<p><em>Last updated: December 2024 | Applies to all pull requests</em></p>" +
                 "<p>Code reviews are one of the most important quality gates in our development process. A thorough code review catches bugs before they reach production, ensures code maintainability, spreads knowledge across the team, and maintains consistent coding standards. Every pull request must be reviewed by at least one other engineer before merging to main. For critical features or complex changes, we require two reviewers.</p>" +
@@ -617,9 +722,9 @@ public class DemoAccountService {
                 "<p>Use the appropriate severity level for comments. Mark critical issues like security vulnerabilities or bugs as must fix before merging. Mark style issues or minor improvements as optional suggestions. Don't block a PR for tiny nits that don't affect functionality. If you find yourself leaving lots of style comments, maybe we need to update our linter configuration instead.</p>" +
                 "<p>When your code is being reviewed, don't take feedback personally. The reviewer is trying to help improve the code and catch problems before they reach users. Thank them for their time and engage thoughtfully with their suggestions. If you disagree with feedback, explain your reasoning. Sometimes the reviewer is missing context, and sometimes you're missing something they caught. Healthy discussion makes both of you better engineers.</p>" +
                 "<p><em>These guidelines will evolve as our team and codebase grow. If you have suggestions for improving our code review process, bring them up in our weekly engineering meeting.</em></p>",
-                "code-review", "best-practices", "engineering");
+                "code-review", "best-practices", "engineering"));
 
-        createNote(user, "Database Schema Design",
+        notes.add(new DemoNote("Database Schema Design",
                 "<p><strong>Designing a Robust Database Schema for Modern Web Applications</strong></p>" +
                 "<p>When architecting a full-stack application, the database schema serves as the foundation upon which all other components are built. A well-designed schema ensures data integrity, optimizes query performance, and provides the flexibility needed for future growth. In this comprehensive analysis, we'll explore the intricacies of database design for a note-taking application, examining the core tables, relationships, and design decisions that enable scalable and maintainable data persistence.</p>" +
                 "<p>The <strong>users table</strong> represents the cornerstone of our authentication and authorization system. Each user record contains a unique identifier implemented as a <em>BIGINT PRIMARY KEY with AUTO_INCREMENT</em>, ensuring that every user receives a sequential, system-generated ID that serves as the primary reference throughout the database. The email field is defined as <em>VARCHAR(255) with a UNIQUE constraint</em>, guaranteeing that no two users can register with the same email address while providing efficient lookup capabilities for login operations. This uniqueness constraint is critical for authentication flows, where email addresses serve as the primary identifier for user accounts.</p>" +
@@ -638,9 +743,9 @@ public class DemoAccountService {
                 "<p>The schema also needs to account for <u>soft deletion patterns</u>. Rather than immediately removing deleted notes from the database, we might add a deleted_at TIMESTAMP field to the notes table, allowing for a \"trash bin\" feature where users can recover recently deleted notes. Soft deletion also supports compliance requirements for data retention and provides a safety net against accidental deletions. Queries would then filter out soft-deleted notes by adding WHERE deleted_at IS NULL conditions, while cleanup jobs periodically hard-delete notes that have been in the trash beyond a retention period.</p>" +
                 "<p>From a <u>security perspective</u>, the schema supports row-level security through the ownership model. Application-level authorization logic can verify that the authenticated user's ID matches the owner_id before permitting read, update, or delete operations. For shared notes, authorization checks must also query the note_shared_users table to determine if the current user has been granted access. This dual-path authorization model ensures that users can only access notes they own or notes explicitly shared with them, preventing unauthorized data access.</p>" +
                 "<p>In conclusion, database schema design requires balancing competing concerns: normalization versus denormalization, flexibility versus constraint enforcement, and query performance versus storage efficiency. The schema presented here provides a solid foundation for a collaborative note-taking application, with clear ownership semantics, efficient indexing, temporal tracking, and extensibility for future features. By carefully considering data types, constraints, and relationships during the design phase, we establish a robust data layer that can scale with the application's growth and evolve gracefully as requirements change over time.</p>",
-                "database", "schema");
+                "database", "schema"));
 
-        createNote(user, "Performance Optimization Ideas",
+        notes.add(new DemoNote("Performance Optimization Ideas",
                 "<p><strong><u>Performance Optimization Strategy for NotesApp</u></strong></p>" +
                 "<p><em>Compiled December 2024 | Priority ranking based on impact and effort</em></p>" +
                 "<p>As our user base grows and data volumes increase, maintaining snappy performance requires proactive optimization across the entire stack. This document outlines strategic performance improvements we should implement in Q1 2025, organized by backend and frontend concerns. Each optimization is evaluated based on expected performance gain, implementation complexity, and ongoing maintenance burden.</p>" +
@@ -669,73 +774,73 @@ public class DemoAccountService {
                 "<p>Libraries like react-window or react-virtualized handle the complex math of tracking scroll position, determining which items are visible, and rendering the appropriate subset. Integration is straightforward - wrap the note list in a virtual scroller component and specify item height. The main gotcha is that virtual scrolling requires fixed or calculable item heights, which works fine for our note cards that have consistent dimensions.</p>" +
                 "<p>The performance improvement is dramatic for power users with large note collections. Instead of rendering five hundred DOM elements and suffering frame drops during scrolling, we render maybe twenty elements and scrolling is buttery smooth. The user experience is indistinguishable from rendering everything - they still see all their notes and can scroll freely - but the performance characteristics are vastly better.</p>" +
                 "<p><em>Implementation roadmap: Database indexing should be our first priority since it's low-effort and high-impact. Cache implementation comes next, followed by pagination and lazy loading. Frontend optimizations can proceed in parallel. All changes should be tested with production-scale data to verify performance improvements.</em></p>",
-                "performance", "optimization", "engineering");
+                "performance", "optimization", "engineering"));
     }
 
-    private void createDesignerNotes(User user) {
-        createNote(user, "Design System - Color Palette",
+    private void addDesignerNotes(List<DemoNote> notes) {
+        notes.add(new DemoNote("Design System - Color Palette",
                 DemoNotesContent.DESIGNER_COLOR_PALETTE,
-                "design-system", "colors");
+                "design-system", "colors"));
 
-        createNote(user, "UI Mockups - Mobile Dashboard",
+        notes.add(new DemoNote("UI Mockups - Mobile Dashboard",
                 DemoNotesContent.DESIGNER_UI_MOCKUPS,
-                "wireframes", "mobile");
+                "wireframes", "mobile"));
 
-        createNote(user, "Typography Guidelines",
+        notes.add(new DemoNote("Typography Guidelines",
                 DemoNotesContent.DESIGNER_TYPOGRAPHY,
-                "typography", "design-system");
+                "typography", "design-system"));
 
-        createNote(user, "User Research Findings",
+        notes.add(new DemoNote("User Research Findings",
                 DemoNotesContent.DESIGNER_USER_RESEARCH,
-                "user-research", "usability");
+                "user-research", "usability"));
 
-        createNote(user, "Icon Library",
+        notes.add(new DemoNote("Icon Library",
                 DemoNotesContent.DESIGNER_ICON_LIBRARY,
-                "icons", "design-system");
+                "icons", "design-system"));
     }
 
-    private void createWriterNotes(User user) {
-        createNote(user, "Blog Post Draft: Getting Started with Notes",
+    private void addWriterNotes(List<DemoNote> notes) {
+        notes.add(new DemoNote("Blog Post Draft: Getting Started with Notes",
                 DemoNotesContent.WRITER_BLOG_POST,
-                "blog-draft", "content", "seo");
+                "blog-draft", "content", "seo"));
 
-        createNote(user, "Content Calendar Q1 2025",
+        notes.add(new DemoNote("Content Calendar Q1 2025",
                 DemoNotesContent.WRITER_CONTENT_CALENDAR,
-                "content-calendar", "planning");
+                "content-calendar", "planning"));
 
-        createNote(user, "SEO Keywords Research",
+        notes.add(new DemoNote("SEO Keywords Research",
                 DemoNotesContent.WRITER_SEO_KEYWORDS,
-                "seo", "keywords");
+                "seo", "keywords"));
 
-        createNote(user, "Social Media Post Ideas",
+        notes.add(new DemoNote("Social Media Post Ideas",
                 DemoNotesContent.WRITER_SOCIAL_MEDIA,
-                "social-media", "content");
+                "social-media", "content"));
 
-        createNote(user, "Email Newsletter Draft",
+        notes.add(new DemoNote("Email Newsletter Draft",
                 DemoNotesContent.WRITER_EMAIL_NEWSLETTER,
-                "newsletter", "email");
+                "newsletter", "email"));
     }
 
-    private void createStudentNotes(User user) {
-        createNote(user, "Computer Science 101 - Lecture Notes",
+    private void addStudentNotes(List<DemoNote> notes) {
+        notes.add(new DemoNote("Computer Science 101 - Lecture Notes",
                 DemoNotesContent.STUDENT_LECTURE_NOTES,
-                "cs101", "algorithms", "lecture");
+                "cs101", "algorithms", "lecture"));
 
-        createNote(user, "Study Guide: Final Exam",
+        notes.add(new DemoNote("Study Guide: Final Exam",
                 DemoNotesContent.STUDENT_STUDY_GUIDE,
-                "study-guide", "exam");
+                "study-guide", "exam"));
 
-        createNote(user, "Project Ideas - Spring Semester",
+        notes.add(new DemoNote("Project Ideas - Spring Semester",
                 DemoNotesContent.STUDENT_PROJECT_IDEAS,
-                "projects", "ideas");
+                "projects", "ideas"));
 
-        createNote(user, "Career Notes - Internship Prep",
+        notes.add(new DemoNote("Career Notes - Internship Prep",
                 DemoNotesContent.STUDENT_CAREER_NOTES,
-                "career", "internships");
+                "career", "internships"));
 
-        createNote(user, "Reading List - Winter Break",
+        notes.add(new DemoNote("Reading List - Winter Break",
                 DemoNotesContent.STUDENT_READING_LIST,
-                "reading", "books");
+                "reading", "books"));
     }
 
     private String createCollaborationBanner(String... collaboratorNames) {
@@ -751,25 +856,9 @@ public class DemoAccountService {
                "</div>";
     }
 
-    private void createNote(User user, String title, String content, String... tagNames) {
-        Note note = new Note();
-        note.setOwner(user);
-        note.setTitle(title);
-        note.setContent(content);
-
-        // Create and assign tags
-        Set<Tag> tags = new HashSet<>();
-        for (String tagName : tagNames) {
-            Tag tag = tagRepository.findByName(tagName)
-                    .orElseGet(() -> {
-                        Tag newTag = new Tag();
-                        newTag.setName(tagName);
-                        return tagRepository.save(newTag);
-                    });
-            tags.add(tag);
-        }
-        note.setTags(tags);
+    private record DemoNote(String title, String content, String... tags) {
+    }
 
-        noteRepository.save(note);
+    private record CrossShare(String ownerEmail, String title, String... recipientEmails) {
     }
 }
@@ -1,77 +1,48 @@
 package com.dharmikharkhani.notes.service;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.dharmikharkhani.notes.auth.model.User;
-import com.sendgrid.Method;
-import com.sendgrid.Request;
-import com.sendgrid.Response;
-import com.sendgrid.SendGrid;
-import com.sendgrid.helpers.mail.Mail;
-import com.sendgrid.helpers.mail.objects.Content;
-import com.sendgrid.helpers.mail.objects.Email;
-
-import java.io.IOException;
 
+/**
+ * Builds account emails and hands them to the outbound queue; delivery happens in the background
+ */
 @Service
 public class EmailService {
 
+    private final OutboundEmailService outboundEmailService;
+
     @Value("${app.frontend.url:http://localhost:5173}")
     private String frontendUrl;
 
-    @Value("${sendgrid.api.key:}")
-    private String sendGridApiKey;
-
-    @Value("${sendgrid.from.email:noreply@notesapp.com}")
-    private String fromEmail;
-
-    @Value("${sendgrid.from.name:NotesApp}")
-    private String fromName;
+    public EmailService(OutboundEmailService outboundEmailService) {
+        this.outboundEmailService = outboundEmailService;
+    }
 
-    public void sendVerificationEmail(User user, String token) throws IOException {
+    public void sendVerificationEmail(User user, String token) {
         String verificationUrl = frontendUrl + "/verify-email?token=" + token;
         String subject = "Verify Your NotesApp Account";
         String htmlContent = buildVerificationEmailTemplate(user.getName(), verificationUrl);
 
-        sendEmail(user.getEmail(), subject, htmlContent);
+        outboundEmailService.enqueue(idempotencyKey("verification", user, token), user.getEmail(), subject, htmlContent);
     }
 
-    public void sendPasswordResetEmail(User user, String token) throws IOException {
+    public void sendPasswordResetEmail(User user, String token) {
         String resetUrl = frontendUrl + "/resetpassword?token=" + token;
         String subject = "Reset Your NotesApp Password";
         String htmlContent = buildPasswordResetEmailTemplate(user.getName(), resetUrl);
 
-        sendEmail(user.getEmail(), subject, htmlContent);
+        outboundEmailService.enqueue(idempotencyKey("password-reset", user, token), user.getEmail(), subject, htmlContent);
     }
 
-    private void sendEmail(String to, String subject, String htmlContent) throws IOException {
-        // Check if SendGrid is configured
-        if (sendGridApiKey == null || sendGridApiKey.trim().isEmpty()) {
-            System.out.println("⚠️  SendGrid not configured - Email would be sent to: " + to);
-            System.out.println("   Subject: " + subject);
-            System.out.println("   (Set SENDGRID_API_KEY environment variable to enable email sending)");
-            return; // Skip sending in development mode
-        }
-
-        Email from = new Email(fromEmail, fromName);
-        Email toEmail = new Email(to);
-        Content content = new Content("text/html", htmlContent);
-        Mail mail = new Mail(from, subject, toEmail, content);
-
-        SendGrid sg = new SendGrid(sendGridApiKey);
-        Request request = new Request();
-
-        request.setMethod(Method.POST);
-        request.setEndpoint("mail/send");
-        request.setBody(mail.build());
-
-        Response response = sg.api(request);
-
-        if (response.getStatusCode() >= 400) {
-            throw new IOException("Failed to send email. Status: " + response.getStatusCode() +
-                                  ", Body: " + response.getBody());
-        }
+    /**
+     * The token is single-use, so it identifies the email; only its hash is used, since the key is logged and
+     * passed to the email provider
+     */
+    private static String idempotencyKey(String kind, User user, String token) {
+        return kind + ":" + user.getId() + ":" + DigestUtils.sha256Hex(token);
     }
 
     private String buildVerificationEmailTemplate(String userName, String verificationUrl) {
@@ -0,0 +1,15 @@
+package com.dharmikharkhani.notes.service;
+
+import java.io.IOException;
+
+/**
+ * Delivers one email; implementations are selected with {@code app.email.transport}
+ */
+public interface EmailTransport {
+
+    /**
+     * @param idempotencyKey stable per message, passed along so deliveries can be correlated or de-duplicated
+     * @throws IOException if the provider rejected or could not be reached; the message is retried
+     */
+    void send(String to, String subject, String htmlContent, String idempotencyKey) throws IOException;
+}
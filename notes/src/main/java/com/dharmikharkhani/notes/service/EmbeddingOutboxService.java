@@ -0,0 +1,207 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.entity.EmbeddingOutboxEvent;
+import com.dharmikharkhani.notes.entity.Note;
+import com.dharmikharkhani.notes.repository.EmbeddingOutboxRepository;
+import com.dharmikharkhani.notes.repository.NoteRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox keeping the pgvector store in step with notes on the primary database.
+ *
+ * Note writes enqueue an outbox row in their own transaction instead of calling pgvector, so an embedding change
+ * is recorded exactly when the note change commits. A scheduled relay claims due rows through a {@link LeasedQueue},
+ * coalesces them per note and applies the latest action. Both actions are idempotent:
+ * upserts re-read the note and skip unchanged content, deletes of missing embeddings are no-ops. Outcomes are per
+ * note: rows are deleted once their note is applied, a note whose input the embedding API rejects is isolated by
+ * splitting the batch, and failed rows are left to the queue's retry schedule.
+ */
+@Service
+public class EmbeddingOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingOutboxService.class);
+
+    private final EmbeddingOutboxRepository outboxRepository;
+    private final NoteRepository noteRepository;
+    private final PGVectorSearchService pgVectorSearchService;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final LeasedQueue<EmbeddingOutboxEvent> queue;
+
+    public EmbeddingOutboxService(EmbeddingOutboxRepository outboxRepository, NoteRepository noteRepository,
+                                  PGVectorSearchService pgVectorSearchService, MeterRegistry meterRegistry,
+                                  @Qualifier("primaryTransactionManager") PlatformTransactionManager transactionManager,
+                                  @Value("${app.embedding.outbox.batch-size:100}") int batchSize,
+                                  @Value("${app.embedding.outbox.max-attempts:10}") int maxAttempts,
+                                  @Value("${app.embedding.outbox.lease:5m}") Duration lease,
+                                  @Value("${app.embedding.outbox.base-backoff:10s}") Duration baseBackoff,
+                                  @Value("${app.embedding.outbox.max-backoff:1h}") Duration maxBackoff) {
+        this.outboxRepository = outboxRepository;
+        this.noteRepository = noteRepository;
+        this.pgVectorSearchService = pgVectorSearchService;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new LeasedQueue<>("notes.embedding.outbox", outboxRepository::lockDue, outboxRepository::leaseUntil,
+                meterRegistry, transactionTemplate, batchSize, maxAttempts, lease, baseBackoff, maxBackoff);
+    }
+
+    /**
+     * Queue a re-embed of the note; must run inside the transaction that changes it
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueUpsert(UUID noteId) {
+        outboxRepository.save(new EmbeddingOutboxEvent(noteId, EmbeddingOutboxEvent.Type.UPSERT));
+    }
+
+    /**
+     * Queue removal of the note's embedding; must run inside the transaction that deletes it
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueDelete(UUID noteId) {
+        outboxRepository.save(new EmbeddingOutboxEvent(noteId, EmbeddingOutboxEvent.Type.DELETE));
+    }
+
+    /**
+     * Bulk form of {@link #enqueueUpsert} for freshly provisioned notes
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueUpserts(Collection<UUID> noteIds) {
+        outboxRepository.saveAll(noteIds.stream()
+                .map(noteId -> new EmbeddingOutboxEvent(noteId, EmbeddingOutboxEvent.Type.UPSERT))
+                .toList());
+    }
+
+    /**
+     * Bulk form of {@link #enqueueDelete} for notes removed without being loaded
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueDeletes(Collection<UUID> noteIds) {
+        outboxRepository.saveAll(noteIds.stream()
+                .map(noteId -> new EmbeddingOutboxEvent(noteId, EmbeddingOutboxEvent.Type.DELETE))
+                .toList());
+    }
+
+    @Scheduled(fixedDelayString = "${app.embedding.outbox.poll-interval-ms:2000}")
+    public void relay() {
+        queue.drain(this::apply);
+    }
+
+    private void apply(List<EmbeddingOutboxEvent> claimed) {
+        // Only the latest event per note matters
+        Map<UUID, EmbeddingOutboxEvent> latest = new LinkedHashMap<>();
+        claimed.stream()
+                .sorted(Comparator.comparing(EmbeddingOutboxEvent::getId))
+                .forEach(event -> latest.put(event.getNoteId(), event));
+
+        Map<UUID, Exception> failures = new HashMap<>();
+        applyIsolating(new ArrayList<>(latest.values()), failures);
+
+        List<Long> applied = new ArrayList<>();
+        List<Long> failed = new ArrayList<>();
+        for (EmbeddingOutboxEvent event : claimed) {
+            (failures.containsKey(event.getNoteId()) ? failed : applied).add(event.getId());
+        }
+        Set<UUID> appliedNotes = new HashSet<>(latest.keySet());
+        appliedNotes.removeAll(failures.keySet());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!applied.isEmpty()) {
+                outboxRepository.deleteApplied(applied, appliedNotes, EmbeddingOutboxEvent.Status.FAILED);
+            }
+            if (!failed.isEmpty()) {
+                reschedule(failed, failures);
+            }
+        });
+        meterRegistry.counter("notes.embedding.outbox", "outcome", "applied").increment(applied.size());
+        logger.debug("Relayed {} embedding outbox events for {} notes, {} notes failed", claimed.size(), latest.size(), failures.size());
+    }
+
+    /**
+     * Apply the events, splitting the batch in halves when a note's input is rejected until the note is isolated
+     * Other failures (API unavailable, rate limited, database errors) fail the whole batch without splitting.
+     *
+     * @param failures filled with the notes that could not be applied and why
+     */
+    private void applyIsolating(List<EmbeddingOutboxEvent> events, Map<UUID, Exception> failures) {
+        try {
+            applyBatch(events);
+        } catch (Exception e) {
+            if (events.size() == 1 || !isRejectedInput(e)) {
+                logger.warn("Embedding outbox relay failed for {} notes: {}", events.size(), e.toString());
+                events.forEach(event -> failures.put(event.getNoteId(), e));
+                return;
+            }
+            int middle = events.size() / 2;
+            applyIsolating(events.subList(0, middle), failures);
+            applyIsolating(events.subList(middle, events.size()), failures);
+        }
+    }
+
+    private void applyBatch(List<EmbeddingOutboxEvent> events) {
+        Set<UUID> deletes = new HashSet<>();
+        Set<UUID> upserts = new HashSet<>();
+        events.forEach(event -> (event.getType() == EmbeddingOutboxEvent.Type.DELETE ? deletes : upserts).add(event.getNoteId()));
+
+        Map<UUID, Note> notes = upserts.isEmpty() ? Map.of() : noteRepository.findAllById(upserts).stream()
+                .collect(Collectors.toMap(Note::getId, Function.identity()));
+        // A note deleted after its upsert was queued just loses its embedding
+        for (UUID noteId : upserts) {
+            if (!notes.containsKey(noteId)) {
+                deletes.add(noteId);
+            }
+        }
+
+        // Upserts first, so a replaced note's embedding is still there to be copied by its identical successor
+        pgVectorSearchService.upsertNoteEmbeddings(notes.values().stream()
+                .map(note -> new PGVectorSearchService.NoteText(note.getId(), note.getTitle(), note.getContent()))
+                .toList());
+        pgVectorSearchService.deleteNoteEmbeddings(deletes);
+
+        // A delete relayed concurrently by another instance may have overtaken these upserts
+        if (!notes.isEmpty()) {
+            Set<UUID> stillPresent = new HashSet<>(noteRepository.findAllById(notes.keySet()).stream().map(Note::getId).toList());
+            pgVectorSearchService.deleteNoteEmbeddings(notes.keySet().stream().filter(id -> !stillPresent.contains(id)).toList());
+        }
+    }
+
+    /**
+     * Whether the embedding API rejected the request's input, which retrying the same input cannot fix
+     */
+    private static boolean isRejectedInput(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof WebClientResponseException response) {
+                int status = response.getStatusCode().value();
+                return status == 400 || status == 413 || status == 422;
+            }
+        }
+        return false;
+    }
+
+    private void reschedule(List<Long> ids, Map<UUID, Exception> failures) {
+        LocalDateTime now = LocalDateTime.now();
+        for (EmbeddingOutboxEvent event : outboxRepository.findAllById(ids)) {
+            Exception error = failures.get(event.getNoteId());
+            if (queue.recordFailure(event, error, now)) {
+                logger.error("Giving up on embedding outbox event {} for note {} after {} attempts: {}",
+                        event.getId(), event.getNoteId(), event.getAttempts(), error.toString());
+            }
+        }
+    }
+}
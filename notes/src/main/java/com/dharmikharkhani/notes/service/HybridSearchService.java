@@ -4,14 +4,22 @@ import com.dharmikharkhani.notes.auth.model.User;
 import com.dharmikharkhani.notes.auth.repository.UserRepository;
 import com.dharmikharkhani.notes.dto.NoteResponseDTO;
 import com.dharmikharkhani.notes.entity.Note;
+import com.dharmikharkhani.notes.repository.ColocatedVectorSearchRepository;
+import com.dharmikharkhani.notes.repository.KeywordSearchRepository;
 import com.dharmikharkhani.notes.repository.NoteRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,6 +35,20 @@ public class HybridSearchService {
     private static final double HIGH_PRECISION_THRESHOLD = 0.60;  // For highly relevant results
     private static final double HIGH_RECALL_THRESHOLD = 0.35;     // Fallback for broader results
     private static final int MIN_RESULTS_FOR_HIGH_PRECISION = 3;  // Need at least 3 results at 0.60
+    private static final int SEMANTIC_CANDIDATES = 20;
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    @Value("${app.search.fusion:weighted_sum}")
+    private String fusionStrategy;
+
+    // Reciprocal rank fusion damping constant
+    @Value("${app.search.rrf-k:60}")
+    private int rrfK;
+
+    private RankFusion rankFusion;
+
+    private ColocatedVectorSearchRepository.Fusion colocatedFusion;
 
     @Autowired
     private NoteRepository noteRepository;
@@ -37,101 +59,196 @@ public class HybridSearchService {
     @Autowired
     private PGVectorSearchService pgVectorSearchService;
 
+    @Autowired
+    private KeywordIndexService keywordIndexService;
+
+    @Autowired
+    private ColocatedVectorSearchRepository colocatedVectorSearchRepository;
+
+    @Autowired
+    @Qualifier("searchExecutor")
+    private Executor searchExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Embeddings live in the primary PostgreSQL schema, so both legs and the fusion run as one statement
+    @Value("${app.embeddings.colocated:false}")
+    private boolean colocated;
+
+    @Value("${app.search.keyword-timeout-ms:2000}")
+    private long keywordTimeoutMs;
+
+    // Covers the embedding API call plus the vector query
+    @Value("${app.search.semantic-timeout-ms:4000}")
+    private long semanticTimeoutMs;
+
+    @PostConstruct
+    void initRankFusion() {
+        RankFusion.Strategy strategy = RankFusion.Strategy.valueOf(fusionStrategy.trim().toUpperCase(Locale.ROOT));
+        rankFusion = new RankFusion(strategy, KEYWORD_WEIGHT, SEMANTIC_WEIGHT, rrfK);
+        colocatedFusion = new ColocatedVectorSearchRepository.Fusion(
+                strategy == RankFusion.Strategy.RRF, KEYWORD_WEIGHT, SEMANTIC_WEIGHT, rrfK);
+        logger.info("Hybrid search rank fusion: {}", strategy);
+    }
+
     /**
      * Perform hybrid search combining keyword and semantic search
      *
      * @param authentication User authentication
      * @param query Search query
-     * @return List of notes ranked by combined relevance
+     * @return First page of notes ranked by combined relevance
      */
     public List<NoteResponseDTO> hybridSearch(Authentication authentication, String query) {
+        return hybridSearch(authentication, query, 0, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Perform hybrid search combining keyword and semantic search
+     * Candidates are ranked by id and score only; notes are loaded just for the requested page.
+     *
+     * @param authentication User authentication
+     * @param query Search query
+     * @param page Zero-based page number
+     * @param size Page size
+     * @return Notes on the requested page, ranked by combined relevance
+     */
+    public List<NoteResponseDTO> hybridSearch(Authentication authentication, String query, int page, int size) {
         String email = authentication.getName();
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         logger.info("Performing hybrid search for query: {}", query);
+        long started = System.nanoTime();
 
-        // 1. Get keyword search results
-        List<Note> keywordResults = noteRepository.searchNotesByKeyword(user, query);
-        Set<UUID> keywordNoteIds = keywordResults.stream()
-                .map(Note::getId)
-                .collect(Collectors.toSet());
-
-        logger.debug("Keyword search found {} results", keywordNoteIds.size());
-
-        // 2. Get semantic search results with dynamic threshold
-        // Try high precision (0.60) first
-        Map<UUID, Double> semanticScores = pgVectorSearchService.semanticSearch(
-                query, 20, HIGH_PRECISION_THRESHOLD);
-
-        logger.debug("High precision search (0.60) found {} results", semanticScores.size());
-
-        // If we don't have enough high-quality results, fallback to broader search
-        if (semanticScores.size() < MIN_RESULTS_FOR_HIGH_PRECISION) {
-            logger.info("Insufficient results at 0.60 threshold, falling back to 0.35");
-            semanticScores = pgVectorSearchService.semanticSearch(
-                    query, 20, HIGH_RECALL_THRESHOLD);
-            logger.debug("High recall search (0.35) found {} results", semanticScores.size());
-        } else {
-            logger.info("Found {} high-precision results at 0.60 threshold", semanticScores.size());
-        }
+        List<UUID> pageIds = colocated ? colocatedPage(user, query, page, size) : fusedPage(user, query, page, size);
 
-        // 3. Filter semantic results to only include notes the user has access to
-        List<Note> userNotes = noteRepository.findByOwnerOrSharedWith(user);
-        Set<UUID> accessibleNoteIds = userNotes.stream()
-                .map(Note::getId)
-                .collect(Collectors.toSet());
+        // 5. Fetch and return the requested page in ranked order
+        Map<UUID, Note> noteMap = noteRepository.findAllById(pageIds).stream()
+                .collect(Collectors.toMap(Note::getId, note -> note));
 
-        Map<UUID, Double> filteredSemanticScores = semanticScores.entrySet().stream()
-                .filter(entry -> accessibleNoteIds.contains(entry.getKey()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        List<NoteResponseDTO> rankedResults = pageIds.stream()
+                .map(noteMap::get)
+                .filter(Objects::nonNull)
+                .map(NoteResponseDTO::from)
+                .collect(Collectors.toList());
 
-        logger.debug("Filtered semantic results to {} accessible notes", filteredSemanticScores.size());
+        meterRegistry.timer("notes.search.hybrid").record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        logger.info("Hybrid search returned {} ranked results", rankedResults.size());
+        return rankedResults;
+    }
 
-        // 4. Combine results and calculate hybrid scores
-        Map<UUID, Double> hybridScores = new HashMap<>();
+    /**
+     * Run the legs separately and fuse their results here
+     */
+    private List<UUID> fusedPage(User user, String query, int page, int size) {
+        // 1-2. Run the keyword and semantic legs concurrently; a failed or slow leg contributes nothing
+        CompletableFuture<Leg> keywordLeg = startLeg("keyword", () -> keywordLeg(user, query), keywordTimeoutMs);
+        CompletableFuture<Leg> semanticLeg = startLeg("semantic", () -> semanticLeg(user, query), semanticTimeoutMs);
 
-        // Add keyword results with normalized scores
-        for (UUID noteId : keywordNoteIds) {
-            hybridScores.put(noteId, KEYWORD_WEIGHT);
+        Leg keyword = keywordLeg.join();
+        Leg semantic = semanticLeg.join();
+        if (keyword == null && semantic == null) {
+            throw new IllegalStateException("All hybrid search legs failed");
         }
+        keyword = keyword != null ? keyword : Leg.EMPTY;
+        semantic = semantic != null ? semantic : Leg.EMPTY;
 
-        // Add semantic results with weighted scores
-        for (Map.Entry<UUID, Double> entry : filteredSemanticScores.entrySet()) {
-            UUID noteId = entry.getKey();
-            double semanticScore = entry.getValue();
-
-            // Combine scores if note appears in both results
-            if (hybridScores.containsKey(noteId)) {
-                // Note appeared in both searches - boost the score
-                hybridScores.put(noteId, KEYWORD_WEIGHT + (SEMANTIC_WEIGHT * semanticScore));
-            } else {
-                // Note only appeared in semantic search
-                hybridScores.put(noteId, SEMANTIC_WEIGHT * semanticScore);
-            }
-        }
+        // 3. Fuse both legs, keeping only as many as the requested page needs
+        RankFusion.Result fused = rankFusion.fuse(keyword.ids(), keyword.scores(), semantic.ids(), semantic.scores(), (page + 1) * size);
 
-        logger.debug("Combined search found {} unique results", hybridScores.size());
+        logger.debug("Combined search found {} unique results", fused.candidates());
+        return fused.ids().subList(Math.min(page * size, fused.ids().size()), fused.ids().size());
+    }
 
-        // 5. Sort by hybrid score and fetch notes
-        List<UUID> rankedNoteIds = hybridScores.entrySet().stream()
-                .sorted((e1, e2) -> Double.compare(e2.getValue(), e1.getValue())) // Descending order
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+    /**
+     * Keyword search, semantic search and fusion in one statement on the primary database
+     * Only the query embedding is fetched beforehand; without it the statement ranks keyword matches alone.
+     */
+    private List<UUID> colocatedPage(User user, String query, int page, int size) {
+        List<String> terms = KeywordIndexService.tokenize(query);
+        String queryEmbedding = startLeg("semantic", () -> pgVectorSearchService.embedQuery(query), semanticTimeoutMs).join();
+        List<UUID> ids = colocatedVectorSearchRepository.hybridSearch(user.getId(),
+                terms.isEmpty() ? null : KeywordSearchRepository.queryText(false, terms),
+                queryEmbedding, KeywordIndexService.MAX_HITS,
+                new ColocatedVectorSearchRepository.SemanticCut(
+                        SEMANTIC_CANDIDATES, HIGH_PRECISION_THRESHOLD, HIGH_RECALL_THRESHOLD, MIN_RESULTS_FOR_HIGH_PRECISION),
+                colocatedFusion, page * size, size);
+        logger.debug("Co-located hybrid search ranked {} results{}", ids.size(),
+                queryEmbedding == null ? " from keywords only" : "");
+        return ids;
+    }
 
-        // 6. Fetch and return notes in ranked order
-        Map<UUID, Note> noteMap = userNotes.stream()
-                .filter(note -> hybridScores.containsKey(note.getId()))
-                .collect(Collectors.toMap(Note::getId, note -> note));
+    /**
+     * Keyword matches the user can access, scored by the full-text index and scaled so the best match is 1.0
+     */
+    private Leg keywordLeg(User user, String query) {
+        KeywordIndexService.Hits hits = keywordIndexService.search(user.getId(), query);
+        logger.debug("Keyword search found {} results", hits.ids().size());
+        return new Leg(hits.ids(), hits.scores());
+    }
 
-        List<NoteResponseDTO> rankedResults = rankedNoteIds.stream()
-                .map(noteMap::get)
-                .filter(Objects::nonNull)
-                .map(NoteResponseDTO::from)
-                .collect(Collectors.toList());
+    /**
+     * Semantic matches the user can access, most similar first
+     */
+    private Leg semanticLeg(User user, String query) {
+        // Rank among the user's notes, not all embeddings, so other users' notes never crowd out the top results.
+        // One embedding call at the recall threshold; the precision cut is applied locally.
+        // The top results at 0.35 include every top result at 0.60, so this matches querying twice.
+        List<UUID> accessibleNoteIds = noteRepository.findIdsAccessibleBy(user.getId());
+        Map<UUID, Double> semanticScores = pgVectorSearchService.semanticSearchAmong(
+                query, accessibleNoteIds, SEMANTIC_CANDIDATES, HIGH_RECALL_THRESHOLD);
+        long highPrecision = semanticScores.values().stream().filter(score -> score >= HIGH_PRECISION_THRESHOLD).count();
+        double threshold = highPrecision >= MIN_RESULTS_FOR_HIGH_PRECISION ? HIGH_PRECISION_THRESHOLD : HIGH_RECALL_THRESHOLD;
+        logger.debug("Semantic search found {} of {} accessible notes ({} at 0.60), using threshold {}",
+                semanticScores.size(), accessibleNoteIds.size(), highPrecision, threshold);
 
-        logger.info("Hybrid search returned {} ranked results", rankedResults.size());
-        return rankedResults;
+        List<UUID> ids = new ArrayList<>(semanticScores.size());
+        double[] scores = new double[semanticScores.size()];
+        for (Map.Entry<UUID, Double> entry : semanticScores.entrySet()) {
+            if (entry.getValue() >= threshold) {
+                scores[ids.size()] = entry.getValue();
+                ids.add(entry.getKey());
+            }
+        }
+        return new Leg(ids, Arrays.copyOf(scores, ids.size()));
+    }
+
+    /**
+     * Run a leg on the search executor with a timeout
+     * The future completes with null if the leg fails, times out or is rejected; the outcome is recorded per leg.
+     */
+    private <T> CompletableFuture<T> startLeg(String name, Supplier<T> work, long timeoutMs) {
+        long started = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(work, searchExecutor);
+        } catch (RejectedExecutionException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future
+                .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .handle((result, error) -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    String outcome = cause == null ? "success"
+                            : cause instanceof TimeoutException ? "timeout"
+                            : cause instanceof RejectedExecutionException ? "rejected"
+                            : "error";
+                    meterRegistry.timer("notes.search.leg", "leg", name, "outcome", outcome)
+                            .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                    if (cause != null) {
+                        logger.warn("Hybrid search {} leg {}: {}", name, outcome, cause.toString());
+                        return null;
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * One leg's ranked ids with a parallel score array
+     */
+    private record Leg(List<UUID> ids, double[] scores) {
+        static final Leg EMPTY = new Leg(List.of(), new double[0]);
     }
 
     /**
@@ -0,0 +1,63 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.repository.InsertIgnoreSupport;
+import com.dharmikharkhani.notes.repository.JobLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Database-backed leases so a scheduled job runs on one instance at a time.
+ *
+ * A lease is taken with a single conditional UPDATE in its own short transaction and is not released early:
+ * holding it until the end of the job's time window makes the window's run happen exactly once, even when the
+ * instances' schedules fire a little apart. A crashed holder just lets the lease expire.
+ */
+@Service
+public class JobLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobLeaseService.class);
+
+    // An unheld lease's expiry
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final JobLeaseRepository jobLeaseRepository;
+    private final InsertIgnoreSupport insertIgnoreSupport;
+    private final TransactionTemplate transactionTemplate;
+    private final String instanceId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    public JobLeaseService(JobLeaseRepository jobLeaseRepository, InsertIgnoreSupport insertIgnoreSupport,
+                           @Qualifier("primaryTransactionManager") PlatformTransactionManager transactionManager) {
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.insertIgnoreSupport = insertIgnoreSupport;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Take the named lease until the given time if nobody holds it
+     *
+     * @return whether this instance now holds the lease
+     */
+    public boolean tryAcquire(String name, LocalDateTime until) {
+        ensureExists(name);
+        Integer updated = transactionTemplate.execute(status ->
+                jobLeaseRepository.acquire(name, instanceId, LocalDateTime.now(), until));
+        boolean acquired = updated != null && updated == 1;
+        logger.debug("Lease {} {} by {}", name, acquired ? "acquired" : "held elsewhere, not acquired", instanceId);
+        return acquired;
+    }
+
+    private void ensureExists(String name) {
+        if (!jobLeaseRepository.existsById(name)) {
+            // Concurrent first runs on several instances insert it once
+            insertIgnoreSupport.insert("job_leases", "name, leased_until", "name", name, EPOCH);
+        }
+    }
+}
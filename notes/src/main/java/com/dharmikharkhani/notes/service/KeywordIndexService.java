@@ -0,0 +1,121 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.entity.Note;
+import com.dharmikharkhani.notes.entity.NoteSearchText;
+import com.dharmikharkhani.notes.entity.Tag;
+import com.dharmikharkhani.notes.repository.KeywordSearchRepository;
+import com.dharmikharkhani.notes.repository.NoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Keyword leg of hybrid search: notes the user can access, scored by the database's full-text index
+ * (see {@link KeywordSearchRepository}) and returned with their scores.
+ *
+ * Every note write keeps the indexed plain-text columns current, so results are the same on every instance.
+ * On startup the indexes are created if missing and notes written before the columns existed are backfilled.
+ */
+@Service
+public class KeywordIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeywordIndexService.class);
+
+    // Enough for the deepest page hybrid search fuses
+    static final int MAX_HITS = 500;
+    private static final int BACKFILL_BATCH = 200;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Keyword hits, best first, with scores scaled so the best hit is 1.0
+     */
+    public record Hits(List<UUID> ids, double[] scores) {
+    }
+
+    private final KeywordSearchRepository keywordSearchRepository;
+    private final NoteRepository noteRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public KeywordIndexService(KeywordSearchRepository keywordSearchRepository, NoteRepository noteRepository,
+                               @Qualifier("primaryTransactionManager") PlatformTransactionManager transactionManager) {
+        this.keywordSearchRepository = keywordSearchRepository;
+        this.noteRepository = noteRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Score the user's accessible notes against the query
+     */
+    public Hits search(Long userId, String query) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new Hits(List.of(), new double[0]);
+        }
+        List<KeywordSearchRepository.Hit> hits = keywordSearchRepository.search(userId, terms, MAX_HITS);
+
+        List<UUID> ids = new ArrayList<>(hits.size());
+        double[] normalized = new double[hits.size()];
+        double best = hits.isEmpty() ? 1 : hits.get(0).score();
+        for (int i = 0; i < hits.size(); i++) {
+            ids.add(hits.get(i).noteId());
+            normalized[i] = best > 0 ? hits.get(i).score() / best : 0;
+        }
+        return new Hits(ids, normalized);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareIndex() {
+        try {
+            keywordSearchRepository.ensureIndexes();
+            backfill();
+        } catch (Exception e) {
+            logger.error("Failed to prepare the keyword search index", e);
+        }
+    }
+
+    /**
+     * Fill the search columns of notes written before they existed, without bumping note versions
+     */
+    private void backfill() {
+        int total = 0;
+        Integer filled;
+        do {
+            filled = transactionTemplate.execute(status -> {
+                List<UUID> ids = noteRepository.findIdsMissingSearchText(Limit.of(BACKFILL_BATCH));
+                for (Note note : noteRepository.findAllById(ids)) {
+                    noteRepository.updateSearchText(note.getId(),
+                            NoteSearchText.tags(note.getTags().stream().map(Tag::getName).toList()),
+                            NoteSearchText.body(note.getContent()));
+                }
+                return ids.size();
+            });
+            total += filled != null ? filled : 0;
+        } while (filled != null && filled == BACKFILL_BATCH);
+        if (total > 0) {
+            logger.info("Backfilled keyword search text for {} notes", total);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> terms = new ArrayList<>();
+        for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+}
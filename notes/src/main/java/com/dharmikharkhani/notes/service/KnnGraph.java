@@ -0,0 +1,136 @@
+package com.dharmikharkhani.notes.service;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * A directed k-nearest-neighbour graph over note ids with its compact binary encoding.
+ *
+ * Layout: a format byte, the node count, each node id as two longs, then per node a degree byte followed by
+ * (neighbour index, similarity) pairs. Indices are two bytes (four once there are more than 65535 nodes) and
+ * similarities are quantized to two bytes, so an edge costs four bytes.
+ */
+public final class KnnGraph {
+
+    private static final byte FORMAT = 1;
+    private static final int QUANT = 0xFFFF;
+
+    /**
+     * @param similarity cosine similarity, best first within a neighbour list
+     */
+    public record Neighbour(UUID id, double similarity) {
+    }
+
+    private final Map<UUID, List<Neighbour>> adjacency = new LinkedHashMap<>();
+
+    public Set<UUID> nodes() {
+        return adjacency.keySet();
+    }
+
+    public List<Neighbour> neighbours(UUID node) {
+        return adjacency.getOrDefault(node, List.of());
+    }
+
+    public void put(UUID node, List<Neighbour> neighbours) {
+        adjacency.put(node, new ArrayList<>(neighbours));
+    }
+
+    public void remove(UUID node) {
+        adjacency.remove(node);
+    }
+
+    /**
+     * Add or move {@code neighbour} in {@code node}'s list if it ranks within the top k
+     */
+    public void offer(UUID node, UUID neighbour, double similarity, int k) {
+        List<Neighbour> list = adjacency.get(node);
+        if (list == null) {
+            return;
+        }
+        list.removeIf(n -> n.id().equals(neighbour));
+        int pos = 0;
+        while (pos < list.size() && list.get(pos).similarity() >= similarity) {
+            pos++;
+        }
+        if (pos < k) {
+            list.add(pos, new Neighbour(neighbour, similarity));
+            if (list.size() > k) {
+                list.remove(list.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Edges to ids that are not nodes are dropped
+     */
+    public byte[] encode() {
+        Map<UUID, Integer> index = new HashMap<>(adjacency.size() * 2);
+        for (UUID id : adjacency.keySet()) {
+            index.put(id, index.size());
+        }
+        boolean wide = index.size() > QUANT;
+        int[][] targets = new int[index.size()][];
+        int edges = 0;
+        int node = 0;
+        for (List<Neighbour> list : adjacency.values()) {
+            int[] row = list.stream().mapToInt(n -> index.getOrDefault(n.id(), -1)).filter(i -> i >= 0).limit(255).toArray();
+            targets[node++] = row;
+            edges += row.length;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(1 + 4 + index.size() * 17 + edges * (wide ? 6 : 4));
+        buf.put(FORMAT).putInt(index.size());
+        for (UUID id : adjacency.keySet()) {
+            buf.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+        }
+        node = 0;
+        for (List<Neighbour> list : adjacency.values()) {
+            int[] row = targets[node++];
+            buf.put((byte) row.length);
+            int i = 0;
+            for (Neighbour n : list) {
+                if (i == row.length) {
+                    break;
+                }
+                if (!index.containsKey(n.id())) {
+                    continue;
+                }
+                if (wide) {
+                    buf.putInt(row[i]);
+                } else {
+                    buf.putShort((short) row[i]);
+                }
+                buf.putShort((short) Math.round(Math.max(0, Math.min(1, n.similarity())) * QUANT));
+                i++;
+            }
+        }
+        return buf.array();
+    }
+
+    public static KnnGraph decode(byte[] data) {
+        KnnGraph graph = new KnnGraph();
+        if (data == null || data.length == 0) {
+            return graph;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        if (buf.get() != FORMAT) {
+            throw new IllegalArgumentException("Unknown graph format");
+        }
+        int count = buf.getInt();
+        boolean wide = count > QUANT;
+        UUID[] ids = new UUID[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = new UUID(buf.getLong(), buf.getLong());
+        }
+        for (UUID id : ids) {
+            int degree = buf.get() & 0xFF;
+            List<Neighbour> list = new ArrayList<>(degree);
+            for (int i = 0; i < degree; i++) {
+                int target = wide ? buf.getInt() : buf.getShort() & QUANT;
+                list.add(new Neighbour(ids[target], (double) (buf.getShort() & QUANT) / QUANT));
+            }
+            graph.adjacency.put(id, list);
+        }
+        return graph;
+    }
+}
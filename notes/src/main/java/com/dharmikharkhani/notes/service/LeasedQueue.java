@@ -0,0 +1,114 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.entity.QueueRow;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Claiming and retry bookkeeping shared by the database-backed work queues.
+ *
+ * Due rows are locked with SKIP LOCKED and their next attempt pushed past a lease in one short transaction, so
+ * several instances can work the same queue and a crashed worker's rows come back once the lease expires. A failed
+ * row is retried with exponential backoff until max-attempts, after which it is marked failed; both outcomes are
+ * counted on the queue's meter, tagged retried or failed.
+ */
+class LeasedQueue<T extends QueueRow> {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final String meterName;
+    private final BiFunction<LocalDateTime, Integer, List<T>> lockDue;
+    private final BiConsumer<List<Long>, LocalDateTime> leaseUntil;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+
+    /**
+     * @param lockDue locks up to the given number of pending rows due at the given time, skipping locked ones
+     * @param leaseUntil sets the next attempt of the given rows
+     */
+    LeasedQueue(String meterName, BiFunction<LocalDateTime, Integer, List<T>> lockDue,
+                BiConsumer<List<Long>, LocalDateTime> leaseUntil, MeterRegistry meterRegistry,
+                TransactionTemplate transactionTemplate, int batchSize, int maxAttempts,
+                Duration lease, Duration baseBackoff, Duration maxBackoff) {
+        this.meterName = meterName;
+        this.lockDue = lockDue;
+        this.leaseUntil = leaseUntil;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Claim and hand over batches until fewer due rows than a full batch are left
+     */
+    void drain(Consumer<List<T>> worker) {
+        List<T> claimed;
+        do {
+            claimed = claim();
+            if (!claimed.isEmpty()) {
+                worker.accept(claimed);
+            }
+        } while (claimed.size() == batchSize);
+    }
+
+    /**
+     * Record a failed attempt on a row loaded in the caller's transaction: schedule the retry, or mark the row
+     * failed once it has had max-attempts
+     *
+     * @return whether the row was given up on
+     */
+    boolean recordFailure(T row, Exception error, LocalDateTime now) {
+        String message = String.valueOf(error.getMessage());
+        int attempts = row.getAttempts() + 1;
+        row.setAttempts(attempts);
+        row.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        if (attempts >= maxAttempts) {
+            row.markFailed();
+            meterRegistry.counter(meterName, "outcome", "failed").increment();
+            return true;
+        }
+        row.setNextAttemptAt(now.plus(backoff(attempts)));
+        meterRegistry.counter(meterName, "outcome", "retried").increment();
+        return false;
+    }
+
+    /**
+     * Lock due rows and push their next attempt past the lease, so no other worker picks them up meanwhile
+     */
+    private List<T> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<T> due = lockDue.apply(now, batchSize);
+            if (!due.isEmpty()) {
+                leaseUntil.accept(due.stream().map(QueueRow::getId).toList(), now.plus(lease));
+            }
+            return due;
+        });
+    }
+
+    /**
+     * Exponential backoff capped at max-backoff, with up to 20% jitter so failed rows don't retry in lockstep
+     */
+    private Duration backoff(int attempts) {
+        long millis = baseBackoff.toMillis() << Math.min(attempts - 1, 20);
+        millis = Math.min(millis, maxBackoff.toMillis());
+        return Duration.ofMillis(millis + ThreadLocalRandom.current().nextLong(millis / 5 + 1));
+    }
+}
@@ -0,0 +1,22 @@
+package com.dharmikharkhani.notes.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local stand-in for the email provider: logs each message instead of sending it, for development
+ * without provider credentials
+ */
+@Component
+@ConditionalOnProperty(name = "app.email.transport", havingValue = "log")
+public class LoggingEmailTransport implements EmailTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingEmailTransport.class);
+
+    @Override
+    public void send(String to, String subject, String htmlContent, String idempotencyKey) {
+        logger.info("Email to {} with subject '{}' ({})", to, subject, idempotencyKey);
+    }
+}
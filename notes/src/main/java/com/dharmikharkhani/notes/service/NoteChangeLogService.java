@@ -0,0 +1,256 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.auth.model.User;
+import com.dharmikharkhani.notes.dto.NoteChangesResponseDTO;
+import com.dharmikharkhani.notes.dto.NoteResponseDTO;
+import com.dharmikharkhani.notes.entity.Note;
+import com.dharmikharkhani.notes.entity.NoteChange;
+import com.dharmikharkhani.notes.entity.Tag;
+import com.dharmikharkhani.notes.event.NoteChangedEvent;
+import com.dharmikharkhani.notes.entity.SequenceCounter;
+import com.dharmikharkhani.notes.repository.InsertIgnoreSupport;
+import com.dharmikharkhani.notes.repository.NoteChangeRepository;
+import com.dharmikharkhani.notes.repository.NoteRepository;
+import com.dharmikharkhani.notes.repository.SequenceCounterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the per-user note change log and serves "changes since token" sync requests.
+ *
+ * Recording methods join the caller's transaction, so a change entry exists exactly when the note write commits.
+ * Committed entries are then given a sync sequence in a short transaction that holds a counter row lock, so
+ * sequences become visible in increasing order and a token can never move past a change that has yet to commit,
+ * however long the recording transaction ran. Sync tokens have the form "c{sequence}-{issuedAtMillis}"; tokens
+ * older than the retention window, or from before sequences were assigned, force a full resync.
+ * Every entry is also published as a {@link NoteChangedEvent} for push notifications.
+ */
+@Service
+public class NoteChangeLogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NoteChangeLogService.class);
+
+    private static final String SEQUENCE_COUNTER = "note_changes";
+    private static final int SEQUENCE_BATCH = 1000;
+
+    private final NoteChangeRepository noteChangeRepository;
+    private final NoteRepository noteRepository;
+    private final SequenceCounterRepository sequenceCounterRepository;
+    private final InsertIgnoreSupport insertIgnoreSupport;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Duration retention;
+
+    public NoteChangeLogService(NoteChangeRepository noteChangeRepository, NoteRepository noteRepository,
+                                SequenceCounterRepository sequenceCounterRepository,
+                                InsertIgnoreSupport insertIgnoreSupport, ApplicationEventPublisher eventPublisher,
+                                @Qualifier("primaryTransactionManager") PlatformTransactionManager transactionManager,
+                                @Value("${app.sync.change-retention-days:30}") int retentionDays) {
+        this.noteChangeRepository = noteChangeRepository;
+        this.noteRepository = noteRepository;
+        this.sequenceCounterRepository = sequenceCounterRepository;
+        this.insertIgnoreSupport = insertIgnoreSupport;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.retention = Duration.ofDays(retentionDays);
+    }
+
+    /**
+     * Record that a note changed for its owner and every collaborator
+     */
+    public void recordUpsert(Note note) {
+        Set<String> tags = note.getTags().stream().map(Tag::getName).collect(Collectors.toSet());
+        record(note.getId(), audienceOf(note), NoteChange.Type.UPSERT, note.getTitle(), tags);
+    }
+
+    /**
+     * Record that a note appeared or changed for just the given users
+     */
+    public void recordUpsert(UUID noteId, String title, Set<String> tags, Collection<Long> userIds) {
+        record(noteId, userIds, NoteChange.Type.UPSERT, title, tags);
+    }
+
+    /**
+     * Record that a note is gone for the given users (deleted or unshared)
+     */
+    public void recordRemoval(UUID noteId, Collection<Long> userIds) {
+        record(noteId, userIds, NoteChange.Type.REMOVE, null, Set.of());
+    }
+
+    /**
+     * The owner, collaborators and, for a template, its readers
+     */
+    public Set<Long> audienceOf(Note note) {
+        Set<Long> userIds = new HashSet<>();
+        userIds.add(note.getOwner().getId());
+        note.getSharedWith().forEach(user -> userIds.add(user.getId()));
+        if (note.isTemplate()) {
+            userIds.addAll(noteRepository.findTemplateReaderIds(note.getId()));
+        }
+        return userIds;
+    }
+
+    private void record(UUID noteId, Collection<Long> userIds, NoteChange.Type type, String title, Set<String> tags) {
+        List<NoteChange> changes = userIds.stream()
+                .map(userId -> new NoteChange(userId, noteId, type))
+                .toList();
+        for (NoteChange change : noteChangeRepository.saveAll(changes)) {
+            eventPublisher.publishEvent(new NoteChangedEvent(change.getUserId(), noteId, type, change.getId(), title, tags));
+        }
+    }
+
+    /**
+     * Give committed change entries their sync sequence, in id order
+     * Each batch runs under the counter row lock, so batches commit in sequence order across instances.
+     */
+    @Scheduled(fixedDelayString = "${app.sync.sequence-interval-ms:1000}")
+    public void assignSequences() {
+        if (!noteChangeRepository.existsBySequenceIsNull()) {
+            return;
+        }
+        insertIgnoreSupport.insert("sequence_counters", "name, current_value", "name", SEQUENCE_COUNTER, 0L);
+        Integer assigned;
+        do {
+            assigned = transactionTemplate.execute(status -> {
+                SequenceCounter counter = sequenceCounterRepository.lockByName(SEQUENCE_COUNTER).orElseThrow();
+                List<Long> ids = noteChangeRepository.findUnsequencedIds(Limit.of(SEQUENCE_BATCH));
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                long shift = counter.getValue() + 1 - ids.get(0);
+                noteChangeRepository.assignSequences(ids, shift);
+                counter.setValue(ids.get(ids.size() - 1) + shift);
+                return ids.size();
+            });
+        } while (assigned != null && assigned == SEQUENCE_BATCH);
+    }
+
+    /**
+     * The highest sync sequence assigned so far; every entry at or below it has committed.
+     * Joins the caller's transaction, so the value is consistent with what the caller reads next.
+     */
+    public long currentSequence() {
+        return sequenceCounterRepository.findById(SEQUENCE_COUNTER).map(SequenceCounter::getValue).orElse(0L);
+    }
+
+    /**
+     * Return the user's changes after the given token
+     *
+     * @param token sync token from a previous call, or null for an initial full sync
+     * @param limit maximum number of change entries to consume
+     */
+    public NoteChangesResponseDTO getChangesSince(User user, String token, int limit) {
+        // Whatever committed before this request is sequenced and therefore returned
+        assignSequences();
+        return readOnlyTransactionTemplate.execute(status -> readChangesSince(user, parseToken(token), limit));
+    }
+
+    private NoteChangesResponseDTO readChangesSince(User user, Long since, int limit) {
+        if (since == null) {
+            // Capture the watermark before reading so nothing committed in between is skipped
+            long watermark = currentSequence();
+            List<NoteResponseDTO> notes = noteRepository.findByOwnerOrSharedWith(user).stream()
+                    .map(NoteResponseDTO::from)
+                    .toList();
+            return new NoteChangesResponseDTO(notes, List.of(), formatToken(watermark), false, true);
+        }
+
+        List<NoteChange> changes = noteChangeRepository.findByUserIdAndSequenceGreaterThanOrderBySequenceAsc(
+                user.getId(), since, PageRequest.of(0, limit + 1));
+        boolean hasMore = changes.size() > limit;
+        if (hasMore) {
+            changes = changes.subList(0, limit);
+        }
+
+        // Collapse to the latest change per note
+        Map<UUID, NoteChange.Type> latest = new LinkedHashMap<>();
+        long nextSequence = since;
+        for (NoteChange change : changes) {
+            latest.put(change.getNoteId(), change.getType());
+            nextSequence = change.getSequence();
+        }
+
+        Set<UUID> upsertIds = latest.entrySet().stream()
+                .filter(entry -> entry.getValue() == NoteChange.Type.UPSERT)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        Map<UUID, Note> notesById = upsertIds.isEmpty() ? Map.of() :
+                noteRepository.findAllById(upsertIds).stream()
+                        .collect(Collectors.toMap(Note::getId, Function.identity()));
+        Set<UUID> accessible = notesById.isEmpty() ? Set.of() :
+                new HashSet<>(noteRepository.findAccessibleNoteIds(user.getId(), notesById.keySet()));
+
+        List<NoteResponseDTO> upserted = new ArrayList<>();
+        List<UUID> removed = new ArrayList<>();
+        for (Map.Entry<UUID, NoteChange.Type> entry : latest.entrySet()) {
+            Note note = notesById.get(entry.getKey());
+            if (entry.getValue() == NoteChange.Type.UPSERT && note != null && accessible.contains(note.getId())) {
+                upserted.add(NoteResponseDTO.from(note));
+            } else {
+                removed.add(entry.getKey());
+            }
+        }
+
+        return new NoteChangesResponseDTO(upserted, removed, formatToken(nextSequence), hasMore, false);
+    }
+
+    /**
+     * Drop change entries older than the retention window; clients holding older tokens resync fully
+     */
+    @Scheduled(cron = "0 30 3 * * *")
+    @Transactional
+    public void pruneChangeLog() {
+        int removed = noteChangeRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention));
+        logger.info("Pruned {} note change log entries", removed);
+    }
+
+    private String formatToken(long sequence) {
+        return "c" + sequence + "-" + System.currentTimeMillis();
+    }
+
+    /**
+     * @return the token's sequence, or null if the token is missing, malformed or past retention
+     */
+    private Long parseToken(String token) {
+        // Tokens without the prefix predate committed sequences
+        if (token == null || !token.startsWith("c")) {
+            return null;
+        }
+        String[] parts = token.substring(1).split("-");
+        if (parts.length != 2) {
+            return null;
+        }
+        try {
+            long sequence = Long.parseLong(parts[0]);
+            Instant issuedAt = Instant.ofEpochMilli(Long.parseLong(parts[1]));
+            LocalDateTime issued = LocalDateTime.ofInstant(issuedAt, ZoneId.systemDefault());
+            if (issued.isBefore(LocalDateTime.now().minus(retention))) {
+                return null;
+            }
+            return sequence;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.dto.DocumentAppendResponseDTO;
+import com.dharmikharkhani.notes.entity.NoteDocumentUpdate;
+import com.dharmikharkhani.notes.exception.ResourceNotFoundException;
+import com.dharmikharkhani.notes.repository.NoteDocumentUpdateRepository;
+import com.dharmikharkhani.notes.repository.NoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Server-side persistence for collaborative (Yjs) note documents.
+ * The collaboration server appends binary deltas; once the log grows past the
+ * compaction thresholds it is asked to replace the log with a single snapshot.
+ */
+@Service
+public class NoteDocumentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NoteDocumentService.class);
+
+    public static final int MAX_PAYLOAD_BYTES = 8 * 1024 * 1024;
+
+    private final NoteDocumentUpdateRepository documentUpdateRepository;
+    private final NoteRepository noteRepository;
+    private final int compactionUpdateThreshold;
+    private final long compactionByteThreshold;
+
+    public NoteDocumentService(NoteDocumentUpdateRepository documentUpdateRepository, NoteRepository noteRepository,
+                               @Value("${app.collaboration.compaction.max-updates:200}") int compactionUpdateThreshold,
+                               @Value("${app.collaboration.compaction.max-bytes:1048576}") long compactionByteThreshold) {
+        this.documentUpdateRepository = documentUpdateRepository;
+        this.noteRepository = noteRepository;
+        this.compactionUpdateThreshold = compactionUpdateThreshold;
+        this.compactionByteThreshold = compactionByteThreshold;
+    }
+
+    /**
+     * Append an incremental Yjs update to the note's log
+     * An update arriving on an empty log may be a delta against a log since reset by a REST content write, so
+     * compaction is requested to store the full document as the new base.
+     *
+     * @return the update's sequence number and whether the log should be compacted
+     */
+    @Transactional
+    public DocumentAppendResponseDTO appendUpdate(UUID noteId, byte[] update) {
+        requireNote(noteId);
+        validatePayload(update);
+        boolean emptyLog = !documentUpdateRepository.existsByNoteId(noteId);
+
+        NoteDocumentUpdate saved = documentUpdateRepository.save(
+                new NoteDocumentUpdate(noteId, NoteDocumentUpdate.Kind.UPDATE, update));
+
+        Object[] summary = documentUpdateRepository
+                .summarizeUpdatesAfter(noteId, NoteDocumentUpdate.Kind.SNAPSHOT, latestThroughSequence(noteId)).get(0);
+        long pendingUpdates = ((Number) summary[0]).longValue();
+        long pendingBytes = ((Number) summary[1]).longValue();
+        boolean compactionRequested = emptyLog || pendingUpdates >= compactionUpdateThreshold
+                || pendingBytes >= compactionByteThreshold;
+
+        logger.debug("Appended {} byte update #{} to note {} ({} pending, compaction={})",
+                update.length, saved.getId(), noteId, pendingUpdates, compactionRequested);
+
+        return new DocumentAppendResponseDTO(saved.getId(), pendingUpdates, pendingBytes, compactionRequested);
+    }
+
+    /**
+     * Store a full-state snapshot and drop every log entry it covers
+     * Updates appended while the snapshot was being built (sequences above {@code throughSequence}) are kept and
+     * replayed on top of it; a snapshot covering no more than an existing one is ignored.
+     *
+     * @param throughSequence last update sequence already merged into the snapshot
+     * @return the id of the snapshot now covering the log
+     */
+    @Transactional
+    public long storeSnapshot(UUID noteId, byte[] snapshot, long throughSequence) {
+        requireNote(noteId);
+        validatePayload(snapshot);
+
+        Optional<NoteDocumentUpdate> latest = latestSnapshot(noteId);
+        if (latest.isPresent() && coveredThrough(latest.get()) >= throughSequence) {
+            logger.debug("Ignored snapshot of note {} through #{}: snapshot #{} already covers it",
+                    noteId, throughSequence, latest.get().getId());
+            return latest.get().getId();
+        }
+
+        NoteDocumentUpdate entry = new NoteDocumentUpdate(noteId, NoteDocumentUpdate.Kind.SNAPSHOT, snapshot);
+        entry.setThroughSequence(throughSequence);
+        NoteDocumentUpdate saved = documentUpdateRepository.save(entry);
+        int removed = documentUpdateRepository.deleteCoveredBy(noteId, NoteDocumentUpdate.Kind.SNAPSHOT, saved.getId(), throughSequence);
+
+        logger.info("Compacted document for note {}: snapshot #{} ({} bytes) through #{} replaced {} entries",
+                noteId, saved.getId(), snapshot.length, throughSequence, removed);
+        return saved.getId();
+    }
+
+    /**
+     * Load the latest snapshot followed by every update it does not cover, encoded as
+     * length-prefixed frames (4-byte big-endian length, then the payload).
+     *
+     * @return framed payloads, or an empty array when nothing is stored
+     */
+    @Transactional(readOnly = true)
+    public byte[] loadDocument(UUID noteId) {
+        requireNote(noteId);
+
+        Optional<NoteDocumentUpdate> snapshot = latestSnapshot(noteId);
+        List<NoteDocumentUpdate> entries = new ArrayList<>();
+        snapshot.ifPresent(entries::add);
+        long through = snapshot.map(this::coveredThrough).orElse(0L);
+        entries.addAll(documentUpdateRepository.findUpdatesAfter(noteId, NoteDocumentUpdate.Kind.SNAPSHOT, through));
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            for (NoteDocumentUpdate entry : entries) {
+                out.writeInt(entry.getPayload().length);
+                out.write(entry.getPayload());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Remove the stored document when its note is deleted
+     */
+    @Transactional
+    public void deleteDocument(UUID noteId) {
+        int removed = documentUpdateRepository.deleteByNoteId(noteId);
+        if (removed > 0) {
+            logger.debug("Deleted {} document entries for note {}", removed, noteId);
+        }
+    }
+
+    private Optional<NoteDocumentUpdate> latestSnapshot(UUID noteId) {
+        return documentUpdateRepository.findLatestSnapshots(noteId, NoteDocumentUpdate.Kind.SNAPSHOT, Limit.of(1)).stream().findFirst();
+    }
+
+    private long latestThroughSequence(UUID noteId) {
+        return documentUpdateRepository.findLatestThroughSequences(noteId, NoteDocumentUpdate.Kind.SNAPSHOT, Limit.of(1))
+                .stream().findFirst().orElse(0L);
+    }
+
+    /**
+     * Snapshots stored before through sequences were recorded covered everything before them
+     */
+    private long coveredThrough(NoteDocumentUpdate snapshot) {
+        return snapshot.getThroughSequence() != null ? snapshot.getThroughSequence() : snapshot.getId() - 1;
+    }
+
+    private void requireNote(UUID noteId) {
+        if (!noteRepository.existsById(noteId)) {
+            throw new ResourceNotFoundException();
+        }
+    }
+
+    private void validatePayload(byte[] payload) {
+        if (payload == null || payload.length == 0) {
+            throw new IllegalArgumentException("Document payload is empty");
+        }
+        if (payload.length > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Document payload exceeds " + MAX_PAYLOAD_BYTES + " bytes");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.dto.NoteEventDTO;
+import com.dharmikharkhani.notes.event.NoteChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process fan-out of note change events to per-user server-sent event streams.
+ *
+ * Each user has one multicast sink shared by their open streams. Every subscriber gets its own bounded
+ * buffer that drops the oldest events when the client falls behind; a dropped event is harmless because
+ * events only tell the client to pull from the changes endpoint, which is authoritative.
+ */
+@Service
+public class NoteEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(NoteEventBus.class);
+
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final int bufferSize;
+    private final int maxStreamsPerUser;
+    private final Duration heartbeatInterval;
+    private final Duration maxStreamDuration;
+
+    public NoteEventBus(@Value("${app.events.buffer-size:256}") int bufferSize,
+                        @Value("${app.events.max-streams-per-user:5}") int maxStreamsPerUser,
+                        @Value("${app.events.heartbeat-interval:25s}") Duration heartbeatInterval,
+                        @Value("${app.events.max-stream-duration:30m}") Duration maxStreamDuration) {
+        this.bufferSize = bufferSize;
+        this.maxStreamsPerUser = maxStreamsPerUser;
+        this.heartbeatInterval = heartbeatInterval;
+        this.maxStreamDuration = maxStreamDuration;
+    }
+
+    /**
+     * Forward a committed change to the user's open streams (no-op when the user has none)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        Channel channel = channels.get(event.userId());
+        if (channel == null) {
+            return;
+        }
+        // Best effort: if the sink is being completed concurrently the event is simply not delivered
+        channel.sink.emitNext(NoteEventDTO.from(event), Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(50)));
+    }
+
+    /**
+     * Event stream for a user
+     * A slot is only taken once the stream is subscribed and is returned when it ends, so a stream that is never
+     * subscribed (client gone before the response started) holds nothing. Streams end after the configured maximum
+     * duration; EventSource clients reconnect automatically.
+     *
+     * @throws IllegalStateException if the user already has the maximum number of open streams; a stream that
+     *         loses the race for the last slot at subscription ends with this error instead
+     */
+    public Flux<ServerSentEvent<NoteEventDTO>> subscribe(Long userId) {
+        Channel existing = channels.get(userId);
+        if (existing != null && existing.subscribers >= maxStreamsPerUser) {
+            throw new IllegalStateException("Too many open event streams");
+        }
+        return Flux.defer(() -> open(userId));
+    }
+
+    private Flux<ServerSentEvent<NoteEventDTO>> open(Long userId) {
+        Channel channel = channels.compute(userId, (id, existing) -> {
+            Channel current = existing != null ? existing : new Channel();
+            if (current.subscribers >= maxStreamsPerUser) {
+                throw new IllegalStateException("Too many open event streams");
+            }
+            current.subscribers++;
+            return current;
+        });
+
+        Flux<ServerSentEvent<NoteEventDTO>> events = channel.sink.asFlux()
+                .onBackpressureBuffer(bufferSize,
+                        dropped -> logger.debug("Dropped note event {} for slow subscriber of user {}", dropped.sequence(), userId),
+                        BufferOverflowStrategy.DROP_OLDEST)
+                .map(event -> ServerSentEvent.<NoteEventDTO>builder()
+                        .id(Long.toString(event.sequence()))
+                        .event("note")
+                        .data(event)
+                        .build());
+
+        // Comments keep proxies and load balancers from closing an idle connection
+        Flux<ServerSentEvent<NoteEventDTO>> heartbeats = Flux.interval(heartbeatInterval)
+                .map(tick -> ServerSentEvent.<NoteEventDTO>builder().comment("heartbeat").build())
+                .onBackpressureDrop();
+
+        return Flux.merge(events, heartbeats)
+                .take(maxStreamDuration)
+                .doFinally(signal -> release(userId, channel));
+    }
+
+    private void release(Long userId, Channel channel) {
+        channels.computeIfPresent(userId, (id, current) -> {
+            if (current != channel) {
+                return current;
+            }
+            current.subscribers--;
+            if (current.subscribers > 0) {
+                return current;
+            }
+            current.sink.tryEmitComplete();
+            return null;
+        });
+    }
+
+    /**
+     * A user's sink plus its subscriber count; the count is only modified inside map compute calls
+     */
+    private static final class Channel {
+        private final Sinks.Many<NoteEventDTO> sink = Sinks.many().multicast().directBestEffort();
+        // Volatile for the unlocked early check in subscribe
+        private volatile int subscribers;
+    }
+}
@@ -0,0 +1,264 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.auth.model.User;
+import com.dharmikharkhani.notes.auth.repository.UserRepository;
+import com.dharmikharkhani.notes.dto.NoteGraphDTO;
+import com.dharmikharkhani.notes.entity.NoteGraph;
+import com.dharmikharkhani.notes.event.NoteEmbeddingChangedEvent;
+import com.dharmikharkhani.notes.repository.ColocatedVectorSearchRepository;
+import com.dharmikharkhani.notes.repository.InsertIgnoreSupport;
+import com.dharmikharkhani.notes.repository.NoteGraphRepository;
+import com.dharmikharkhani.notes.repository.NoteRepository;
+import com.dharmikharkhani.notes.repository.pgvector.NoteNeighbourRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Maintains each graph-view user's k-nearest-neighbour note graph in the background and serves it with one read.
+ *
+ * What a graph is missing is recorded in the database, on its note_graphs row, so no change is lost on restart
+ * and any instance can pick it up: the user's change log shows notes created, deleted, shared or unshared since
+ * the graph's change sequence, and an embedding change marks the graphs of the note's audience. A scheduled job,
+ * run on one instance at a time, recomputes neighbour lists just for new, changed or affected notes and stores
+ * the result as a {@link KnnGraph} blob. A user's first graph request creates the row, which queues the build.
+ * Neighbours are searched among the user's notes staged in the vector database, or, with co-located embeddings
+ * (app.embeddings.colocated=true), filtered by access in the same statement on the primary database.
+ */
+@Service
+public class NoteGraphService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NoteGraphService.class);
+
+    private static final String LEASE_NAME = "note-graph-refresh";
+    // Notes per batched kNN statement
+    private static final int SOURCE_BATCH = 100;
+    // Embedding timestamps come from other instances' clocks; changes this close to a refresh are looked at again
+    private static final Duration CLOCK_SLACK = Duration.ofMinutes(1);
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final NoteGraphRepository noteGraphRepository;
+    private final NoteRepository noteRepository;
+    private final UserRepository userRepository;
+    private final NoteNeighbourRepository noteNeighbourRepository;
+    private final ColocatedVectorSearchRepository colocatedVectorSearchRepository;
+    private final NoteChangeLogService noteChangeLogService;
+    private final JobLeaseService jobLeaseService;
+    private final InsertIgnoreSupport insertIgnoreSupport;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate pgvectorTransactionTemplate;
+    private final boolean colocated;
+    private final int neighbours;
+    private final double minSimilarity;
+    private final int maxUsersPerRun;
+    private final Duration refreshInterval;
+
+    public NoteGraphService(NoteGraphRepository noteGraphRepository, NoteRepository noteRepository,
+                            UserRepository userRepository, NoteNeighbourRepository noteNeighbourRepository,
+                            ColocatedVectorSearchRepository colocatedVectorSearchRepository,
+                            NoteChangeLogService noteChangeLogService, JobLeaseService jobLeaseService,
+                            InsertIgnoreSupport insertIgnoreSupport,
+                            @Qualifier("primaryTransactionManager") PlatformTransactionManager transactionManager,
+                            @Qualifier("pgvectorTransactionManager") PlatformTransactionManager pgvectorTransactionManager,
+                            @Value("${app.embeddings.colocated:false}") boolean colocated,
+                            @Value("${app.graph.neighbours:8}") int neighbours,
+                            @Value("${app.graph.min-similarity:0.4}") double minSimilarity,
+                            @Value("${app.graph.max-users-per-run:50}") int maxUsersPerRun,
+                            @Value("${app.graph.refresh-interval-ms:30000}") long refreshIntervalMs) {
+        this.noteGraphRepository = noteGraphRepository;
+        this.noteRepository = noteRepository;
+        this.userRepository = userRepository;
+        this.noteNeighbourRepository = noteNeighbourRepository;
+        this.colocatedVectorSearchRepository = colocatedVectorSearchRepository;
+        this.noteChangeLogService = noteChangeLogService;
+        this.jobLeaseService = jobLeaseService;
+        this.insertIgnoreSupport = insertIgnoreSupport;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pgvectorTransactionTemplate = new TransactionTemplate(pgvectorTransactionManager);
+        this.colocated = colocated;
+        this.neighbours = neighbours;
+        this.minSimilarity = minSimilarity;
+        this.maxUsersPerRun = maxUsersPerRun;
+        this.refreshInterval = Duration.ofMillis(refreshIntervalMs);
+    }
+
+    /**
+     * The user's stored graph with undirected edges; queues the first build if there is none yet
+     */
+    @Transactional
+    public NoteGraphDTO getGraph(String userEmail) {
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        Optional<NoteGraph> stored = noteGraphRepository.findById(user.getId());
+        if (stored.isEmpty() || stored.get().getChangeSequence() == null) {
+            if (stored.isEmpty()) {
+                // An unbuilt row is what the refresh job looks for; concurrent first requests insert it once
+                insertIgnoreSupport.insert("note_graphs", "user_id, adjacency, node_count, updated_at", "user_id",
+                        user.getId(), new KnnGraph().encode(), 0, LocalDateTime.now());
+            }
+            return new NoteGraphDTO(List.of(), List.of(), true, null);
+        }
+
+        KnnGraph graph = KnnGraph.decode(stored.get().getAdjacency());
+        List<UUID> nodes = new ArrayList<>(graph.nodes());
+        Map<UUID, Integer> index = new HashMap<>(nodes.size() * 2);
+        for (UUID node : nodes) {
+            index.put(node, index.size());
+        }
+        // kNN lists are directed; keep one edge per pair with the higher similarity
+        Map<Long, NoteGraphDTO.Edge> edges = new LinkedHashMap<>();
+        for (UUID node : nodes) {
+            int from = index.get(node);
+            for (KnnGraph.Neighbour neighbour : graph.neighbours(node)) {
+                int to = index.get(neighbour.id());
+                int source = Math.min(from, to);
+                int target = Math.max(from, to);
+                NoteGraphDTO.Edge edge = new NoteGraphDTO.Edge(source, target, neighbour.similarity());
+                edges.merge((long) source * nodes.size() + target, edge,
+                        (a, b) -> a.similarity() >= b.similarity() ? a : b);
+            }
+        }
+        return new NoteGraphDTO(nodes, new ArrayList<>(edges.values()), false, stored.get().getUpdatedAt());
+    }
+
+    /**
+     * Mark the graphs of everyone who can see the note; deleted notes reach their users through the change log
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmbeddingChanged(NoteEmbeddingChangedEvent event) {
+        transactionTemplate.executeWithoutResult(status ->
+                noteGraphRepository.markEmbeddingsChanged(event.noteId(), LocalDateTime.now()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.graph.refresh-interval-ms:30000}")
+    public void refreshGraphs() {
+        if (!jobLeaseService.tryAcquire(LEASE_NAME, LocalDateTime.now().plus(refreshInterval))) {
+            return;
+        }
+        for (Long userId : noteGraphRepository.findDueUserIds(Limit.of(maxUsersPerRun))) {
+            try {
+                update(userId);
+            } catch (Exception e) {
+                // The row is still behind, so the next run retries it
+                logger.warn("Failed to update note graph for user {}: {}", userId, e.toString());
+            }
+        }
+    }
+
+    /**
+     * Bring one user's graph up to date
+     */
+    private void update(Long userId) {
+        NoteGraph stored = noteGraphRepository.findById(userId).orElse(null);
+        if (stored == null) {
+            return;
+        }
+        // Read the marks before the notes, so anything recorded later is caught by the next run
+        long sequence = noteChangeLogService.currentSequence();
+        LocalDateTime changedMark = stored.getEmbeddingsChangedAt();
+        LocalDateTime embeddingsThrough = LocalDateTime.now().minus(CLOCK_SLACK);
+        boolean firstBuild = stored.getChangeSequence() == null;
+
+        KnnGraph graph = firstBuild ? new KnnGraph() : KnnGraph.decode(stored.getAdjacency());
+        Set<UUID> accessible = new HashSet<>(noteRepository.findIdsAccessibleBy(userId));
+        LocalDateTime since = stored.getEmbeddingsThrough() != null ? stored.getEmbeddingsThrough() : EPOCH;
+        int recomputed;
+
+        if (colocated) {
+            Set<UUID> changed = firstBuild ? Set.of()
+                    : new HashSet<>(colocatedVectorSearchRepository.findAccessibleUpdatedAfter(userId, since));
+            recomputed = recompute(graph, accessible, changed, batch ->
+                    colocatedVectorSearchRepository.findNearestAccessible(userId, batch, accessible.size(), neighbours));
+        } else {
+            recomputed = pgvectorTransactionTemplate.execute(status -> {
+                noteNeighbourRepository.stageCandidates(accessible);
+                Set<UUID> changed = firstBuild ? Set.of()
+                        : new HashSet<>(noteNeighbourRepository.findCandidatesUpdatedAfter(since));
+                return recompute(graph, accessible, changed, batch ->
+                        noteNeighbourRepository.findNearestCandidates(batch, accessible.size(), neighbours));
+            });
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            stored.setAdjacency(graph.encode());
+            stored.setNodeCount(graph.nodes().size());
+            stored.setChangeSequence(sequence);
+            stored.setEmbeddingsThrough(embeddingsThrough);
+            noteGraphRepository.save(stored);
+            if (changedMark != null) {
+                noteGraphRepository.clearEmbeddingsChanged(userId, changedMark);
+            }
+        });
+        logger.debug("Updated note graph for user {}: {} of {} notes recomputed", userId, recomputed, accessible.size());
+    }
+
+    /**
+     * Drop notes no longer accessible and recompute the lists of new, changed and affected notes
+     *
+     * @param nearest nearest accessible notes for a batch of source notes, most similar first
+     * @return number of notes recomputed
+     */
+    private int recompute(KnnGraph graph, Set<UUID> accessible, Set<UUID> changed,
+                          Function<List<UUID>, Map<UUID, Map<UUID, Double>>> nearest) {
+        Set<UUID> recompute = new HashSet<>();
+        for (UUID id : accessible) {
+            if (!graph.nodes().contains(id) || changed.contains(id)) {
+                recompute.add(id);
+            }
+        }
+        Set<UUID> stale = new HashSet<>(changed);
+        for (UUID id : new ArrayList<>(graph.nodes())) {
+            if (!accessible.contains(id)) {
+                graph.remove(id);
+                stale.add(id);
+            }
+        }
+        // Lists pointing at a removed or changed note may now be wrong or short
+        for (UUID id : graph.nodes()) {
+            if (graph.neighbours(id).stream().anyMatch(n -> stale.contains(n.id()))) {
+                recompute.add(id);
+            }
+        }
+        for (UUID id : recompute) {
+            if (!graph.nodes().contains(id)) {
+                graph.put(id, List.of());
+            }
+        }
+
+        List<UUID> sources = new ArrayList<>(recompute);
+        for (int from = 0; from < sources.size(); from += SOURCE_BATCH) {
+            List<UUID> batch = sources.subList(from, Math.min(from + SOURCE_BATCH, sources.size()));
+            Map<UUID, Map<UUID, Double>> found = nearest.apply(batch);
+            for (UUID source : batch) {
+                List<KnnGraph.Neighbour> list = new ArrayList<>();
+                found.getOrDefault(source, Map.of()).forEach((id, similarity) -> {
+                    if (similarity >= minSimilarity) {
+                        list.add(new KnnGraph.Neighbour(id, similarity));
+                    }
+                });
+                graph.put(source, list);
+                // Similarity is symmetric, so the recomputed note may now rank in its neighbours' own lists
+                for (KnnGraph.Neighbour neighbour : list) {
+                    if (!recompute.contains(neighbour.id())) {
+                        graph.offer(neighbour.id(), source, neighbour.similarity(), neighbours);
+                    }
+                }
+            }
+        }
+        return recompute.size();
+    }
+}
@@ -0,0 +1,141 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.auth.model.User;
+import com.dharmikharkhani.notes.auth.repository.UserRepository;
+import com.dharmikharkhani.notes.dto.NoteQueryRequestDTO;
+import com.dharmikharkhani.notes.dto.NoteQueryResponseDTO;
+import com.dharmikharkhani.notes.dto.NoteResponseDTO;
+import com.dharmikharkhani.notes.entity.Note;
+import com.dharmikharkhani.notes.repository.NoteQueryRepository;
+import com.dharmikharkhani.notes.repository.NoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Structured note queries combining tag filters, scope, creation date range and an optional text query.
+ * Filtering and paging happen in the database; only the requested page of notes is loaded.
+ */
+@Service
+public class NoteQueryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NoteQueryService.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Notes matching the structured filters are ranked by similarity; at most this many are returned across pages
+    private static final int SEMANTIC_CANDIDATES = 200;
+    private static final double SEMANTIC_THRESHOLD = 0.35;
+
+    private final NoteRepository noteRepository;
+    private final UserRepository userRepository;
+    private final PGVectorSearchService pgVectorSearchService;
+    // Embeddings live in the primary PostgreSQL schema, so the matching notes are ranked in one statement
+    private final boolean colocated;
+
+    public NoteQueryService(NoteRepository noteRepository, UserRepository userRepository,
+                            PGVectorSearchService pgVectorSearchService,
+                            @Value("${app.embeddings.colocated:false}") boolean colocated) {
+        this.noteRepository = noteRepository;
+        this.userRepository = userRepository;
+        this.pgVectorSearchService = pgVectorSearchService;
+        this.colocated = colocated;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the request is malformed
+     */
+    @Transactional(readOnly = true)
+    public NoteQueryResponseDTO query(NoteQueryRequestDTO request, String userEmail) {
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        int page = request.page() != null ? request.page() : 0;
+        int size = request.size() != null ? request.size() : DEFAULT_PAGE_SIZE;
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (request.createdFrom() != null && request.createdTo() != null
+                && request.createdFrom().isAfter(request.createdTo())) {
+            throw new IllegalArgumentException("createdFrom must not be after createdTo");
+        }
+
+        NoteQueryRepository.Scope scope = parseScope(request.scope());
+        String text = request.text() != null && !request.text().isBlank() ? request.text().trim() : null;
+        boolean semantic = text != null && "semantic".equalsIgnoreCase(request.mode());
+        if (request.mode() != null && !semantic && !"keyword".equalsIgnoreCase(request.mode())) {
+            throw new IllegalArgumentException("Unknown mode: " + request.mode());
+        }
+
+        if (semantic) {
+            return semanticQuery(request, user, scope, text, page, size);
+        }
+
+        NoteQueryRepository.NoteQueryFilter filter = new NoteQueryRepository.NoteQueryFilter(
+                user.getId(), scope, request.allTags(), request.anyTags(),
+                request.createdFrom(), request.createdTo(), text, null);
+
+        List<UUID> ids = noteRepository.findNoteIds(filter, page * size, size);
+        // A short, non-empty page (or an empty first page) is the last one, so the total is known without counting
+        boolean lastPage = ids.size() < size && (page == 0 || !ids.isEmpty());
+        long total = lastPage ? (long) page * size + ids.size() : noteRepository.countNotes(filter);
+        return new NoteQueryResponseDTO(hydrate(ids), page, size, total);
+    }
+
+    private NoteQueryResponseDTO semanticQuery(NoteQueryRequestDTO request, User user, NoteQueryRepository.Scope scope,
+                                               String text, int page, int size) {
+        NoteQueryRepository.NoteQueryFilter filter = new NoteQueryRepository.NoteQueryFilter(
+                user.getId(), scope, request.allTags(), request.anyTags(),
+                request.createdFrom(), request.createdTo(), null, null);
+
+        // Filter first and rank only the matching notes, so no candidate slot goes to a note filtered out later
+        List<UUID> matching = noteRepository.findNoteIds(filter, 0, 0);
+        if (matching.isEmpty()) {
+            return new NoteQueryResponseDTO(List.of(), page, size, 0);
+        }
+        Map<UUID, Double> scores = colocated
+                ? pgVectorSearchService.semanticSearchAmongColocated(text, matching, SEMANTIC_CANDIDATES, SEMANTIC_THRESHOLD)
+                : pgVectorSearchService.semanticSearchAmong(text, matching, SEMANTIC_CANDIDATES, SEMANTIC_THRESHOLD);
+
+        // The ranked set is bounded, so page it in memory
+        List<UUID> ranked = new ArrayList<>(scores.keySet());
+        int from = Math.min(page * size, ranked.size());
+        int to = Math.min(from + size, ranked.size());
+        logger.debug("Semantic query ranked {} of {} matching notes", ranked.size(), matching.size());
+        return new NoteQueryResponseDTO(hydrate(ranked.subList(from, to)), page, size, ranked.size());
+    }
+
+    /**
+     * Load notes for the given ids, preserving their order
+     */
+    private List<NoteResponseDTO> hydrate(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, Note> notesById = noteRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Note::getId, Function.identity()));
+        return ids.stream()
+                .map(notesById::get)
+                .filter(Objects::nonNull)
+                .map(NoteResponseDTO::from)
+                .toList();
+    }
+
+    private NoteQueryRepository.Scope parseScope(String scope) {
+        if (scope == null || scope.isBlank()) {
+            return NoteQueryRepository.Scope.ALL;
+        }
+        try {
+            return NoteQueryRepository.Scope.valueOf(scope.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown scope: " + scope);
+        }
+    }
+}
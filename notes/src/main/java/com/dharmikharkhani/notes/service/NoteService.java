@@ -2,20 +2,25 @@ package com.dharmikharkhani.notes.service;
 
 import com.dharmikharkhani.notes.auth.model.User;
 import com.dharmikharkhani.notes.auth.repository.UserRepository;
+import com.dharmikharkhani.notes.dto.NoteContentPatchRequestDTO;
+import com.dharmikharkhani.notes.dto.NoteContentPatchResponseDTO;
 import com.dharmikharkhani.notes.dto.NoteRequestDTO;
 import com.dharmikharkhani.notes.dto.NoteResponseDTO;
 import com.dharmikharkhani.notes.entity.Note;
+import com.dharmikharkhani.notes.dto.TextPatchDTO;
 import com.dharmikharkhani.notes.entity.Tag;
+import com.dharmikharkhani.notes.exception.NotePreconditionFailedException;
+import com.dharmikharkhani.notes.exception.NoteVersionConflictException;
 import com.dharmikharkhani.notes.exception.ResourceNotFoundException;
 import com.dharmikharkhani.notes.repository.NoteRepository;
-import com.dharmikharkhani.notes.repository.TagRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -24,14 +29,20 @@ import java.util.stream.Collectors;
 public class NoteService {
     private final UserRepository userRepository;
     private final NoteRepository noteRepository;
-    private final TagRepository tagRepository;
-    private final PGVectorSearchService pgVectorSearchService;
+    private final TagResolutionService tagResolutionService;
+    private final EmbeddingOutboxService embeddingOutboxService;
+    private final NoteDocumentService noteDocumentService;
+    private final NoteChangeLogService noteChangeLogService;
+    private final NoteTemplateService noteTemplateService;
 
-    public NoteService(UserRepository userRepository, NoteRepository noteRepository, TagRepository tagRepository, PGVectorSearchService pgVectorSearchService) {
+    public NoteService(UserRepository userRepository, NoteRepository noteRepository, TagResolutionService tagResolutionService, EmbeddingOutboxService embeddingOutboxService, NoteDocumentService noteDocumentService, NoteChangeLogService noteChangeLogService, NoteTemplateService noteTemplateService) {
         this.userRepository = userRepository;
         this.noteRepository = noteRepository;
-        this.tagRepository = tagRepository;
-        this.pgVectorSearchService = pgVectorSearchService;
+        this.tagResolutionService = tagResolutionService;
+        this.embeddingOutboxService = embeddingOutboxService;
+        this.noteDocumentService = noteDocumentService;
+        this.noteChangeLogService = noteChangeLogService;
+        this.noteTemplateService = noteTemplateService;
     }
 
 
@@ -49,17 +60,7 @@ public class NoteService {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        Set<Tag> tags = new HashSet<>();
-        if (newNote.tags() != null) {
-            tags = newNote.tags().stream()
-                    .map(tagName -> tagRepository.findByName(tagName)
-                            .orElseGet(() -> {
-                                Tag newTag = new Tag();
-                                newTag.setName(tagName);
-                                return tagRepository.save(newTag);
-                            }))
-                    .collect(Collectors.toSet());
-        }
+        Set<Tag> tags = tagResolutionService.resolve(newNote.tags());
 
         Note note = new Note();
         note.setOwner(user);
@@ -68,82 +69,214 @@ public class NoteService {
         note.setTags(tags);
 
         Note savedNote = noteRepository.save(note);
+        noteChangeLogService.recordUpsert(savedNote);
 
-        // Generate embedding for the new note asynchronously
-        pgVectorSearchService.upsertNoteEmbedding(savedNote.getId(), savedNote.getTitle(), savedNote.getContent());
+        // Embedding is generated by the outbox relay once this transaction commits
+        embeddingOutboxService.enqueueUpsert(savedNote.getId());
 
         return savedNote;
     }
 
     @Transactional
-    public NoteResponseDTO updateNote(UUID id, NoteRequestDTO updatedNote, String userEmail) {
+    public NoteResponseDTO updateNote(UUID id, NoteRequestDTO updatedNote, String userEmail, Set<Long> expectedVersions) {
         Note existingNote = noteRepository.findById(id)
                 .orElseThrow(ResourceNotFoundException::new);
 
-        Set<Tag> tags = new HashSet<>();
-        if (updatedNote.tags() != null) {
-            tags = updatedNote.tags().stream()
-                    .map(tagName -> tagRepository.findByName(tagName)
-                            .orElseGet(() -> {
-                                Tag newTag = new Tag();
-                                newTag.setName(tagName);
-                                return tagRepository.save(newTag);
-                            }))
-                    .collect(Collectors.toSet());
+        if (existingNote.isTemplate() && !existingNote.getOwner().getEmail().equals(userEmail)) {
+            // Edit of a shared template: continue on the caller's private copy, which has a new id
+            User user = userRepository.findByEmail(userEmail)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            Optional<Note> copy = noteRepository.findCopyOfTemplate(user.getId(), id);
+            if (copy.isEmpty()) {
+                // A new copy starts as the template, so the caller's version refers to the template
+                checkExpectedVersion(existingNote, expectedVersions);
+                existingNote = noteTemplateService.materialize(existingNote, user);
+            } else {
+                // An earlier edit made the copy, which may have changed since; the write lands on it
+                existingNote = copy.get();
+                checkExpectedVersion(existingNote, expectedVersions);
+            }
+        } else {
+            checkExpectedVersion(existingNote, expectedVersions);
         }
 
+        Set<Tag> tags = tagResolutionService.resolve(updatedNote.tags());
+        boolean contentChanged = !Objects.equals(existingNote.getContent(), updatedNote.content());
+
         existingNote.setTitle(updatedNote.title());
         existingNote.setContent(updatedNote.content());
         existingNote.setTags(tags);
 
-        Note savedNote = noteRepository.save(existingNote);
+        // Flush so the response carries the incremented version
+        Note savedNote = noteRepository.saveAndFlush(existingNote);
+        noteChangeLogService.recordUpsert(savedNote);
+        if (contentChanged) {
+            resetDocument(savedNote.getId());
+        }
 
         // Update embedding for the modified note
-        pgVectorSearchService.upsertNoteEmbedding(savedNote.getId(), savedNote.getTitle(), savedNote.getContent());
+        embeddingOutboxService.enqueueUpsert(savedNote.getId());
 
         return NoteResponseDTO.from(savedNote);
     }
 
+    @Transactional
     public void deleteNote(UUID id) {
         Note noteToDelete = noteRepository.findById(id)
                 .orElseThrow(ResourceNotFoundException::new);
+        noteChangeLogService.recordRemoval(id, noteChangeLogService.audienceOf(noteToDelete));
+
+        // Embedding is removed by the outbox relay once the delete commits
+        embeddingOutboxService.enqueueDelete(id);
 
-        // Delete embedding first
-        pgVectorSearchService.deleteNoteEmbedding(id);
+        // Drop the collaborative document log
+        noteDocumentService.deleteDocument(id);
 
         noteRepository.delete(noteToDelete);
     }
 
+    @Transactional
+    public void hideTemplateNote(UUID id, String userEmail) {
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        noteTemplateService.unlink(id, user);
+    }
+
     /**
      * Update only the content of a note
      * Used by collaboration server for incremental updates
+     *
+     * @return the note's version after the update
      */
     @Transactional
-    public void updateNoteContent(UUID id, String content) {
+    public long updateNoteContent(UUID id, String content, Set<Long> expectedVersions) {
         Note note = noteRepository.findById(id)
                 .orElseThrow(ResourceNotFoundException::new);
+        checkExpectedVersion(note, expectedVersions);
+        boolean contentChanged = !Objects.equals(note.getContent(), content);
         note.setContent(content);
-        noteRepository.save(note);
+        Note savedNote = noteRepository.saveAndFlush(note);
+        noteChangeLogService.recordUpsert(savedNote);
+        if (contentChanged) {
+            resetDocument(savedNote.getId());
+        }
 
         // Update embedding for the modified content
-        pgVectorSearchService.upsertNoteEmbedding(note.getId(), note.getTitle(), note.getContent());
+        embeddingOutboxService.enqueueUpsert(savedNote.getId());
+        return savedNote.getVersion();
+    }
+
+    /**
+     * Apply ranged text patches to a note's content
+     * Only the edits travel over the wire; the version check rejects patches made against stale content.
+     */
+    @Transactional
+    public NoteContentPatchResponseDTO patchNoteContent(UUID id, NoteContentPatchRequestDTO request, Set<Long> expectedVersions) {
+        Note note = noteRepository.findById(id)
+                .orElseThrow(ResourceNotFoundException::new);
+        checkExpectedVersion(note, expectedVersions);
+
+        // Offsets only make sense against the content they were computed from
+        if (request.baseVersion() == null) {
+            throw new IllegalArgumentException("baseVersion is required");
+        }
+        if (request.baseVersion() != note.getVersion()) {
+            throw new NoteVersionConflictException(note.getVersion());
+        }
+
+        String original = note.getContent() != null ? note.getContent() : "";
+        String patched = applyPatches(original, request.patches());
+        if (patched.equals(original)) {
+            return new NoteContentPatchResponseDTO(note.getId(), note.getVersion(), original.length());
+        }
+
+        note.setContent(patched);
+        // Flush so the incremented version can be returned to the client
+        Note savedNote = noteRepository.saveAndFlush(note);
+        noteChangeLogService.recordUpsert(savedNote);
+        resetDocument(savedNote.getId());
+
+        embeddingOutboxService.enqueueUpsert(savedNote.getId());
+
+        return new NoteContentPatchResponseDTO(savedNote.getId(), savedNote.getVersion(), patched.length());
     }
 
-    public Note patchNote(UUID id, Map<String, Object> updates, String userEmail) {
+    /**
+     * Store the content rendered from the collaborative document, written once by the collaboration server on
+     * behalf of every editor. The document log already holds this content, so it is kept.
+     *
+     * @return whether the content changed
+     */
+    @Transactional
+    public boolean storeDocumentContent(UUID id, String content) {
+        Note note = noteRepository.findById(id)
+                .orElseThrow(ResourceNotFoundException::new);
+        if (Objects.equals(note.getContent(), content)) {
+            return false;
+        }
+        note.setContent(content);
+        Note savedNote = noteRepository.saveAndFlush(note);
+        noteChangeLogService.recordUpsert(savedNote);
+
+        embeddingOutboxService.enqueueUpsert(savedNote.getId());
+        return true;
+    }
+
+    /**
+     * Drop the collaborative document log after a content write made outside the collaboration server, so the next
+     * session starts from the note's content instead of replaying the older document over it
+     */
+    private void resetDocument(UUID id) {
+        noteDocumentService.deleteDocument(id);
+    }
+
+    /**
+     * Enforce an If-Match precondition; null expected versions mean the client sent none
+     */
+    private void checkExpectedVersion(Note note, Set<Long> expectedVersions) {
+        if (expectedVersions != null && !expectedVersions.contains(note.getVersion())) {
+            throw new NotePreconditionFailedException(note.getVersion());
+        }
+    }
+
+    private String applyPatches(String content, List<TextPatchDTO> patches) {
+        if (patches == null || patches.isEmpty()) {
+            return content;
+        }
+        StringBuilder builder = new StringBuilder(content);
+        for (TextPatchDTO patch : patches) {
+            if (patch.start() < 0 || patch.end() < patch.start() || patch.end() > builder.length()) {
+                throw new IllegalArgumentException("Patch range [" + patch.start() + ", " + patch.end()
+                        + ") is outside content of length " + builder.length());
+            }
+            builder.replace(patch.start(), patch.end(), patch.text() != null ? patch.text() : "");
+        }
+        return builder.toString();
+    }
+
+    @Transactional
+    public Note patchNote(UUID id, Map<String, Object> updates, String userEmail, Set<Long> expectedVersions) {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         Note existingNote = noteRepository.findByIdAndOwner(id, user)
                 .orElseThrow(() -> new RuntimeException("Note not found or you don't have permission to update it"));
+        checkExpectedVersion(existingNote, expectedVersions);
 
         if (updates.containsKey("title")) {
             existingNote.setTitle((String) updates.get("title"));
         }
+        boolean contentChanged = updates.containsKey("content")
+                && !Objects.equals(existingNote.getContent(), updates.get("content"));
         if (updates.containsKey("content")) {
             existingNote.setContent((String) updates.get("content"));
         }
 
         Note savedNote = noteRepository.save(existingNote);
+        noteChangeLogService.recordUpsert(savedNote);
+        if (contentChanged) {
+            resetDocument(savedNote.getId());
+        }
         return savedNote;
     }
 
@@ -168,6 +301,7 @@ public class NoteService {
 
         note.getSharedWith().addAll(usersToShare);
         Note savedNote = noteRepository.save(note);
+        noteChangeLogService.recordUpsert(savedNote);
         return NoteResponseDTO.from(savedNote);
     }
 
@@ -182,6 +316,8 @@ public class NoteService {
 
         note.getSharedWith().remove(collaborator);
         Note savedNote = noteRepository.save(note);
+        noteChangeLogService.recordRemoval(noteId, List.of(collaborator.getId()));
+        noteChangeLogService.recordUpsert(savedNote);
 
         return NoteResponseDTO.from(savedNote);
     }
@@ -232,18 +368,10 @@ public class NoteService {
         welcomeNote.setContent(welcomeContent);
 
         // Add "welcome" tag
-        Tag welcomeTag = tagRepository.findByName("welcome")
-                .orElseGet(() -> {
-                    Tag newTag = new Tag();
-                    newTag.setName("welcome");
-                    return tagRepository.save(newTag);
-                });
-
-        Set<Tag> tags = new HashSet<>();
-        tags.add(welcomeTag);
-        welcomeNote.setTags(tags);
-
-        noteRepository.save(welcomeNote);
+        welcomeNote.setTags(tagResolutionService.resolve("welcome"));
+
+        Note savedNote = noteRepository.save(welcomeNote);
+        noteChangeLogService.recordUpsert(savedNote);
     }
 }
 
@@ -0,0 +1,232 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.auth.repository.UserRepository;
+import com.dharmikharkhani.notes.dto.NoteSuggestionDTO;
+import com.dharmikharkhani.notes.entity.Note;
+import com.dharmikharkhani.notes.entity.Tag;
+import com.dharmikharkhani.notes.event.NoteChangedEvent;
+import com.dharmikharkhani.notes.event.UserDeletedEvent;
+import com.dharmikharkhani.notes.repository.NoteChangeRepository;
+import com.dharmikharkhani.notes.repository.NoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+/**
+ * Search-as-you-type suggestions from an in-memory, per-user prefix index over note titles and tags.
+ *
+ * Titles are indexed at every word boundary ("weekly team sync" under "weekly team sync", "team sync"
+ * and "sync") in a sorted map, so a prefix lookup is a range scan. A user's index is loaded on first use
+ * and then kept current from change events and the note change log (see {@link PerUserAggregateService});
+ * suggestions never call the embedding provider.
+ */
+@Service
+public class NoteSuggestionService extends PerUserAggregateService<NoteSuggestionService.UserIndex> {
+
+    private static final Logger logger = LoggerFactory.getLogger(NoteSuggestionService.class);
+
+    public static final int MAX_SUGGESTIONS = 20;
+
+    private final NoteRepository noteRepository;
+    private final UserRepository userRepository;
+    // Access ordered and bounded like the indexes; guarded by itself
+    private final LinkedHashMap<String, Long> userIdsByEmail;
+
+    public NoteSuggestionService(NoteRepository noteRepository, UserRepository userRepository,
+                                 NoteChangeRepository noteChangeRepository, NoteChangeLogService noteChangeLogService,
+                                 @Value("${app.suggest.max-cached-users:10000}") int maxCachedUsers,
+                                 @Value("${app.aggregates.catch-up-interval-ms:1000}") long catchUpIntervalMs) {
+        super(noteChangeRepository, noteChangeLogService, maxCachedUsers, catchUpIntervalMs);
+        this.noteRepository = noteRepository;
+        this.userRepository = userRepository;
+        this.userIdsByEmail = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxCachedUsers;
+            }
+        };
+    }
+
+    /**
+     * Tags first, then note titles, each in alphabetical order of the matched key
+     */
+    @Transactional(readOnly = true)
+    public List<NoteSuggestionDTO> suggest(String userEmail, String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        return read(userIdOf(userEmail), index -> index.suggest(key, Math.min(limit, MAX_SUGGESTIONS)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserRemoved(UserDeletedEvent event) {
+        synchronized (userIdsByEmail) {
+            userIdsByEmail.remove(event.email());
+        }
+    }
+
+    private Long userIdOf(String email) {
+        synchronized (userIdsByEmail) {
+            Long userId = userIdsByEmail.get(email);
+            if (userId != null) {
+                return userId;
+            }
+        }
+        Long userId = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found")).getId();
+        synchronized (userIdsByEmail) {
+            userIdsByEmail.put(email, userId);
+        }
+        return userId;
+    }
+
+    @Override
+    protected UserIndex newAggregate() {
+        return new UserIndex();
+    }
+
+    @Override
+    protected void load(Long userId, UserIndex index) {
+        Map<UUID, Set<String>> tagsByNote = new HashMap<>();
+        for (NoteRepository.NoteTagRow row : noteRepository.findTagNamesOfOwnedNotes(userId)) {
+            tagsByNote.computeIfAbsent(row.getNoteId(), id -> new HashSet<>()).add(row.getTagName());
+        }
+        for (NoteRepository.NoteTagRow row : noteRepository.findTagNamesOfSharedNotes(userId)) {
+            tagsByNote.computeIfAbsent(row.getNoteId(), id -> new HashSet<>()).add(row.getTagName());
+        }
+        List<NoteRepository.NoteTitleRow> titles = noteRepository.findTitlesAccessibleBy(userId);
+        for (NoteRepository.NoteTitleRow row : titles) {
+            index.setNote(row.getNoteId(), row.getTitle(), tagsByNote.getOrDefault(row.getNoteId(), Set.of()));
+        }
+        logger.debug("Loaded suggestion index for user {}: {} notes", userId, titles.size());
+    }
+
+    @Override
+    protected void refresh(Long userId, UserIndex index, Set<UUID> noteIds) {
+        Map<UUID, Note> current = new HashMap<>();
+        for (Note note : noteRepository.findAllById(noteRepository.findAccessibleNoteIds(userId, noteIds))) {
+            current.put(note.getId(), note);
+        }
+        for (UUID noteId : noteIds) {
+            Note note = current.get(noteId);
+            if (note == null) {
+                index.setNote(noteId, null, Set.of());
+            } else {
+                Set<String> tags = new HashSet<>();
+                note.getTags().stream().map(Tag::getName).forEach(tags::add);
+                index.setNote(noteId, note.getTitle(), tags);
+            }
+        }
+    }
+
+    @Override
+    protected void apply(UserIndex index, NoteChangedEvent event) {
+        index.setNote(event.noteId(), event.title(), event.tags());
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * One user's prefix index; guarded by its own monitor
+     */
+    static final class UserIndex extends PerUserAggregateService.Aggregate {
+        // Normalized title suffix (starting at a word boundary) -> notes whose title has it
+        private final TreeMap<String, Set<UUID>> titleKeys = new TreeMap<>();
+        // Normalized tag name -> display name and number of the user's notes carrying it
+        private final TreeMap<String, TagEntry> tagKeys = new TreeMap<>();
+        private final Map<UUID, String> titles = new HashMap<>();
+        private final Map<UUID, Set<String>> tagsByNote = new HashMap<>();
+
+        List<NoteSuggestionDTO> suggest(String prefix, int limit) {
+            List<NoteSuggestionDTO> suggestions = new ArrayList<>(limit);
+            String end = prefix + Character.MAX_VALUE;
+            for (TagEntry tag : tagKeys.subMap(prefix, true, end, false).values()) {
+                if (suggestions.size() >= limit) {
+                    return suggestions;
+                }
+                suggestions.add(NoteSuggestionDTO.tag(tag.name));
+            }
+            Set<UUID> seen = new HashSet<>();
+            for (Set<UUID> noteIds : titleKeys.subMap(prefix, true, end, false).values()) {
+                for (UUID noteId : noteIds) {
+                    if (suggestions.size() >= limit) {
+                        return suggestions;
+                    }
+                    if (seen.add(noteId)) {
+                        suggestions.add(NoteSuggestionDTO.note(noteId, titles.get(noteId)));
+                    }
+                }
+            }
+            return suggestions;
+        }
+
+        /**
+         * Replace a note's entries; a null title with no tags removes the note
+         */
+        void setNote(UUID noteId, String title, Set<String> tags) {
+            String previousTitle = titles.remove(noteId);
+            if (previousTitle != null) {
+                for (String key : titleKeys(previousTitle)) {
+                    Set<UUID> ids = titleKeys.get(key);
+                    if (ids != null && ids.remove(noteId) && ids.isEmpty()) {
+                        titleKeys.remove(key);
+                    }
+                }
+            }
+            for (String tag : tagsByNote.getOrDefault(noteId, Set.of())) {
+                String key = normalize(tag);
+                TagEntry entry = tagKeys.get(key);
+                if (entry != null && --entry.count == 0) {
+                    tagKeys.remove(key);
+                }
+            }
+            tagsByNote.remove(noteId);
+
+            if (title != null && !title.isBlank()) {
+                titles.put(noteId, title);
+                for (String key : titleKeys(title)) {
+                    titleKeys.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(noteId);
+                }
+            }
+            if (tags != null && !tags.isEmpty()) {
+                tagsByNote.put(noteId, Set.copyOf(tags));
+                for (String tag : tags) {
+                    tagKeys.computeIfAbsent(normalize(tag), k -> new TagEntry(tag)).count++;
+                }
+            }
+        }
+
+        private static List<String> titleKeys(String title) {
+            String normalized = normalize(title);
+            List<String> keys = new ArrayList<>();
+            if (normalized.isEmpty()) {
+                return keys;
+            }
+            keys.add(normalized);
+            for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+                keys.add(normalized.substring(i + 1));
+            }
+            return keys;
+        }
+    }
+
+    private static final class TagEntry {
+        private final String name;
+        private int count;
+
+        private TagEntry(String name) {
+            this.name = name;
+        }
+    }
+}
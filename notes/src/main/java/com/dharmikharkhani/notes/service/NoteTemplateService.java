@@ -0,0 +1,122 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.auth.model.User;
+import com.dharmikharkhani.notes.entity.Note;
+import com.dharmikharkhani.notes.repository.NoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Copy-on-write template notes for demo accounts.
+ *
+ * A template is an ordinary note owned by a non-login template user and flagged {@code template}. Demo users read
+ * it through a template_readers link, which every access query accepts alongside sharing, so one template row and
+ * embedding serve every demo user. The links are kept out of the note's eagerly loaded collaborators, so loading a
+ * template never loads its readers. The first edit by a reader creates the reader's private copy and drops
+ * the link; deleting a template only drops the link. Resetting an account deletes its copies and restores the links.
+ */
+@Service
+public class NoteTemplateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NoteTemplateService.class);
+
+    private final NoteRepository noteRepository;
+    private final NoteChangeLogService noteChangeLogService;
+    private final EmbeddingOutboxService embeddingOutboxService;
+
+    public NoteTemplateService(NoteRepository noteRepository, NoteChangeLogService noteChangeLogService,
+                               EmbeddingOutboxService embeddingOutboxService) {
+        this.noteRepository = noteRepository;
+        this.noteChangeLogService = noteChangeLogService;
+        this.embeddingOutboxService = embeddingOutboxService;
+    }
+
+    /**
+     * Move reader links stored as shares by earlier versions into template_readers
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void moveLegacyReaderLinks() {
+        int moved = noteRepository.copyLegacyTemplateReaders();
+        noteRepository.deleteLegacyTemplateReaders();
+        if (moved > 0) {
+            logger.info("Moved {} template reader links out of note_shared_users", moved);
+        }
+    }
+
+    /**
+     * The user's private copy of a template, created on first call
+     * Its content hash matches the template's, so the outbox relay copies the template's embedding.
+     */
+    @Transactional
+    public Note materialize(Note template, User user) {
+        Optional<Note> existing = noteRepository.findCopyOfTemplate(user.getId(), template.getId());
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        Note copy = new Note();
+        copy.setOwner(user);
+        copy.setTitle(template.getTitle());
+        copy.setContent(template.getContent());
+        copy.setTags(new HashSet<>(template.getTags()));
+        copy.setTemplateNoteId(template.getId());
+        // Flush so a concurrent first edit fails here on the unique constraint rather than at commit
+        Note saved = noteRepository.saveAndFlush(copy);
+
+        noteRepository.unlinkFromUser(template.getId(), user.getId());
+        noteChangeLogService.recordRemoval(template.getId(), List.of(user.getId()));
+        noteChangeLogService.recordUpsert(saved);
+        embeddingOutboxService.enqueueUpsert(saved.getId());
+
+        logger.debug("Copied template note {} for user {} as {}", template.getId(), user.getId(), saved.getId());
+        return saved;
+    }
+
+    /**
+     * Hide a template from one reader; the template itself is shared and never deleted
+     */
+    @Transactional
+    public void unlink(UUID templateId, User user) {
+        if (noteRepository.unlinkFromUser(templateId, user.getId()) > 0) {
+            noteChangeLogService.recordRemoval(templateId, List.of(user.getId()));
+        }
+    }
+
+    /**
+     * Give the user read access to the given templates, skipping ones already linked
+     *
+     * @return number of templates newly linked
+     */
+    @Transactional
+    public int link(User user, List<NoteRepository.NoteTitleRow> templates) {
+        if (templates.isEmpty()) {
+            return 0;
+        }
+        Map<UUID, String> missing = new LinkedHashMap<>();
+        for (NoteRepository.NoteTitleRow row : templates) {
+            missing.put(row.getNoteId(), row.getTitle());
+        }
+        noteRepository.findTemplateIdsReadBy(user.getId(), missing.keySet()).forEach(missing::remove);
+        if (missing.isEmpty()) {
+            return 0;
+        }
+
+        noteRepository.linkToUser(missing.keySet(), user.getId());
+
+        // Only this user's view changed; the template's other readers get no change entries
+        Map<UUID, Set<String>> tags = new HashMap<>();
+        for (NoteRepository.NoteTagRow row : noteRepository.findTagNamesByNoteIds(missing.keySet())) {
+            tags.computeIfAbsent(row.getNoteId(), id -> new HashSet<>()).add(row.getTagName());
+        }
+        missing.forEach((noteId, title) ->
+                noteChangeLogService.recordUpsert(noteId, title, tags.getOrDefault(noteId, Set.of()), List.of(user.getId())));
+        return missing.size();
+    }
+}
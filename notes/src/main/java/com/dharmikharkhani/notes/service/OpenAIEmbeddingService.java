@@ -1,5 +1,9 @@
 package com.dharmikharkhani.notes.service;
 
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -7,6 +11,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
@@ -15,6 +21,9 @@ public class OpenAIEmbeddingService {
 
     private static final Logger logger = LoggerFactory.getLogger(OpenAIEmbeddingService.class);
 
+    // The tokenizer of the text-embedding-3 models
+    private static final Encoding TOKENIZER = Encodings.newDefaultEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
     private final WebClient webClient;
 
     @Value("${openai.embedding.model}")
@@ -23,6 +32,14 @@ public class OpenAIEmbeddingService {
     @Value("${openai.embedding.dimensions}")
     private int embeddingDimensions;
 
+    // Inputs per embeddings request; bounded so large notes stay under the per-request token limit
+    @Value("${openai.embedding.batch-size:32}")
+    private int batchSize;
+
+    // Longest input the model accepts; longer texts are cut to this many tokens rather than rejected
+    @Value("${openai.embedding.max-input-tokens:8191}")
+    private int maxInputTokens;
+
     public OpenAIEmbeddingService(
             @Value("${openai.api.key}") String apiKey,
             @Value("${openai.api.url}") String apiUrl
@@ -51,7 +68,7 @@ public class OpenAIEmbeddingService {
             logger.debug("Generating embedding for text of length: {}", text.length());
 
             Map<String, Object> requestBody = Map.of(
-                    "input", text,
+                    "input", truncate(text),
                     "model", embeddingModel,
                     "dimensions", embeddingDimensions
             );
@@ -86,6 +103,84 @@ public class OpenAIEmbeddingService {
         }
     }
 
+    /**
+     * Generate embeddings for several texts, sending up to batch-size inputs per API request
+     *
+     * @param texts The texts to generate embeddings for
+     * @return One embedding per text, in the same order
+     * @throws RuntimeException if an API call fails
+     */
+    public List<float[]> generateEmbeddings(List<String> texts) {
+        List<float[]> embeddings = new ArrayList<>(texts.size());
+        for (int from = 0; from < texts.size(); from += batchSize) {
+            List<String> chunk = texts.subList(from, Math.min(from + batchSize, texts.size()));
+            // The API rejects empty inputs; those get a zero vector, as in generateEmbedding
+            List<String> inputs = chunk.stream()
+                    .filter(text -> text != null && !text.trim().isEmpty())
+                    .map(this::truncate)
+                    .toList();
+            List<float[]> generated = inputs.isEmpty() ? List.of() : requestEmbeddings(inputs);
+            int next = 0;
+            for (String text : chunk) {
+                embeddings.add(text != null && !text.trim().isEmpty() ? generated.get(next++) : new float[embeddingDimensions]);
+            }
+        }
+        return embeddings;
+    }
+
+    private List<float[]> requestEmbeddings(List<String> inputs) {
+        try {
+            logger.debug("Generating embeddings for {} texts", inputs.size());
+
+            Map<String, Object> requestBody = Map.of(
+                    "input", inputs,
+                    "model", embeddingModel,
+                    "dimensions", embeddingDimensions
+            );
+
+            EmbeddingResponse response = webClient.post()
+                    .uri("/embeddings")
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToMono(EmbeddingResponse.class)
+                    .block();
+
+            if (response == null || response.data == null || response.data.size() != inputs.size()) {
+                logger.error("Invalid response from OpenAI API: expected {} embeddings", inputs.size());
+                throw new RuntimeException("Failed to generate embeddings: incomplete response");
+            }
+
+            // Results carry the index of their input; don't rely on response order
+            List<EmbeddingData> data = new ArrayList<>(response.data);
+            data.sort(Comparator.comparingInt(d -> d.index));
+            List<float[]> embeddings = new ArrayList<>(data.size());
+            for (EmbeddingData item : data) {
+                float[] embedding = new float[item.embedding.size()];
+                for (int i = 0; i < embedding.length; i++) {
+                    embedding[i] = item.embedding.get(i).floatValue();
+                }
+                embeddings.add(embedding);
+            }
+            return embeddings;
+
+        } catch (WebClientResponseException e) {
+            logger.error("OpenAI API error: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
+            throw new RuntimeException("Failed to generate embeddings: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The text cut to the model's input limit
+     */
+    private String truncate(String text) {
+        EncodingResult encoded = TOKENIZER.encodeOrdinary(text, maxInputTokens);
+        if (!encoded.isTruncated()) {
+            return text;
+        }
+        logger.debug("Truncated embedding input of {} characters to {} tokens", text.length(), maxInputTokens);
+        return TOKENIZER.decode(encoded.getTokens());
+    }
+
     /**
      * Generate embedding from note content (title + content)
      * This method combines and formats note fields for optimal embedding generation
@@ -95,16 +190,21 @@ public class OpenAIEmbeddingService {
      * @return Float array representing the embedding vector
      */
     public float[] generateNoteEmbedding(String title, String content) {
+        return generateEmbedding(noteText(title, content));
+    }
+
+    /**
+     * Text embedded for a note: title and HTML-stripped content in a fixed format
+     */
+    public String noteText(String title, String content) {
         // Strip HTML tags from content for better embedding quality
         String cleanContent = content != null ? stripHtml(content) : "";
         String cleanTitle = title != null ? title : "";
 
         // Combine title and content with special formatting
-        String combinedText = String.format("Title: %s\n\nContent: %s",
+        return String.format("Title: %s\n\nContent: %s",
                 cleanTitle.trim(),
                 cleanContent.trim());
-
-        return generateEmbedding(combinedText);
     }
 
     /**
@@ -0,0 +1,138 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.entity.OutboundEmail;
+import com.dharmikharkhani.notes.repository.OutboundEmailRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Persistent outbound email queue.
+ *
+ * Callers enqueue a message under an idempotency key and return immediately; enqueueing the same key again is a
+ * no-op. A scheduled dispatcher claims due rows through a {@link LeasedQueue}, sends them concurrently on the email
+ * worker pool through the configured {@link EmailTransport}, and marks them sent or schedules their retry. Delivery
+ * is at-least-once: a crash between sending and marking a row sent resends it once the lease expires.
+ */
+@Service
+public class OutboundEmailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundEmailService.class);
+
+    private final OutboundEmailRepository outboundEmailRepository;
+    private final EmailTransport transport;
+    private final Executor emailExecutor;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final LeasedQueue<OutboundEmail> queue;
+    private final Duration retention;
+
+    public OutboundEmailService(OutboundEmailRepository outboundEmailRepository, EmailTransport transport,
+                                @Qualifier("emailExecutor") Executor emailExecutor, MeterRegistry meterRegistry,
+                                @Qualifier("primaryTransactionManager") PlatformTransactionManager transactionManager,
+                                @Value("${app.email.batch-size:50}") int batchSize,
+                                @Value("${app.email.max-attempts:8}") int maxAttempts,
+                                @Value("${app.email.lease:5m}") Duration lease,
+                                @Value("${app.email.base-backoff:30s}") Duration baseBackoff,
+                                @Value("${app.email.max-backoff:1h}") Duration maxBackoff,
+                                @Value("${app.email.retention:7d}") Duration retention) {
+        this.outboundEmailRepository = outboundEmailRepository;
+        this.transport = transport;
+        this.emailExecutor = emailExecutor;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new LeasedQueue<>("notes.email.outbound", outboundEmailRepository::lockDue,
+                outboundEmailRepository::leaseUntil, meterRegistry, transactionTemplate,
+                batchSize, maxAttempts, lease, baseBackoff, maxBackoff);
+        this.retention = retention;
+    }
+
+    /**
+     * Queue an email for delivery; does nothing if one with this idempotency key was already queued
+     *
+     * @return whether a new email was queued
+     */
+    public boolean enqueue(String idempotencyKey, String to, String subject, String htmlContent) {
+        try {
+            Boolean queued = transactionTemplate.execute(status -> {
+                if (outboundEmailRepository.existsByIdempotencyKey(idempotencyKey)) {
+                    return false;
+                }
+                outboundEmailRepository.save(new OutboundEmail(idempotencyKey, to, subject, htmlContent));
+                return true;
+            });
+            if (Boolean.TRUE.equals(queued)) {
+                meterRegistry.counter("notes.email.outbound", "outcome", "queued").increment();
+                return true;
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Lost a race with a concurrent enqueue of the same key
+        }
+        logger.debug("Email {} already queued", idempotencyKey);
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.poll-interval-ms:1000}")
+    public void dispatch() {
+        queue.drain(this::send);
+    }
+
+    @Scheduled(cron = "${app.email.prune-cron:0 30 3 * * *}")
+    public void prune() {
+        Integer removed = transactionTemplate.execute(status -> outboundEmailRepository.deleteFinishedBefore(
+                OutboundEmail.Status.PENDING, LocalDateTime.now().minus(retention)));
+        if (removed != null && removed > 0) {
+            logger.info("Pruned {} finished outbound emails", removed);
+        }
+    }
+
+    private void send(List<OutboundEmail> claimed) {
+        // Email id -> failure, or null once sent
+        Map<Long, Exception> results = Collections.synchronizedMap(new HashMap<>());
+        CompletableFuture<?>[] sends = claimed.stream()
+                .map(email -> CompletableFuture.runAsync(() -> {
+                    try {
+                        transport.send(email.getRecipient(), email.getSubject(), email.getHtmlBody(), email.getIdempotencyKey());
+                        results.put(email.getId(), null);
+                    } catch (Exception e) {
+                        results.put(email.getId(), e);
+                    }
+                }, emailExecutor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(sends).join();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            int sent = 0;
+            for (OutboundEmail email : outboundEmailRepository.findAllById(results.keySet())) {
+                Exception error = results.get(email.getId());
+                if (error == null) {
+                    email.setAttempts(email.getAttempts() + 1);
+                    email.setStatus(OutboundEmail.Status.SENT);
+                    email.setSentAt(now);
+                    email.setLastError(null);
+                    sent++;
+                } else if (queue.recordFailure(email, error, now)) {
+                    logger.error("Giving up on email {} to {} after {} attempts: {}",
+                            email.getIdempotencyKey(), email.getRecipient(), email.getAttempts(), error.toString());
+                } else {
+                    logger.warn("Email {} failed (attempt {}): {}", email.getIdempotencyKey(), email.getAttempts(), error.toString());
+                }
+            }
+            meterRegistry.counter("notes.email.outbound", "outcome", "sent").increment(sent);
+        });
+    }
+}
@@ -1,11 +1,14 @@
 package com.dharmikharkhani.notes.service;
 
-import com.dharmikharkhani.notes.entity.pgvector.NoteEmbedding;
+import com.dharmikharkhani.notes.event.NoteEmbeddingChangedEvent;
+import com.dharmikharkhani.notes.repository.ColocatedVectorSearchRepository;
+import com.dharmikharkhani.notes.repository.pgvector.NoteEmbeddingBatchRepository;
 import com.dharmikharkhani.notes.repository.pgvector.NoteEmbeddingRepository;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,21 +21,39 @@ public class PGVectorSearchService {
     private static final Logger logger = LoggerFactory.getLogger(PGVectorSearchService.class);
     private static final double DEFAULT_SIMILARITY_THRESHOLD = 0.7;
     private static final int DEFAULT_MAX_RESULTS = 20;
+    // Bound on ids bound into one IN list
+    private static final int CANDIDATE_CHUNK = 5000;
+
+    /**
+     * A note's embeddable fields
+     */
+    public record NoteText(UUID noteId, String title, String content) {
+    }
 
     @Autowired
     private NoteEmbeddingRepository noteEmbeddingRepository;
 
+    @Autowired
+    private NoteEmbeddingBatchRepository noteEmbeddingBatchRepository;
+
+    @Autowired
+    private ColocatedVectorSearchRepository colocatedVectorSearchRepository;
+
     @Autowired
     private OpenAIEmbeddingService openAIEmbeddingService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Create or update embedding for a note
+     * The stored content hash is checked first so unchanged notes cost no API call; the write itself is a
+     * single atomic upsert that also leaves the row alone if a concurrent write stored the same content.
      *
      * @param noteId Note UUID
      * @param title Note title
      * @param content Note content
      */
-    @Transactional("pgvectorTransactionManager")
     public void upsertNoteEmbedding(UUID noteId, String title, String content) {
         try {
             logger.debug("Upserting embedding for note: {}", noteId);
@@ -40,11 +61,8 @@ public class PGVectorSearchService {
             // Calculate content hash to detect changes
             String contentHash = calculateContentHash(title, content);
 
-            // Check if embedding exists and if content changed
-            Optional<NoteEmbedding> existingEmbedding = noteEmbeddingRepository.findByNoteId(noteId);
-
-            if (existingEmbedding.isPresent() &&
-                contentHash.equals(existingEmbedding.get().getContentHash())) {
+            // Compare with the stored hash only; the vector itself is never loaded
+            if (contentHash.equals(noteEmbeddingRepository.findContentHashByNoteId(noteId).orElse(null))) {
                 logger.debug("Content unchanged for note {}, skipping embedding generation", noteId);
                 return;
             }
@@ -52,18 +70,11 @@ public class PGVectorSearchService {
             // Generate new embedding
             float[] embedding = openAIEmbeddingService.generateNoteEmbedding(title, content);
 
-            if (existingEmbedding.isPresent()) {
-                // Update existing embedding
-                NoteEmbedding noteEmbedding = existingEmbedding.get();
-                noteEmbedding.setEmbedding(embedding);
-                noteEmbedding.setContentHash(contentHash);
-                noteEmbeddingRepository.save(noteEmbedding);
-                logger.info("Updated embedding for note: {}", noteId);
-            } else {
-                // Create new embedding
-                NoteEmbedding noteEmbedding = new NoteEmbedding(noteId, embedding, contentHash);
-                noteEmbeddingRepository.save(noteEmbedding);
-                logger.info("Created embedding for note: {}", noteId);
+            int written = noteEmbeddingRepository.upsertEmbedding(
+                    UUID.randomUUID(), noteId, floatArrayToVectorString(embedding), contentHash);
+            if (written > 0) {
+                logger.info("Upserted embedding for note: {}", noteId);
+                eventPublisher.publishEvent(new NoteEmbeddingChangedEvent(noteId, false));
             }
 
         } catch (Exception e) {
@@ -80,6 +91,76 @@ public class PGVectorSearchService {
         }
     }
 
+    /**
+     * Create or update embeddings for many notes at once
+     * Unchanged notes are skipped, notes whose content is already embedded elsewhere copy that vector, and the
+     * rest are embedded in batched API calls and written in batched upserts.
+     * Not transactional, so no connection is held during the API calls; the write is one transaction.
+     *
+     * @param notes Notes to embed
+     * @return Number of notes whose embedding was written
+     */
+    public int upsertNoteEmbeddings(List<NoteText> notes) {
+        if (notes.isEmpty()) {
+            return 0;
+        }
+        Map<UUID, String> storedHashes = new HashMap<>();
+        for (NoteEmbeddingRepository.ContentHashRow row : noteEmbeddingRepository.findContentHashes(
+                notes.stream().map(NoteText::noteId).toList())) {
+            storedHashes.put(row.getNoteId(), row.getContentHash());
+        }
+
+        List<NoteText> changed = new ArrayList<>();
+        List<String> hashes = new ArrayList<>();
+        for (NoteText note : notes) {
+            String contentHash = calculateContentHash(note.title(), note.content());
+            if (!contentHash.equals(storedHashes.get(note.noteId()))) {
+                changed.add(note);
+                hashes.add(contentHash);
+            }
+        }
+        if (changed.isEmpty()) {
+            logger.debug("All {} note embeddings are up to date", notes.size());
+            return 0;
+        }
+
+        // Content already embedded for another note (demo accounts, copies) reuses that vector
+        Set<String> known = new HashSet<>(noteEmbeddingRepository.findExistingContentHashes(hashes));
+        List<NoteEmbeddingBatchRepository.CloneRow> clones = new ArrayList<>();
+        for (int i = 0; i < changed.size(); i++) {
+            if (known.contains(hashes.get(i))) {
+                clones.add(new NoteEmbeddingBatchRepository.CloneRow(changed.get(i).noteId(), hashes.get(i)));
+            }
+        }
+        Set<UUID> missed = new HashSet<>(clones.isEmpty() ? List.of() : noteEmbeddingBatchRepository.cloneAll(clones));
+
+        List<NoteText> toEmbed = new ArrayList<>();
+        List<String> toEmbedHashes = new ArrayList<>();
+        for (int i = 0; i < changed.size(); i++) {
+            if (!known.contains(hashes.get(i)) || missed.contains(changed.get(i).noteId())) {
+                toEmbed.add(changed.get(i));
+                toEmbedHashes.add(hashes.get(i));
+            }
+        }
+        if (!toEmbed.isEmpty()) {
+            List<float[]> embeddings = openAIEmbeddingService.generateEmbeddings(toEmbed.stream()
+                    .map(note -> openAIEmbeddingService.noteText(note.title(), note.content()))
+                    .toList());
+            List<NoteEmbeddingBatchRepository.EmbeddingRow> rows = new ArrayList<>(toEmbed.size());
+            for (int i = 0; i < toEmbed.size(); i++) {
+                rows.add(new NoteEmbeddingBatchRepository.EmbeddingRow(
+                        toEmbed.get(i).noteId(), floatArrayToVectorString(embeddings.get(i)), toEmbedHashes.get(i)));
+            }
+            noteEmbeddingBatchRepository.upsertAll(rows);
+        }
+        for (NoteText note : changed) {
+            eventPublisher.publishEvent(new NoteEmbeddingChangedEvent(note.noteId(), false));
+        }
+        logger.info("Upserted {} of {} note embeddings in batch ({} copied from identical content)",
+                changed.size(), notes.size(), changed.size() - toEmbed.size());
+        return changed.size();
+    }
+
     /**
      * Delete embedding for a note
      *
@@ -91,20 +172,40 @@ public class PGVectorSearchService {
             if (noteEmbeddingRepository.existsByNoteId(noteId)) {
                 noteEmbeddingRepository.deleteByNoteId(noteId);
                 logger.info("Deleted embedding for note: {}", noteId);
+                eventPublisher.publishEvent(new NoteEmbeddingChangedEvent(noteId, true));
             }
         } catch (Exception e) {
             logger.error("Error deleting embedding for note: {}", noteId, e);
         }
     }
 
+    /**
+     * Delete the embeddings of several notes; unlike deleteNoteEmbedding, failures are thrown
+     *
+     * @param noteIds Note UUIDs
+     * @return Number of embeddings deleted
+     */
+    public int deleteNoteEmbeddings(Collection<UUID> noteIds) {
+        if (noteIds.isEmpty()) {
+            return 0;
+        }
+        int deleted = noteEmbeddingRepository.deleteByNoteIdIn(noteIds);
+        for (UUID noteId : noteIds) {
+            eventPublisher.publishEvent(new NoteEmbeddingChangedEvent(noteId, true));
+        }
+        logger.info("Deleted {} embeddings for {} notes", deleted, noteIds.size());
+        return deleted;
+    }
+
     /**
      * Perform semantic search on notes
      *
      * @param query Search query text
      * @param maxResults Maximum number of results
      * @param threshold Minimum similarity threshold (0-1)
-     * @return Map of note IDs to similarity scores
+     * @return Map of note IDs to similarity scores, in descending similarity order
      */
+    @Transactional(value = "pgvectorTransactionManager", readOnly = true)
     public Map<UUID, Double> semanticSearch(String query, int maxResults, double threshold) {
         try {
             logger.debug("Performing semantic search for query: {}", query);
@@ -119,11 +220,13 @@ public class PGVectorSearchService {
             List<NoteEmbeddingRepository.SimilarityResult> results =
                 noteEmbeddingRepository.findSimilarNotes(vectorString, maxResults, threshold);
 
-            // Convert to map
+            // Convert to map, keeping the most similar notes first
             Map<UUID, Double> similarityMap = results.stream()
                 .collect(Collectors.toMap(
                     NoteEmbeddingRepository.SimilarityResult::getNoteId,
-                    NoteEmbeddingRepository.SimilarityResult::getSimilarity
+                    NoteEmbeddingRepository.SimilarityResult::getSimilarity,
+                    (a, b) -> a,
+                    LinkedHashMap::new
                 ));
 
             logger.info("Semantic search found {} results for query: {} (threshold: {})", similarityMap.size(), query, threshold);
@@ -138,6 +241,122 @@ public class PGVectorSearchService {
         }
     }
 
+    /**
+     * Perform semantic search restricted to a candidate set, e.g. the notes matching a structured filter
+     * Large candidate sets are searched in chunks and the per-chunk results merged.
+     *
+     * @param query Search query text
+     * @param candidateIds Notes that may be returned
+     * @param maxResults Maximum number of results
+     * @param threshold Minimum similarity threshold (0-1)
+     * @return Map of note IDs to similarity scores, in descending similarity order
+     */
+    @Transactional(value = "pgvectorTransactionManager", readOnly = true)
+    public Map<UUID, Double> semanticSearchAmong(String query, Collection<UUID> candidateIds, int maxResults, double threshold) {
+        if (candidateIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            String vectorString = floatArrayToVectorString(openAIEmbeddingService.generateEmbedding(query));
+            List<UUID> candidates = new ArrayList<>(candidateIds);
+            List<NoteEmbeddingRepository.SimilarityResult> results = new ArrayList<>();
+            for (int from = 0; from < candidates.size(); from += CANDIDATE_CHUNK) {
+                List<UUID> chunk = candidates.subList(from, Math.min(from + CANDIDATE_CHUNK, candidates.size()));
+                results.addAll(noteEmbeddingRepository.findSimilarAmong(vectorString, chunk, maxResults, threshold));
+            }
+            results.sort(Comparator.comparing(NoteEmbeddingRepository.SimilarityResult::getSimilarity).reversed());
+
+            Map<UUID, Double> similarityMap = results.stream()
+                .limit(maxResults)
+                .collect(Collectors.toMap(
+                    NoteEmbeddingRepository.SimilarityResult::getNoteId,
+                    NoteEmbeddingRepository.SimilarityResult::getSimilarity,
+                    (a, b) -> a,
+                    LinkedHashMap::new
+                ));
+            logger.info("Semantic search among {} candidates found {} results for query: {} (threshold: {})",
+                candidates.size(), similarityMap.size(), query, threshold);
+            return similarityMap;
+        } catch (Exception e) {
+            logger.error("Error performing semantic search among candidates", e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Perform semantic search restricted to a candidate set in one statement on the primary database
+     * Only valid when embeddings are co-located with notes (app.embeddings.colocated=true).
+     *
+     * @param query Search query text
+     * @param candidateIds Notes that may be returned
+     * @param maxResults Maximum number of results
+     * @param threshold Minimum similarity threshold (0-1)
+     * @return Map of note IDs to similarity scores, in descending similarity order
+     */
+    public Map<UUID, Double> semanticSearchAmongColocated(String query, Collection<UUID> candidateIds, int maxResults, double threshold) {
+        if (candidateIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            Map<UUID, Double> similarityMap = colocatedVectorSearchRepository.findSimilarAmong(
+                embedQuery(query), candidateIds, maxResults, threshold);
+            logger.info("Co-located semantic search among {} candidates found {} results for query: {} (threshold: {})",
+                candidateIds.size(), similarityMap.size(), query, threshold);
+            return similarityMap;
+        } catch (Exception e) {
+            logger.error("Error performing co-located semantic search among candidates", e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Embed a search query
+     *
+     * @param query Search query text
+     * @return Vector string in format "[1.0,2.0,3.0]"
+     */
+    public String embedQuery(String query) {
+        return floatArrayToVectorString(openAIEmbeddingService.generateEmbedding(query));
+    }
+
+    /**
+     * Find notes similar to an existing note among a candidate set, e.g. the notes a user can access
+     * Uses the stored embedding (no embedding API call); large candidate sets are searched in chunks.
+     *
+     * @param noteId Note UUID
+     * @param candidateIds Notes that may be returned
+     * @param maxResults Maximum number of results
+     * @return Map of note IDs to similarity scores, in descending similarity order; empty if the note has no embedding
+     */
+    @Transactional(value = "pgvectorTransactionManager", readOnly = true)
+    public Map<UUID, Double> findSimilarToNoteAmong(UUID noteId, Collection<UUID> candidateIds, int maxResults) {
+        if (candidateIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            List<UUID> candidates = new ArrayList<>(candidateIds);
+            List<NoteEmbeddingRepository.SimilarityResult> results = new ArrayList<>();
+            for (int from = 0; from < candidates.size(); from += CANDIDATE_CHUNK) {
+                List<UUID> chunk = candidates.subList(from, Math.min(from + CANDIDATE_CHUNK, candidates.size()));
+                noteEmbeddingRepository.findNearestToNoteAmong(noteId, chunk, maxResults).stream()
+                    .filter(result -> result.getSimilarity() != null)
+                    .forEach(results::add);
+            }
+            results.sort(Comparator.comparing(NoteEmbeddingRepository.SimilarityResult::getSimilarity).reversed());
+            return results.stream()
+                .limit(maxResults)
+                .collect(Collectors.toMap(
+                    NoteEmbeddingRepository.SimilarityResult::getNoteId,
+                    NoteEmbeddingRepository.SimilarityResult::getSimilarity,
+                    (a, b) -> a,
+                    LinkedHashMap::new
+                ));
+        } catch (Exception e) {
+            logger.error("Error finding notes similar to note: {}", noteId, e);
+            return Collections.emptyMap();
+        }
+    }
+
     /**
      * Debug method: Get ALL similarity scores without threshold filtering
      *
@@ -145,6 +364,7 @@ public class PGVectorSearchService {
      * @param maxResults Maximum number of results
      * @return Map of note IDs to similarity scores
      */
+    @Transactional(value = "pgvectorTransactionManager", readOnly = true)
     public Map<UUID, Double> debugSemanticSearch(String query, int maxResults) {
         try {
             logger.debug("DEBUG: Performing semantic search WITHOUT threshold for query: {}", query);
@@ -224,6 +444,7 @@ public class PGVectorSearchService {
      * @param noteId Note UUID
      * @return true if embedding exists
      */
+    @Transactional(value = "pgvectorTransactionManager", readOnly = true)
     public boolean hasEmbedding(UUID noteId) {
         return noteEmbeddingRepository.existsByNoteId(noteId);
     }
@@ -233,6 +454,7 @@ public class PGVectorSearchService {
      *
      * @return count of embeddings
      */
+    @Transactional(value = "pgvectorTransactionManager", readOnly = true)
     public long countEmbeddings() {
         return noteEmbeddingRepository.count();
     }
@@ -0,0 +1,175 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.entity.NoteChange;
+import com.dharmikharkhani.notes.event.NoteChangedEvent;
+import com.dharmikharkhani.notes.event.UserDeletedEvent;
+import com.dharmikharkhani.notes.repository.NoteChangeRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Base for in-memory aggregates kept per user over the notes they can see (owned and shared).
+ *
+ * An aggregate is loaded on first use at the current change log sequence. Committed change events from this
+ * instance apply to it right away, and at most once per catch-up interval a read pulls the user's change log
+ * entries past that sequence and re-reads the notes they name, so writes made on other instances show up too.
+ * Up to {@code maxCachedUsers} aggregates are kept; the least recently used one is dropped first.
+ * Subclasses call {@link #read} from within a read-only transaction.
+ */
+public abstract class PerUserAggregateService<A extends PerUserAggregateService.Aggregate> {
+
+    private static final int CATCH_UP_BATCH = 1000;
+    // Change log entries are pruned after days; reload well before an idle aggregate could miss any
+    private static final Duration MAX_CATCH_UP_GAP = Duration.ofHours(12);
+
+    private final NoteChangeRepository noteChangeRepository;
+    private final NoteChangeLogService noteChangeLogService;
+    private final long catchUpIntervalNanos;
+    // Access ordered, so iteration starts at the least recently used user; guarded by itself
+    private final LinkedHashMap<Long, A> aggregates;
+
+    protected PerUserAggregateService(NoteChangeRepository noteChangeRepository,
+                                      NoteChangeLogService noteChangeLogService,
+                                      int maxCachedUsers, long catchUpIntervalMs) {
+        this.noteChangeRepository = noteChangeRepository;
+        this.noteChangeLogService = noteChangeLogService;
+        this.catchUpIntervalNanos = Duration.ofMillis(catchUpIntervalMs).toNanos();
+        this.aggregates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, A> eldest) {
+                return size() > maxCachedUsers;
+            }
+        };
+    }
+
+    protected abstract A newAggregate();
+
+    /**
+     * Fill an empty aggregate from the database
+     */
+    protected abstract void load(Long userId, A aggregate);
+
+    /**
+     * Re-read the given notes; notes the user can no longer see are dropped from the aggregate
+     */
+    protected abstract void refresh(Long userId, A aggregate, Set<UUID> noteIds);
+
+    /**
+     * Apply the note state carried by a change event
+     */
+    protected abstract void apply(A aggregate, NoteChangedEvent event);
+
+    /**
+     * Run {@code reader} against the user's up to date aggregate, under its monitor
+     */
+    protected <R> R read(Long userId, Function<A, R> reader) {
+        A aggregate;
+        synchronized (aggregates) {
+            aggregate = aggregates.computeIfAbsent(userId, id -> newAggregate());
+        }
+        synchronized (aggregate) {
+            if (!aggregate.loaded) {
+                loadInto(userId, aggregate);
+            } else if (System.nanoTime() - aggregate.checkedAt >= catchUpIntervalNanos && !catchUp(userId, aggregate)) {
+                // Too far behind to catch up entry by entry
+                A fresh = newAggregate();
+                synchronized (fresh) {
+                    loadInto(userId, fresh);
+                    synchronized (aggregates) {
+                        aggregates.replace(userId, aggregate, fresh);
+                    }
+                    return reader.apply(fresh);
+                }
+            }
+            return reader.apply(aggregate);
+        }
+    }
+
+    /**
+     * Drop a user's aggregate, e.g. when the user is deleted
+     */
+    public void evict(Long userId) {
+        synchronized (aggregates) {
+            aggregates.remove(userId);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        evict(event.userId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        A aggregate;
+        synchronized (aggregates) {
+            aggregate = aggregates.get(event.userId());
+        }
+        if (aggregate == null) {
+            return;
+        }
+        synchronized (aggregate) {
+            if (!aggregate.loaded) {
+                // The change is in the load's snapshot or after its sequence, so the next catch-up applies it
+                return;
+            }
+            Long lastSequence = aggregate.lastSequenceByNote.get(event.noteId());
+            if (lastSequence != null && lastSequence > event.sequence()) {
+                // An older change delivered late
+                return;
+            }
+            aggregate.lastSequenceByNote.put(event.noteId(), event.sequence());
+            apply(aggregate, event);
+        }
+    }
+
+    private void loadInto(Long userId, A aggregate) {
+        // Read the sequence first: entries at or below it are in the snapshot, later ones are caught up
+        aggregate.throughSequence = noteChangeLogService.currentSequence();
+        load(userId, aggregate);
+        aggregate.loaded = true;
+        aggregate.checkedAt = System.nanoTime();
+    }
+
+    /**
+     * @return false if the aggregate is too far behind and should be reloaded instead
+     */
+    private boolean catchUp(Long userId, A aggregate) {
+        long now = System.nanoTime();
+        if (now - aggregate.checkedAt >= MAX_CATCH_UP_GAP.toNanos()) {
+            return false;
+        }
+        List<NoteChange> changes = noteChangeRepository.findByUserIdAndSequenceGreaterThanOrderBySequenceAsc(
+                userId, aggregate.throughSequence, PageRequest.of(0, CATCH_UP_BATCH));
+        if (changes.size() >= CATCH_UP_BATCH) {
+            return false;
+        }
+        aggregate.checkedAt = now;
+        if (changes.isEmpty()) {
+            return true;
+        }
+        Map<UUID, Long> latestByNote = new HashMap<>();
+        for (NoteChange change : changes) {
+            latestByNote.merge(change.getNoteId(), change.getId(), Math::max);
+        }
+        refresh(userId, aggregate, latestByNote.keySet());
+        latestByNote.forEach((noteId, id) -> aggregate.lastSequenceByNote.merge(noteId, id, Math::max));
+        aggregate.throughSequence = changes.get(changes.size() - 1).getSequence();
+        return true;
+    }
+
+    /**
+     * State shared by every aggregate; guarded by the aggregate's monitor
+     */
+    abstract static class Aggregate {
+        // Change log entry id last applied per note, so late events cannot undo newer state
+        final Map<UUID, Long> lastSequenceByNote = new HashMap<>();
+        long throughSequence;
+        long checkedAt;
+        boolean loaded;
+    }
+}
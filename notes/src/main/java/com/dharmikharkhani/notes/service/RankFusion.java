@@ -0,0 +1,149 @@
+package com.dharmikharkhani.notes.service;
+
+import java.util.*;
+
+/**
+ * Fuses a keyword and a semantic result list into one ranking and keeps only the best k.
+ *
+ * Candidates are numbered once; scores and ranks live in primitive arrays indexed by that number,
+ * and selection uses a fixed-size min-heap, so the cost is O(n log k) with no per-candidate boxing.
+ */
+public final class RankFusion {
+
+    public enum Strategy {
+        // weight * score summed over legs (scores are expected in [0, 1])
+        WEIGHTED_SUM,
+        // Reciprocal rank fusion: sum of 1 / (k + rank) over legs, ignores raw scores
+        RRF
+    }
+
+    /**
+     * @param ids top-ranked candidate ids, best first
+     * @param candidates number of distinct candidates across both legs
+     */
+    public record Result(List<UUID> ids, int candidates) {
+    }
+
+    private final Strategy strategy;
+    private final double keywordWeight;
+    private final double semanticWeight;
+    private final int rrfK;
+
+    public RankFusion(Strategy strategy, double keywordWeight, double semanticWeight, int rrfK) {
+        this.strategy = strategy;
+        this.keywordWeight = keywordWeight;
+        this.semanticWeight = semanticWeight;
+        this.rrfK = rrfK;
+    }
+
+    /**
+     * @param keywordIds keyword hits, best first
+     * @param keywordScores score per keyword hit, parallel to keywordIds
+     * @param semanticIds semantic hits, best first
+     * @param semanticScores similarity per semantic hit, parallel to semanticIds
+     * @param limit number of results to keep
+     */
+    public Result fuse(List<UUID> keywordIds, double[] keywordScores,
+                       List<UUID> semanticIds, double[] semanticScores, int limit) {
+        int capacity = keywordIds.size() + semanticIds.size();
+        Map<UUID, Integer> slots = new HashMap<>(capacity * 2);
+        UUID[] ids = new UUID[capacity];
+        double[] fused = new double[capacity];
+        int count = 0;
+
+        for (int rank = 0; rank < keywordIds.size(); rank++) {
+            UUID id = keywordIds.get(rank);
+            Integer slot = slots.putIfAbsent(id, count);
+            if (slot == null) {
+                slot = count;
+                ids[count++] = id;
+            }
+            fused[slot] += contribution(keywordWeight, keywordScores[rank], rank);
+        }
+        for (int rank = 0; rank < semanticIds.size(); rank++) {
+            UUID id = semanticIds.get(rank);
+            Integer slot = slots.putIfAbsent(id, count);
+            if (slot == null) {
+                slot = count;
+                ids[count++] = id;
+            }
+            fused[slot] += contribution(semanticWeight, semanticScores[rank], rank);
+        }
+
+        int[] top = topK(fused, count, limit);
+        List<UUID> ranked = new ArrayList<>(top.length);
+        for (int slot : top) {
+            ranked.add(ids[slot]);
+        }
+        return new Result(ranked, count);
+    }
+
+    private double contribution(double weight, double score, int rank) {
+        return strategy == Strategy.RRF ? 1.0 / (rrfK + rank + 1) : weight * score;
+    }
+
+    /**
+     * Indices of the k largest scores, best first
+     */
+    static int[] topK(double[] scores, int n, int k) {
+        int size = Math.min(k, n);
+        if (size <= 0) {
+            return new int[0];
+        }
+        // Min-heap on score: the root is the weakest of the current top k
+        int[] heap = new int[size];
+        int heapSize = 0;
+        for (int i = 0; i < n; i++) {
+            if (heapSize < size) {
+                heap[heapSize] = i;
+                siftUp(heap, heapSize++, scores);
+            } else if (scores[i] > scores[heap[0]]) {
+                heap[0] = i;
+                siftDown(heap, heapSize, scores);
+            }
+        }
+        // Pop weakest first into the back of the result
+        int[] result = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize, scores);
+        }
+        return result;
+    }
+
+    private static void siftUp(int[] heap, int pos, double[] scores) {
+        int item = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (scores[heap[parent]] <= scores[item]) {
+                break;
+            }
+            heap[pos] = heap[parent];
+            pos = parent;
+        }
+        heap[pos] = item;
+    }
+
+    private static void siftDown(int[] heap, int size, double[] scores) {
+        if (size == 0) {
+            return;
+        }
+        int pos = 0;
+        int item = heap[0];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < size && scores[heap[right]] < scores[heap[child]]) {
+                child = right;
+            }
+            if (scores[item] <= scores[heap[child]]) {
+                break;
+            }
+            heap[pos] = heap[child];
+            pos = child;
+        }
+        heap[pos] = item;
+    }
+}
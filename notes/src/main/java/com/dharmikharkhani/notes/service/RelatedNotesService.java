@@ -0,0 +1,210 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.auth.model.User;
+import com.dharmikharkhani.notes.auth.repository.UserRepository;
+import com.dharmikharkhani.notes.dto.RelatedNoteDTO;
+import com.dharmikharkhani.notes.entity.Note;
+import com.dharmikharkhani.notes.entity.NoteChange;
+import com.dharmikharkhani.notes.entity.Tag;
+import com.dharmikharkhani.notes.event.NoteChangedEvent;
+import com.dharmikharkhani.notes.event.NoteEmbeddingChangedEvent;
+import com.dharmikharkhani.notes.repository.ColocatedVectorSearchRepository;
+import com.dharmikharkhani.notes.repository.NoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * "Related notes" for a note, found by a kNN query that uses the note's stored embedding as the query vector,
+ * so no embedding API call is made. The query only ranks notes the caller can access; with co-located embeddings
+ * (app.embeddings.colocated=true) the access filter is part of the statement rather than a list of ids.
+ *
+ * Neighbour lists are cached per caller and note. An entry is dropped when the note's own embedding changes,
+ * when a note in its list changes or stops being accessible to the caller; a note whose new embedding (or new
+ * share) would join some other list is picked up when that entry expires.
+ */
+@Service
+public class RelatedNotesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelatedNotesService.class);
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 50;
+
+    private final NoteRepository noteRepository;
+    private final UserRepository userRepository;
+    private final PGVectorSearchService pgVectorSearchService;
+    private final ColocatedVectorSearchRepository colocatedVectorSearchRepository;
+    private final boolean colocated;
+    private final double minSimilarity;
+    private final long ttlNanos;
+    private final int maxCachedNotes;
+
+    // Guarded by this; access-ordered so the least recently used entry is evicted first
+    private final LinkedHashMap<Key, Neighbours> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // Guarded by this; note id -> cached entries for that note, one per caller
+    private final Map<UUID, Set<Key>> entriesOf = new HashMap<>();
+    // Guarded by this; note id -> cached entries whose neighbour list contains it
+    private final Map<UUID, Set<Key>> listedIn = new HashMap<>();
+    // Guarded by this; bumped on every invalidation so lists computed before it are not cached
+    private long generation;
+
+    public RelatedNotesService(NoteRepository noteRepository, UserRepository userRepository,
+                               PGVectorSearchService pgVectorSearchService,
+                               ColocatedVectorSearchRepository colocatedVectorSearchRepository,
+                               @Value("${app.embeddings.colocated:false}") boolean colocated,
+                               @Value("${app.related.min-similarity:0.35}") double minSimilarity,
+                               @Value("${app.related.cache-ttl:10m}") Duration ttl,
+                               @Value("${app.related.max-cached-notes:20000}") int maxCachedNotes) {
+        this.noteRepository = noteRepository;
+        this.userRepository = userRepository;
+        this.pgVectorSearchService = pgVectorSearchService;
+        this.colocatedVectorSearchRepository = colocatedVectorSearchRepository;
+        this.colocated = colocated;
+        this.minSimilarity = minSimilarity;
+        this.ttlNanos = ttl.toNanos();
+        this.maxCachedNotes = maxCachedNotes;
+    }
+
+    /**
+     * Notes the user can access that are most similar to the given note, most similar first
+     * The caller is expected to have checked access to the note itself.
+     */
+    @Transactional(readOnly = true)
+    public List<RelatedNoteDTO> findRelated(UUID noteId, String userEmail, int limit) {
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        Map<UUID, Double> neighbours = neighboursOf(new Key(user.getId(), noteId));
+        if (neighbours.isEmpty()) {
+            return List.of();
+        }
+
+        List<UUID> ids = neighbours.keySet().stream()
+                .limit(limit)
+                .toList();
+        Map<UUID, Note> notesById = noteRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Note::getId, Function.identity()));
+
+        return ids.stream()
+                .map(notesById::get)
+                .filter(Objects::nonNull)
+                .map(note -> new RelatedNoteDTO(
+                        note.getId(),
+                        note.getTitle(),
+                        note.getTags().stream().map(Tag::getName).collect(Collectors.toSet()),
+                        neighbours.get(note.getId())))
+                .toList();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onEmbeddingChanged(NoteEmbeddingChangedEvent event) {
+        generation++;
+        removeAll(entriesOf.get(event.noteId()));
+        removeAll(listedIn.get(event.noteId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onNoteChanged(NoteChangedEvent event) {
+        if (event.type() != NoteChange.Type.REMOVE) {
+            return;
+        }
+        // Deleted, or no longer shared with this user
+        generation++;
+        Set<Key> dependents = listedIn.get(event.noteId());
+        if (dependents != null) {
+            removeAll(dependents.stream().filter(key -> key.userId().equals(event.userId())).toList());
+        }
+        remove(new Key(event.userId(), event.noteId()));
+    }
+
+    private Map<UUID, Double> neighboursOf(Key key) {
+        long startedGeneration;
+        synchronized (this) {
+            Neighbours cached = cache.get(key);
+            if (cached != null && System.nanoTime() - cached.loadedAt < ttlNanos) {
+                return cached.similarities;
+            }
+            startedGeneration = generation;
+        }
+
+        Map<UUID, Double> similarities = new LinkedHashMap<>();
+        findNearest(key).forEach((id, similarity) -> {
+            if (similarity >= minSimilarity) {
+                similarities.put(id, similarity);
+            }
+        });
+        logger.debug("Loaded {} related notes for note {} and user {}", similarities.size(), key.noteId(), key.userId());
+
+        synchronized (this) {
+            if (generation == startedGeneration) {
+                remove(key);
+                cache.put(key, new Neighbours(Collections.unmodifiableMap(similarities), System.nanoTime()));
+                entriesOf.computeIfAbsent(key.noteId(), k -> new HashSet<>()).add(key);
+                for (UUID id : similarities.keySet()) {
+                    listedIn.computeIfAbsent(id, k -> new HashSet<>()).add(key);
+                }
+                if (cache.size() > maxCachedNotes) {
+                    remove(cache.keySet().iterator().next());
+                }
+            }
+        }
+        return similarities;
+    }
+
+    private Map<UUID, Double> findNearest(Key key) {
+        if (colocated) {
+            // Always probe the index first; a note left short of neighbours falls back to an exact scan
+            return colocatedVectorSearchRepository.findNearestAccessible(key.userId(), List.of(key.noteId()), Integer.MAX_VALUE, MAX_LIMIT)
+                    .getOrDefault(key.noteId(), Map.of());
+        }
+        List<UUID> accessible = noteRepository.findIdsAccessibleBy(key.userId());
+        return pgVectorSearchService.findSimilarToNoteAmong(key.noteId(), accessible, MAX_LIMIT);
+    }
+
+    /**
+     * Drop cached entries; caller holds the lock
+     */
+    private void removeAll(Collection<Key> keys) {
+        if (keys != null) {
+            for (Key key : List.copyOf(keys)) {
+                remove(key);
+            }
+        }
+    }
+
+    /**
+     * Drop a cached entry and its reverse links; caller holds the lock
+     */
+    private void remove(Key key) {
+        Neighbours removed = cache.remove(key);
+        if (removed == null) {
+            return;
+        }
+        unlink(entriesOf, key.noteId(), key);
+        for (UUID id : removed.similarities.keySet()) {
+            unlink(listedIn, id, key);
+        }
+    }
+
+    private static void unlink(Map<UUID, Set<Key>> links, UUID noteId, Key key) {
+        Set<Key> keys = links.get(noteId);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            links.remove(noteId);
+        }
+    }
+
+    private record Key(Long userId, UUID noteId) {
+    }
+
+    private record Neighbours(Map<UUID, Double> similarities, long loadedAt) {
+    }
+}
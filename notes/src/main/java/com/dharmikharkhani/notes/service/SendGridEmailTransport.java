@@ -0,0 +1,62 @@
+package com.dharmikharkhani.notes.service;
+
+import com.sendgrid.Method;
+import com.sendgrid.Request;
+import com.sendgrid.Response;
+import com.sendgrid.SendGrid;
+import com.sendgrid.helpers.mail.Mail;
+import com.sendgrid.helpers.mail.objects.Content;
+import com.sendgrid.helpers.mail.objects.Email;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+@Component
+@ConditionalOnProperty(name = "app.email.transport", havingValue = "sendgrid", matchIfMissing = true)
+public class SendGridEmailTransport implements EmailTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(SendGridEmailTransport.class);
+
+    @Value("${sendgrid.api.key:}")
+    private String sendGridApiKey;
+
+    @Value("${sendgrid.from.email:noreply@notesapp.com}")
+    private String fromEmail;
+
+    @Value("${sendgrid.from.name:NotesApp}")
+    private String fromName;
+
+    @Override
+    public void send(String to, String subject, String htmlContent, String idempotencyKey) throws IOException {
+        // Check if SendGrid is configured
+        if (sendGridApiKey == null || sendGridApiKey.trim().isEmpty()) {
+            logger.warn("SendGrid not configured - email to {} with subject '{}' not sent (set SENDGRID_API_KEY to enable)", to, subject);
+            return; // Skip sending in development mode
+        }
+
+        Email from = new Email(fromEmail, fromName);
+        Email toEmail = new Email(to);
+        Content content = new Content("text/html", htmlContent);
+        Mail mail = new Mail(from, subject, toEmail, content);
+        // Shows up in SendGrid's event data, so a resend after a lost response can be recognised
+        mail.addCustomArg("idempotency_key", idempotencyKey);
+
+        SendGrid sg = new SendGrid(sendGridApiKey);
+        Request request = new Request();
+
+        request.setMethod(Method.POST);
+        request.setEndpoint("mail/send");
+        request.setBody(mail.build());
+
+        Response response = sg.api(request);
+
+        if (response.getStatusCode() >= 400) {
+            throw new IOException("Failed to send email. Status: " + response.getStatusCode() +
+                                  ", Body: " + response.getBody());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.dto.TagFacetDTO;
+import com.dharmikharkhani.notes.event.NoteChangedEvent;
+import com.dharmikharkhani.notes.repository.NoteChangeRepository;
+import com.dharmikharkhani.notes.repository.NoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * In-memory per-user tag facets (tag name to note count over owned and shared notes).
+ *
+ * A user's aggregate is built with two queries on first use and then kept current from change events and
+ * the note change log (see {@link PerUserAggregateService}), so most reads never touch the database.
+ */
+@Service
+public class TagFacetService extends PerUserAggregateService<TagFacetService.UserFacets> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagFacetService.class);
+
+    private final NoteRepository noteRepository;
+
+    public TagFacetService(NoteRepository noteRepository, NoteChangeRepository noteChangeRepository,
+                           NoteChangeLogService noteChangeLogService,
+                           @Value("${app.tags.facets.max-cached-users:10000}") int maxCachedUsers,
+                           @Value("${app.aggregates.catch-up-interval-ms:1000}") long catchUpIntervalMs) {
+        super(noteChangeRepository, noteChangeLogService, maxCachedUsers, catchUpIntervalMs);
+        this.noteRepository = noteRepository;
+    }
+
+    /**
+     * Tag facets for a user, most used first
+     */
+    @Transactional(readOnly = true)
+    public List<TagFacetDTO> getFacets(Long userId) {
+        return read(userId, facets -> {
+            List<TagFacetDTO> result = new ArrayList<>(facets.counts.size());
+            facets.counts.forEach((name, count) -> result.add(new TagFacetDTO(name, count)));
+            result.sort(Comparator.comparingInt(TagFacetDTO::count).reversed().thenComparing(TagFacetDTO::name));
+            return result;
+        });
+    }
+
+    @Override
+    protected UserFacets newAggregate() {
+        return new UserFacets();
+    }
+
+    @Override
+    protected void load(Long userId, UserFacets facets) {
+        Map<UUID, Set<String>> tagsByNote = new HashMap<>();
+        for (NoteRepository.NoteTagRow row : noteRepository.findTagNamesOfOwnedNotes(userId)) {
+            tagsByNote.computeIfAbsent(row.getNoteId(), id -> new HashSet<>()).add(row.getTagName());
+        }
+        for (NoteRepository.NoteTagRow row : noteRepository.findTagNamesOfSharedNotes(userId)) {
+            tagsByNote.computeIfAbsent(row.getNoteId(), id -> new HashSet<>()).add(row.getTagName());
+        }
+        tagsByNote.forEach(facets::setNoteTags);
+        logger.debug("Loaded tag facets for user {}: {} notes, {} tags", userId, tagsByNote.size(), facets.counts.size());
+    }
+
+    @Override
+    protected void refresh(Long userId, UserFacets facets, Set<UUID> noteIds) {
+        Set<UUID> visible = new HashSet<>(noteRepository.findAccessibleNoteIds(userId, noteIds));
+        Map<UUID, Set<String>> tagsByNote = new HashMap<>();
+        if (!visible.isEmpty()) {
+            for (NoteRepository.NoteTagRow row : noteRepository.findTagNamesByNoteIds(visible)) {
+                tagsByNote.computeIfAbsent(row.getNoteId(), id -> new HashSet<>()).add(row.getTagName());
+            }
+        }
+        for (UUID noteId : noteIds) {
+            facets.setNoteTags(noteId, tagsByNote.getOrDefault(noteId, Set.of()));
+        }
+    }
+
+    @Override
+    protected void apply(UserFacets facets, NoteChangedEvent event) {
+        facets.setNoteTags(event.noteId(), event.tags());
+    }
+
+    /**
+     * One user's aggregate; guarded by its own monitor
+     */
+    static final class UserFacets extends PerUserAggregateService.Aggregate {
+        private final Map<UUID, Set<String>> tagsByNote = new HashMap<>();
+        private final Map<String, Integer> counts = new HashMap<>();
+
+        void setNoteTags(UUID noteId, Set<String> tags) {
+            Set<String> previous = tagsByNote.getOrDefault(noteId, Set.of());
+            for (String tag : previous) {
+                if (!tags.contains(tag)) {
+                    counts.computeIfPresent(tag, (name, count) -> count > 1 ? count - 1 : null);
+                }
+            }
+            for (String tag : tags) {
+                if (!previous.contains(tag)) {
+                    counts.merge(tag, 1, Integer::sum);
+                }
+            }
+            if (tags.isEmpty()) {
+                tagsByNote.remove(noteId);
+            } else {
+                tagsByNote.put(noteId, Set.copyOf(tags));
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.dharmikharkhani.notes.service;
+
+import com.dharmikharkhani.notes.entity.Tag;
+import com.dharmikharkhani.notes.repository.TagRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.dharmikharkhani.notes.repository.InsertIgnoreSupport;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Resolves tag names to Tag entities with a bounded number of queries, creating missing tags.
+ *
+ * Known names are served from a process-wide name to id cache and loaded by primary key. Unknown names
+ * are looked up with a single IN query, and the remainder inserted in one JDBC batch that ignores
+ * duplicates, so concurrent creation of the same tag cannot fail on the unique constraint.
+ *
+ * Names are compared as the tag column compares them: exactly on PostgreSQL, and ignoring case and accents under
+ * MySQL's default collation, where "Foo" finds the tag "foo". The cache keeps the most recently used names.
+ */
+@Service
+public class TagResolutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagResolutionService.class);
+
+    private static final int MAX_CACHED_NAMES = 10_000;
+
+    private final TagRepository tagRepository;
+    private final JdbcTemplate jdbcTemplate;
+    // Collation key to tag id, access-ordered; guarded by itself
+    private final Map<String, Long> tagIdsByName = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_CACHED_NAMES;
+        }
+    };
+    private final InsertIgnoreSupport insertIgnoreSupport;
+
+    public TagResolutionService(TagRepository tagRepository, JdbcTemplate jdbcTemplate,
+                                InsertIgnoreSupport insertIgnoreSupport) {
+        this.tagRepository = tagRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertIgnoreSupport = insertIgnoreSupport;
+    }
+
+    /**
+     * Resolve tag names to managed Tag entities, creating any that don't exist yet
+     *
+     * @param names tag names; null and blank names are ignored
+     */
+    @Transactional
+    public Set<Tag> resolve(Collection<String> names) {
+        if (names == null || names.isEmpty()) {
+            return new HashSet<>();
+        }
+        // One name per collation key; "Foo" and "foo" are the same tag where the column ignores case
+        Map<String, String> wanted = new LinkedHashMap<>();
+        for (String name : names) {
+            if (name != null && !name.isBlank()) {
+                wanted.putIfAbsent(collationKey(name), name);
+            }
+        }
+        if (wanted.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        Set<Long> ids = new HashSet<>();
+        Map<String, String> unknown = new LinkedHashMap<>();
+        synchronized (tagIdsByName) {
+            wanted.forEach((key, name) -> {
+                Long id = tagIdsByName.get(key);
+                if (id != null) {
+                    ids.add(id);
+                } else {
+                    unknown.put(key, name);
+                }
+            });
+        }
+
+        Set<Tag> tags = new HashSet<>();
+        if (!unknown.isEmpty()) {
+            tags.addAll(lookupOrCreate(unknown));
+        }
+        if (!ids.isEmpty()) {
+            List<Tag> cached = tagRepository.findAllById(ids);
+            if (cached.size() != ids.size()) {
+                // A cached tag no longer exists; drop the cache and resolve from the database
+                synchronized (tagIdsByName) {
+                    tagIdsByName.clear();
+                }
+                return resolve(wanted.values());
+            }
+            tags.addAll(cached);
+        }
+        return tags;
+    }
+
+    public Set<Tag> resolve(String... names) {
+        return resolve(Arrays.asList(names));
+    }
+
+    /**
+     * @param names requested names by collation key
+     */
+    private List<Tag> lookupOrCreate(Map<String, String> names) {
+        Map<String, Tag> found = byCollationKey(tagRepository.findByNameIn(names.values()));
+        Map<String, String> missing = new LinkedHashMap<>(names);
+        missing.keySet().removeAll(found.keySet());
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(insertIgnoreSupport.sql("tag", "name", "name"), missing.values(), missing.size(),
+                    (ps, name) -> ps.setString(1, name));
+            found.putAll(byCollationKey(tagRepository.findByNameIn(missing.values())));
+            logger.debug("Created up to {} new tags", missing.size());
+        }
+
+        List<Tag> tags = new ArrayList<>(names.size());
+        names.forEach((key, name) -> {
+            Tag tag = found.get(key);
+            if (tag != null) {
+                tags.add(tag);
+            } else {
+                // The column matched a tag this key does not equate with (e.g. another accent-insensitive
+                // collation); resolve it alone and leave it uncached
+                tagRepository.findByNameIn(List.of(name)).stream().findFirst().ifPresent(tags::add);
+            }
+        });
+        synchronized (tagIdsByName) {
+            found.forEach((key, tag) -> tagIdsByName.put(key, tag.getId()));
+        }
+        return tags;
+    }
+
+    private Map<String, Tag> byCollationKey(Collection<Tag> tags) {
+        Map<String, Tag> byKey = new HashMap<>();
+        tags.forEach(tag -> byKey.put(collationKey(tag.getName()), tag));
+        return byKey;
+    }
+
+    /**
+     * Equal for names the tag column treats as equal; never equal for names it tells apart
+     */
+    private String collationKey(String name) {
+        if (!insertIgnoreSupport.isMySql()) {
+            return name;
+        }
+        String folded = Normalizer.normalize(name, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return folded.toLowerCase(Locale.ROOT);
+    }
+}
@@ -2,6 +2,7 @@ package com.dharmikharkhani.notes.service;
 
 import com.dharmikharkhani.notes.auth.model.User;
 import com.dharmikharkhani.notes.auth.repository.UserRepository;
+import com.dharmikharkhani.notes.dto.TagFacetDTO;
 import com.dharmikharkhani.notes.entity.Tag;
 import com.dharmikharkhani.notes.repository.TagRepository;
 import org.springframework.stereotype.Service;
@@ -14,10 +15,12 @@ public class TagService {
 
     private final TagRepository tagRepository;
     private final UserRepository userRepository;
+    private final TagFacetService tagFacetService;
 
-    public TagService(TagRepository tagRepository, UserRepository userRepository) {
+    public TagService(TagRepository tagRepository, UserRepository userRepository, TagFacetService tagFacetService) {
         this.tagRepository = tagRepository;
         this.userRepository = userRepository;
+        this.tagFacetService = tagFacetService;
     }
 
     public List<String> getTagsForUser(String userEmail) {
@@ -26,4 +29,13 @@ public class TagService {
         List<Tag> tags = tagRepository.findDistinctByNotesOwner(user);
         return tags.stream().map(Tag::getName).collect(Collectors.toList());
     }
+
+    /**
+     * Tag counts across the user's owned and shared notes, served from the in-memory facet aggregate
+     */
+    public List<TagFacetDTO> getTagFacetsForUser(String userEmail) {
+        User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        return tagFacetService.getFacets(user.getId());
+    }
 }